@@ -0,0 +1,54 @@
+package banking.App.banking.app.config;
+
+import banking.App.banking.app.controller.AccountController;
+import banking.App.banking.app.dto.BatchTransactionItem;
+import banking.App.banking.app.dto.BatchTransactionRequest;
+import banking.App.banking.app.dto.TransferRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Charges the accounts named in a request body to the {@link AdmissionControlInterceptor}:
+ * the target of a transfer, whose source is already charged by its path, and every account
+ * of a batch. The body is checked as soon as it has been read, before the request reaches
+ * the service.
+ */
+@ControllerAdvice(assignableTypes = AccountController.class)
+@ConditionalOnProperty(name = "admission-control.enabled", havingValue = "true")
+public class AdmissionControlBodyAdvice extends RequestBodyAdviceAdapter {
+
+    private final AdmissionControlInterceptor admissionControlInterceptor;
+
+    public AdmissionControlBodyAdvice(AdmissionControlInterceptor admissionControlInterceptor) {
+        this.admissionControlInterceptor = admissionControlInterceptor;
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return targetType == TransferRequest.class || targetType == BatchTransactionRequest.class;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        if (body instanceof TransferRequest transfer && transfer.getToAccountId() != null) {
+            admissionControlInterceptor.admitAccounts(List.of(transfer.getToAccountId()));
+        } else if (body instanceof BatchTransactionRequest batch && batch.getOperations() != null) {
+            admissionControlInterceptor.admitAccounts(batch.getOperations().stream()
+                    .filter(Objects::nonNull)
+                    .map(BatchTransactionItem::getAccountId)
+                    .filter(Objects::nonNull)
+                    .toList());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,63 @@
+package banking.App.banking.app.config;
+
+import banking.App.banking.app.util.AdaptiveConcurrencyLimit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Admission control for the account API, enabled with {@code admission-control.enabled=true}.
+ * <p>
+ * Each account may be named by at most {@code admission-control.account-rate} requests
+ * per second, with bursts of up to {@code admission-control.account-burst}. Across all
+ * accounts, between {@code admission-control.min-limit} and
+ * {@code admission-control.max-limit} requests are served at once, starting from
+ * {@code admission-control.initial-limit}. Rejected requests get HTTP 429 with a
+ * {@code Retry-After} header. Requests to the handler patterns in
+ * {@code admission-control.unsampled-paths} run too long to tell anything about latency
+ * and do not adjust the limit.
+ * </p>
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "admission-control.enabled", havingValue = "true")
+public class AdmissionControlConfiguration {
+
+    @Bean
+    public AdaptiveConcurrencyLimit admissionConcurrencyLimit(
+            @Value("${admission-control.initial-limit:20}") int initialLimit,
+            @Value("${admission-control.min-limit:4}") int minLimit,
+            @Value("${admission-control.max-limit:200}") int maxLimit,
+            @Value("${admission-control.latency-tolerance:2.0}") double latencyTolerance,
+            @Value("${admission-control.backoff-ratio:0.9}") double backoffRatio) {
+        return new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, latencyTolerance, backoffRatio,
+                System.nanoTime());
+    }
+
+    @Bean
+    public AdmissionControlInterceptor admissionControlInterceptor(
+            @Value("${admission-control.account-rate:50}") double accountRate,
+            @Value("${admission-control.account-burst:100}") int accountBurst,
+            @Value("${admission-control.account-idle-expiry:1m}") Duration accountIdleExpiry,
+            @Value("${admission-control.account-maximum-buckets:100000}") long accountMaximumBuckets,
+            @Value("${admission-control.unsampled-paths:/api/account/import}") Set<String> unsampledPaths,
+            AdaptiveConcurrencyLimit admissionConcurrencyLimit) {
+        return new AdmissionControlInterceptor(accountRate, accountBurst, accountIdleExpiry, accountMaximumBuckets,
+                admissionConcurrencyLimit, unsampledPaths);
+    }
+
+    @Bean
+    public WebMvcConfigurer admissionControlWebMvcConfigurer(AdmissionControlInterceptor admissionControlInterceptor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(admissionControlInterceptor).addPathPatterns("/api/account", "/api/account/**");
+            }
+        };
+    }
+}
@@ -0,0 +1,164 @@
+package banking.App.banking.app.config;
+
+import banking.App.banking.app.exception.AdmissionRejectedException;
+import banking.App.banking.app.util.AdaptiveConcurrencyLimit;
+import banking.App.banking.app.util.TokenBucket;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns away requests before they reach the database once an account or the service as a
+ * whole is busier than it can serve.
+ * <p>
+ * A request naming an account in its path first takes a token from that account's
+ * {@link TokenBucket}, and every request then takes a permit from one
+ * {@link AdaptiveConcurrencyLimit}, which tracks request latency and shrinks the number
+ * of requests served at once when latency rises. A request refused by either is rejected
+ * at once with {@link AdmissionRejectedException}, rather than waiting for a thread or a
+ * connection. Buckets of idle accounts expire, and the number of buckets is capped.
+ * Accounts named in the request body, such as a transfer's target or the accounts of a
+ * batch, are charged through {@link #admitAccounts(Collection)} once the body has been
+ * read.
+ * </p>
+ * <p>
+ * Streaming responses hold their permit until the stream ends, and requests matching one
+ * of the unsampled handler patterns, such as bulk imports, until they complete; neither is
+ * sampled for latency, so their duration does not shrink the limit.
+ * </p>
+ */
+public class AdmissionControlInterceptor implements HandlerInterceptor, MeterBinder {
+
+    private static final String START_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".start";
+
+    private final Cache<Long, TokenBucket> accountBuckets;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final double accountRate;
+    private final int accountBurst;
+    private final Set<String> unsampledPatterns;
+    private final AtomicLong accountRejections = new AtomicLong();
+    private final AtomicLong concurrencyRejections = new AtomicLong();
+
+    public AdmissionControlInterceptor(double accountRate, int accountBurst, Duration accountIdleExpiry,
+                                       long accountMaximumBuckets, AdaptiveConcurrencyLimit concurrencyLimit,
+                                       Set<String> unsampledPatterns) {
+        if (accountRate <= 0 || accountBurst < 1) {
+            throw new IllegalArgumentException("admission-control.account-rate and account-burst must be positive");
+        }
+        this.accountBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(accountIdleExpiry)
+                .maximumSize(accountMaximumBuckets)
+                .build();
+        this.concurrencyLimit = concurrencyLimit;
+        this.accountRate = accountRate;
+        this.accountBurst = accountBurst;
+        this.unsampledPatterns = Set.copyOf(unsampledPatterns);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC || request.getAttribute(START_ATTRIBUTE) != null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        Long accountId = accountId(request);
+        if (accountId != null) {
+            admitAccount(accountId, now);
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            concurrencyRejections.incrementAndGet();
+            throw new AdmissionRejectedException("Too many requests in progress", 1);
+        }
+        request.setAttribute(START_ATTRIBUTE, now);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        request.removeAttribute(START_ATTRIBUTE);
+        if (request.getDispatcherType() == DispatcherType.ASYNC
+                || unsampledPatterns.contains(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE))) {
+            concurrencyLimit.release();
+        } else {
+            concurrencyLimit.release((Long) start, System.nanoTime());
+        }
+    }
+
+    /**
+     * Takes a token from the bucket of every account named in a request body.
+     *
+     * @param accountIds the accounts, each charged once however often it is named
+     * @throws AdmissionRejectedException if one of the accounts has no token left
+     */
+    public void admitAccounts(Collection<Long> accountIds) {
+        long now = System.nanoTime();
+        for (Long accountId : Set.copyOf(accountIds)) {
+            admitAccount(accountId, now);
+        }
+    }
+
+    private void admitAccount(Long accountId, long now) {
+        TokenBucket bucket = accountBuckets.get(accountId, id -> new TokenBucket(accountRate, accountBurst, now));
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            accountRejections.incrementAndGet();
+            throw new AdmissionRejectedException("Too many requests for account " + accountId,
+                    TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        }
+    }
+
+    private static Long accountId(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String id = variables == null ? null : variables.get("id");
+        if (id == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.admission.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Requests admitted at once under the current adaptive limit")
+                .register(registry);
+        Gauge.builder("banking.admission.in.flight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Admitted requests in progress")
+                .register(registry);
+        Gauge.builder("banking.admission.account.buckets", accountBuckets, Cache::estimatedSize)
+                .description("Accounts with a token bucket")
+                .register(registry);
+        FunctionCounter.builder("banking.admission.rejected", accountRejections, AtomicLong::get)
+                .tag("reason", "account")
+                .description("Requests rejected by admission control")
+                .register(registry);
+        FunctionCounter.builder("banking.admission.rejected", concurrencyRejections, AtomicLong::get)
+                .tag("reason", "concurrency")
+                .description("Requests rejected by admission control")
+                .register(registry);
+    }
+}
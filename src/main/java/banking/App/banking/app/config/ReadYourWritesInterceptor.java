@@ -0,0 +1,57 @@
+package banking.App.banking.app.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * Gives clients read-your-writes consistency while read replicas lag behind the primary.
+ * <p>
+ * When a write request (any method other than GET, HEAD or OPTIONS) arrives, the client
+ * is remembered for the sticky window before the request is handled, so a read issued as
+ * soon as the response is flushed already finds it; every request the client makes in that
+ * window reads from the primary. A write that fails still makes the client sticky. Clients are identified by the {@value #CLIENT_ID_HEADER}
+ * header, or by their remote address when the header is absent. Streaming responses are
+ * written on another thread and are not covered.
+ * </p>
+ */
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+
+    static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesInterceptor(Duration stickyWindow, long maximumSize) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(stickyWindow)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String clientKey = clientKey(request);
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method)) {
+            recentWriters.put(clientKey, Boolean.TRUE);
+        }
+        if (recentWriters.getIfPresent(clientKey) != null) {
+            ReplicaRoutingDataSource.setPrimaryRequired(true);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReplicaRoutingDataSource.setPrimaryRequired(false);
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        String clientId = request.getHeader(CLIENT_ID_HEADER);
+        return clientId != null && !clientId.isEmpty() ? clientId : request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,94 @@
+package banking.App.banking.app.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-replica routing, enabled with {@code replica-routing.enabled=true}.
+ * <p>
+ * The primary pool is built from the usual {@code spring.datasource.*} properties. One
+ * read-only pool is created for each URL in {@code replica-routing.urls}, with the
+ * primary's credentials unless {@code replica-routing.username} and
+ * {@code replica-routing.password} are set. Service methods annotated with
+ * {@code @Transactional(readOnly = true)}, and Spring Data's read-only repository methods,
+ * then read from the replicas; everything else uses the primary.
+ * </p>
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "replica-routing.enabled", havingValue = "true")
+public class ReplicaRoutingConfiguration implements WebMvcConfigurer {
+
+    private final Duration stickyWindow;
+    private final long stickyMaximumSize;
+
+    public ReplicaRoutingConfiguration(@Value("${replica-routing.sticky-window:10s}") Duration stickyWindow,
+                                       @Value("${replica-routing.sticky-maximum-size:100000}") long stickyMaximumSize) {
+        this.stickyWindow = stickyWindow;
+        this.stickyMaximumSize = stickyMaximumSize;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource, DataSourceProperties properties,
+            @Value("${replica-routing.urls}") String[] urls,
+            @Value("${replica-routing.username:${spring.datasource.username:}}") String username,
+            @Value("${replica-routing.password:${spring.datasource.password:}}") String password,
+            @Value("${replica-routing.pool-size:10}") int poolSize,
+            @Value("${replica-routing.lag-query}") String lagQuery,
+            @Value("${replica-routing.max-lag:5s}") Duration maxLag) {
+        if (urls.length == 0) {
+            throw new IllegalArgumentException("replica-routing.urls must list at least one replica");
+        }
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.length; i++) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(urls[i].trim())
+                    .username(username)
+                    .password(password)
+                    .build();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, lagQuery, maxLag);
+    }
+
+    /**
+     * The data source used by JPA and JDBC. Connections are fetched lazily so that the
+     * routing decision sees the transaction's read-only flag.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReadYourWritesInterceptor(stickyWindow, stickyMaximumSize));
+    }
+}
@@ -0,0 +1,187 @@
+package banking.App.banking.app.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Routes connections of read-only transactions to read replicas and everything else to
+ * the primary.
+ * <p>
+ * A connection is routed when it is obtained, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}; the proxy
+ * defers fetching the connection until the first statement, after the transaction's
+ * read-only flag has been bound to the thread. Reads outside a transaction go to the
+ * primary.
+ * </p>
+ * <p>
+ * {@link #checkReplicaLag()} runs the lag query on every replica. A replica whose lag
+ * exceeds the maximum, or whose query fails, receives no reads until a later check
+ * passes. Read-only transactions are spread round-robin across the available replicas
+ * and fall back to the primary when none is available, or when the current thread has
+ * been marked with {@link #setPrimaryRequired(boolean)} to read its own writes.
+ * </p>
+ * <p>
+ * The replica data sources are owned by this data source and closed with it.
+ * </p>
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final String PRIMARY = "primary";
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, String lagQuery, Duration maxLag) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            targets.put(name, dataSource);
+            this.replicas.add(new Replica(name, dataSource));
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toNanos() / 1_000_000_000.0;
+    }
+
+    /**
+     * Marks whether connections obtained by the current thread must come from the primary,
+     * regardless of the transaction's read-only flag.
+     *
+     * @param primaryRequired true to route every connection of the thread to the primary
+     */
+    public static void setPrimaryRequired(boolean primaryRequired) {
+        if (primaryRequired) {
+            PRIMARY_REQUIRED.set(Boolean.TRUE);
+        } else {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    /**
+     * Runs the action with every connection of the current thread routed to the primary,
+     * then restores the thread's previous routing. Used for reads whose result outlives the
+     * request, such as cache loads, which must not capture a lagging replica's state.
+     *
+     * @param action the action to run
+     * @return the result of the action
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        boolean previous = PRIMARY_REQUIRED.get() != null;
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            setPrimaryRequired(previous);
+        }
+    }
+
+    /**
+     * Measures the replication lag of every replica and updates which replicas receive reads.
+     */
+    @Scheduled(fixedDelayString = "${replica-routing.lag-check-interval:PT1S}")
+    public void checkReplicaLag() {
+        for (Replica replica : replicas) {
+            double lag;
+            try {
+                Number result = replica.jdbcTemplate.queryForObject(lagQuery, Number.class);
+                lag = result == null ? 0 : result.doubleValue();
+            } catch (RuntimeException e) {
+                lag = Double.NaN;
+                if (replica.available) {
+                    logger.warn("Lag check failed for replica {}: {}", replica.name, e.getMessage());
+                }
+            }
+            boolean available = lag <= maxLagSeconds;
+            if (available != replica.available) {
+                logger.info("Replica {} is now {} (lag {} s)", replica.name, available ? "available" : "unavailable", lag);
+            }
+            replica.lagSeconds = lag;
+            replica.available = available;
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        checkReplicaLag();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || PRIMARY_REQUIRED.get() != null) {
+            return PRIMARY;
+        }
+        int size = replicas.size();
+        int start = nextReplica.getAndIncrement();
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, size));
+            if (replica.available) {
+                return replica.name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas) {
+            Gauge.builder("banking.datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .description("Replication lag of the replica as of the last check")
+                    .baseUnit("seconds")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            Gauge.builder("banking.datasource.replica.available", replica, r -> r.available ? 1 : 0)
+                    .description("Whether the replica currently receives read-only transactions")
+                    .tag("replica", replica.name)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * One replica and the result of its last lag check.
+     */
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private volatile double lagSeconds = Double.NaN;
+        private volatile boolean available;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+        }
+    }
+}
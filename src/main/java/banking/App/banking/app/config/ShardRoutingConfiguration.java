@@ -0,0 +1,86 @@
+package banking.App.banking.app.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash-sharded storage, enabled with {@code shard-routing.enabled=true}.
+ * <p>
+ * Shard 0 is built from the usual {@code spring.datasource.*} properties and also holds
+ * the shard catalog. One more shard is created for each URL in {@code shard-routing.urls},
+ * with shard 0's credentials unless {@code shard-routing.username} and
+ * {@code shard-routing.password} are set. Which shard an account lives on is decided by
+ * {@link banking.App.banking.app.services.ShardRouter}.
+ * </p>
+ * <p>
+ * Sharding cannot be combined with read-replica routing or with the in-memory balance
+ * engine, both of which assume a single primary database.
+ * </p>
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "shard-routing.enabled", havingValue = "true")
+public class ShardRoutingConfiguration {
+
+    public ShardRoutingConfiguration(@Value("${replica-routing.enabled:false}") boolean replicaRoutingEnabled,
+                                     @Value("${balance-engine.enabled:false}") boolean balanceEngineEnabled) {
+        if (replicaRoutingEnabled || balanceEngineEnabled) {
+            throw new IllegalStateException(
+                    "shard-routing.enabled cannot be combined with replica-routing.enabled or balance-engine.enabled");
+        }
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            HikariDataSource primaryDataSource, DataSourceProperties properties,
+            @Value("${shard-routing.urls:}") String[] urls,
+            @Value("${shard-routing.username:${spring.datasource.username:}}") String username,
+            @Value("${shard-routing.password:${spring.datasource.password:}}") String password,
+            @Value("${shard-routing.pool-size:10}") int poolSize) {
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(primaryDataSource);
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource shard = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(username)
+                    .password(password)
+                    .build();
+            shard.setPoolName("shard-" + shards.size());
+            shard.setMaximumPoolSize(poolSize);
+            shards.add(shard);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * The data source used by JPA and JDBC. Connections are fetched lazily so that the
+     * routing decision sees the shard selected for the current thread.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+}
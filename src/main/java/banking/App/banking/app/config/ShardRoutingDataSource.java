@@ -0,0 +1,97 @@
+package banking.App.banking.app.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes connections to one of several shard databases.
+ * <p>
+ * The shard is taken from the current thread, as set by {@link #setCurrentShard(int)};
+ * threads that have not set one use shard 0, which also holds the shard catalog. A
+ * connection is routed when it is obtained, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}; the proxy
+ * defers fetching the connection until the first statement, so a shard selected at the
+ * start of a transaction's body still applies to it. A transaction never changes shard
+ * once its connection has been fetched.
+ * </p>
+ * <p>
+ * The data sources of shards other than 0 are owned by this data source and closed with it.
+ * </p>
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        this.shards = List.copyOf(shards);
+    }
+
+    /**
+     * Selects the shard that connections obtained by the current thread are routed to.
+     *
+     * @param shard the shard number, or a negative number to return to shard 0
+     */
+    public static void setCurrentShard(int shard) {
+        if (shard < 0) {
+            CURRENT_SHARD.remove();
+        } else {
+            CURRENT_SHARD.set(shard);
+        }
+    }
+
+    /**
+     * Returns the shard selected for the current thread, or -1 if none has been selected.
+     */
+    public static int getCurrentShard() {
+        Integer shard = CURRENT_SHARD.get();
+        return shard == null ? -1 : shard;
+    }
+
+    /**
+     * Returns the number of shards.
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Returns the data source of one shard, bypassing the routing.
+     *
+     * @param shard the shard number
+     * @return the shard's data source
+     */
+    public DataSource getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (DataSource shard : shards.subList(1, shards.size())) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = CURRENT_SHARD.get();
+        return shard == null ? 0 : shard;
+    }
+}
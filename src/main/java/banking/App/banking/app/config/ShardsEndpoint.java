@@ -0,0 +1,49 @@
+package banking.App.banking.app.config;
+
+import banking.App.banking.app.services.ShardRebalancer;
+import banking.App.banking.app.services.ShardRouter;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The read-only {@code /actuator/shards} endpoint, showing how the buckets are spread over
+ * the shards and the progress of the last rebalance. Actuator endpoints are not
+ * authenticated, so rebalances are started with {@code shard-routing.rebalance-on-start}
+ * instead of from here.
+ */
+@Component
+@Endpoint(id = "shards")
+@ConditionalOnProperty(name = "shard-routing.enabled", havingValue = "true")
+public class ShardsEndpoint {
+
+    private final ShardRouter shardRouter;
+    private final ShardRebalancer shardRebalancer;
+
+    public ShardsEndpoint(ShardRouter shardRouter, ShardRebalancer shardRebalancer) {
+        this.shardRouter = shardRouter;
+        this.shardRebalancer = shardRebalancer;
+    }
+
+    @ReadOperation
+    public Map<String, Object> shards() {
+        int[] bucketsPerShard = new int[shardRouter.getShardCount()];
+        int movingBuckets = 0;
+        int[] assignment = shardRouter.getAssignment();
+        for (int bucket = 0; bucket < assignment.length; bucket++) {
+            bucketsPerShard[assignment[bucket]]++;
+            if (shardRouter.isMoving(bucket)) {
+                movingBuckets++;
+            }
+        }
+        Map<String, Object> shards = new LinkedHashMap<>();
+        shards.put("bucketsPerShard", bucketsPerShard);
+        shards.put("movingBuckets", movingBuckets);
+        shards.put("rebalance", shardRebalancer.getStatus());
+        return shards;
+    }
+}
@@ -1,23 +1,37 @@
 package banking.App.banking.app.controller;
 
 import banking.App.banking.app.dto.AccountDetails;
-import banking.App.banking.app.dto.TransactionDetails;
+import banking.App.banking.app.dto.AccountImportResult;
+import banking.App.banking.app.dto.AccountPage;
+import banking.App.banking.app.dto.AccountStatement;
+import banking.App.banking.app.dto.BatchTransactionRequest;
+import banking.App.banking.app.dto.BatchTransactionResult;
+import banking.App.banking.app.dto.TransactionPage;
 import banking.App.banking.app.dto.TransactionRequest;
+import banking.App.banking.app.dto.TransferRequest;
 import banking.App.banking.app.dto.CreateAccountRequest;
-import banking.App.banking.app.entity.Transaction;
-import banking.App.banking.app.exception.AccountNotFoundException;
-import banking.App.banking.app.repository.TransactionRepository;
+import banking.App.banking.app.services.AccountImportService;
 import banking.App.banking.app.services.AccountService;
+import banking.App.banking.app.services.GroupCommitService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/account")
@@ -25,12 +39,20 @@ import java.util.stream.Collectors;
 public class AccountController {
 
     private final AccountService accountService;
-    private final TransactionRepository transactionRepository;
+    private final GroupCommitService groupCommitService;
+    private final AccountImportService accountImportService;
+    private final ObjectMapper objectMapper;
     private static final Logger logger = LoggerFactory.getLogger(AccountController.class);
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
 
-    public AccountController(AccountService accountService, TransactionRepository transactionRepository) {
+    public AccountController(AccountService accountService, GroupCommitService groupCommitService,
+                             AccountImportService accountImportService, ObjectMapper objectMapper) {
         this.accountService = accountService;
-        this.transactionRepository = transactionRepository;
+        this.groupCommitService = groupCommitService;
+        this.accountImportService = accountImportService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -52,6 +74,26 @@ public class AccountController {
         }
     }
 
+    /**
+     * Imports accounts in bulk from a CSV or newline-delimited JSON request body.
+     * The body is read incrementally, so it can hold any number of accounts.
+     *
+     * @param contentType the content type of the body, text/csv or application/x-ndjson
+     * @param body        the request body
+     * @return ResponseEntity containing the AccountImportResult and HTTP status code
+     * @throws IOException if the request body cannot be read
+     */
+    @PostMapping(value = "/import", consumes = {CSV, NDJSON})
+    public ResponseEntity<AccountImportResult> importAccounts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                              InputStream body) throws IOException {
+        AccountImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV))
+                ? AccountImportService.Format.CSV
+                : AccountImportService.Format.NDJSON;
+        logger.info("Importing accounts from {} input", format);
+        AccountImportResult result = accountImportService.importAccounts(body, format);
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * Retrieves account details by account ID.
      *
@@ -65,17 +107,39 @@ public class AccountController {
         return ResponseEntity.ok(accountDetails);
     }
 
+    /**
+     * Retrieves account details by account number.
+     *
+     * @param accountNumber the unmasked account number
+     * @return ResponseEntity containing the AccountDetails and HTTP status code
+     */
+    @GetMapping("/by-number")
+    public ResponseEntity<AccountDetails> getAccountByNumber(@RequestParam String accountNumber) {
+        logger.info("Fetching account details by account number");
+        AccountDetails accountDetails = accountService.getAccountByNumber(accountNumber);
+        return ResponseEntity.ok(accountDetails);
+    }
+
     /**
      * Deposits an amount into the specified account.
      *
      * @param id                 the ID of the account to deposit into
      * @param transactionRequest the request object containing deposit details
+     * @param idempotencyKey     optional key that makes retries of this request return the original result
      * @return ResponseEntity containing the updated AccountDetails and HTTP status code
      */
     @PutMapping("/{id}/deposit")
-    public ResponseEntity<AccountDetails> deposit(@PathVariable Long id, @Valid @RequestBody TransactionRequest transactionRequest) {
+    public ResponseEntity<AccountDetails> deposit(@PathVariable Long id, @Valid @RequestBody TransactionRequest transactionRequest,
+                                                  @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         logger.info("Depositing amount: {} to account ID: {}", transactionRequest.getAmount(), id);
-        AccountDetails accountDetails = accountService.deposit(id, transactionRequest.getAmount());
+        AccountDetails accountDetails;
+        if (idempotencyKey != null) {
+            accountDetails = accountService.deposit(id, transactionRequest.getAmount(), idempotencyKey);
+        } else if (groupCommitService.isEnabled()) {
+            accountDetails = groupCommitService.deposit(id, transactionRequest.getAmount());
+        } else {
+            accountDetails = accountService.deposit(id, transactionRequest.getAmount());
+        }
         return ResponseEntity.ok(accountDetails);
     }
 
@@ -84,52 +148,128 @@ public class AccountController {
      *
      * @param id                 the ID of the account to withdraw from
      * @param transactionRequest the request object containing withdrawal details
+     * @param idempotencyKey     optional key that makes retries of this request return the original result
      * @return ResponseEntity containing the updated AccountDetails and HTTP status code
      */
     @PutMapping("/{id}/withdraw")
-    public ResponseEntity<AccountDetails> withdraw(@PathVariable Long id, @Valid @RequestBody TransactionRequest transactionRequest) {
+    public ResponseEntity<AccountDetails> withdraw(@PathVariable Long id, @Valid @RequestBody TransactionRequest transactionRequest,
+                                                   @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         logger.info("Withdrawing amount: {} from account ID: {}", transactionRequest.getAmount(), id);
-        AccountDetails accountDetails = accountService.withdraw(id, transactionRequest.getAmount());
+        AccountDetails accountDetails;
+        if (idempotencyKey != null) {
+            accountDetails = accountService.withdraw(id, transactionRequest.getAmount(), idempotencyKey);
+        } else if (groupCommitService.isEnabled()) {
+            accountDetails = groupCommitService.withdraw(id, transactionRequest.getAmount());
+        } else {
+            accountDetails = accountService.withdraw(id, transactionRequest.getAmount());
+        }
+        return ResponseEntity.ok(accountDetails);
+    }
+
+    /**
+     * Transfers an amount from the specified account to another account.
+     *
+     * @param id              the ID of the account to transfer from
+     * @param transferRequest the request object containing the target account and amount
+     * @return ResponseEntity containing the updated AccountDetails of the source account and HTTP status code
+     */
+    @PutMapping("/{id}/transfer")
+    public ResponseEntity<AccountDetails> transfer(@PathVariable Long id, @Valid @RequestBody TransferRequest transferRequest) {
+        logger.info("Transferring amount: {} from account ID: {} to account ID: {}",
+                transferRequest.getAmount(), id, transferRequest.getToAccountId());
+        AccountDetails accountDetails = accountService.transfer(id, transferRequest.getToAccountId(), transferRequest.getAmount());
         return ResponseEntity.ok(accountDetails);
     }
 
     /**
-     * Retrieves transaction history for a specified account ID.
+     * Applies a batch of deposits and withdrawals across many accounts.
      *
-     * @param id the ID of the account for which to retrieve transaction history
-     * @return ResponseEntity containing a list of TransactionDetails and HTTP status code
+     * @param batchTransactionRequest the request object containing the operations to apply
+     * @return ResponseEntity containing one BatchTransactionResult per operation and HTTP status code
+     */
+    @PostMapping("/transactions/batch")
+    public ResponseEntity<List<BatchTransactionResult>> processBatch(@Valid @RequestBody BatchTransactionRequest batchTransactionRequest) {
+        logger.info("Processing batch of {} operations", batchTransactionRequest.getOperations().size());
+        List<BatchTransactionResult> results = accountService.processBatch(batchTransactionRequest.getOperations());
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Retrieves one page of the transaction history for a specified account ID, oldest first.
+     *
+     * @param id     the ID of the account for which to retrieve transaction history
+     * @param cursor the cursor returned with the previous page; omit for the first page
+     * @param size   the maximum number of transactions to return
+     * @return ResponseEntity containing a TransactionPage and HTTP status code
      */
     @GetMapping("/{id}/transactions")
-    public ResponseEntity<List<TransactionDetails>> getTransactionHistory(@PathVariable Long id) {
+    public ResponseEntity<TransactionPage> getTransactionHistory(@PathVariable Long id,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "50") int size) {
         logger.info("Fetching transaction history for account ID: {}", id);
+        TransactionPage transactionPage = accountService.getTransactionHistory(id, cursor, size);
+        return ResponseEntity.ok(transactionPage);
+    }
 
-        List<Transaction> transactions = transactionRepository.findByAccountId(id);
-
-        if (transactions.isEmpty()) {
-            throw new AccountNotFoundException("Account with ID " + id + " not found.");
-        }
+    /**
+     * Streams the full transaction history for a specified account ID as newline-delimited JSON.
+     *
+     * @param id the ID of the account for which to stream transaction history
+     * @return ResponseEntity containing the streaming response body and HTTP status code
+     */
+    @GetMapping(value = "/{id}/transactions/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamTransactionHistory(@PathVariable Long id) {
+        logger.info("Streaming transaction history for account ID: {}", id);
+        accountService.getAccountById(id);
 
-        List<TransactionDetails> transactionDetails = transactions.stream()
-                .map(transaction -> new TransactionDetails(
-                        transaction.getId(),
-                        transaction.getAmount(),
-                        transaction.getTransactionType(),
-                        transaction.getTimestamp()))
-                .collect(Collectors.toList());
+        StreamingResponseBody body = outputStream -> accountService.streamTransactionHistory(id,
+                transaction -> writeLine(outputStream, transaction));
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
 
-        return ResponseEntity.ok(transactionDetails);
+    /**
+     * Retrieves the statement of a specified account for an inclusive date range: opening and
+     * closing balance plus deposit and withdrawal totals and counts.
+     *
+     * @param id   the ID of the account
+     * @param from the first day of the statement, as an ISO date
+     * @param to   the last day of the statement, as an ISO date
+     * @return ResponseEntity containing the AccountStatement and HTTP status code
+     */
+    @GetMapping("/{id}/statement")
+    public ResponseEntity<AccountStatement> getStatement(@PathVariable Long id,
+                                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        logger.info("Fetching statement for account ID: {} from {} to {}", id, from, to);
+        AccountStatement accountStatement = accountService.getStatement(id, from, to);
+        return ResponseEntity.ok(accountStatement);
     }
 
     /**
-     * Retrieves all accounts.
+     * Retrieves one page of accounts ordered by ID.
      *
-     * @return ResponseEntity containing a list of AccountDetails and HTTP status code
+     * @param cursor the cursor returned with the previous page; omit for the first page
+     * @param size   the maximum number of accounts to return
+     * @return ResponseEntity containing an AccountPage and HTTP status code
      */
     @GetMapping
-    public ResponseEntity<List<AccountDetails>> getAllAccounts() {
-        logger.info("Fetching all accounts");
-        List<AccountDetails> accounts = accountService.getAllAccounts();
-        return ResponseEntity.ok(accounts);
+    public ResponseEntity<AccountPage> getAccounts(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "50") int size) {
+        logger.info("Fetching accounts page");
+        AccountPage accountPage = accountService.getAccounts(cursor, size);
+        return ResponseEntity.ok(accountPage);
+    }
+
+    /**
+     * Streams all accounts as newline-delimited JSON.
+     *
+     * @return ResponseEntity containing the streaming response body and HTTP status code
+     */
+    @GetMapping(value = "/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAccounts() {
+        logger.info("Streaming all accounts");
+        StreamingResponseBody body = outputStream -> accountService.streamAccounts(account -> writeLine(outputStream, account));
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
     /**
@@ -144,4 +284,19 @@ public class AccountController {
         accountService.deleteAccount(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Writes a value as one line of newline-delimited JSON.
+     *
+     * @param outputStream the response output stream
+     * @param value        the value to write
+     */
+    private void writeLine(OutputStream outputStream, Object value) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(value));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -10,17 +10,20 @@ import org.springframework.beans.factory.annotation.Autowired;
  * when persisting to and reading from the database.
  * <p>
  * This converter automatically applies to all String attributes in entities
- * where this converter is specified.
+ * where this converter is specified. Decrypted values are looked up in the
+ * {@link DecryptedValueCache} first, which is a pass-through unless enabled.
  * </p>
  */
 @Converter(autoApply = true)
 public class AttributeEncryptor implements AttributeConverter<String, String> {
 
     private final EncryptionUtil encryptionUtil;
+    private final DecryptedValueCache decryptedValueCache;
 
     @Autowired
-    public AttributeEncryptor(EncryptionUtil encryptionUtil) {
+    public AttributeEncryptor(EncryptionUtil encryptionUtil, DecryptedValueCache decryptedValueCache) {
         this.encryptionUtil = encryptionUtil;
+        this.decryptedValueCache = decryptedValueCache;
     }
 
     /**
@@ -42,7 +45,7 @@ public class AttributeEncryptor implements AttributeConverter<String, String> {
      */
     @Override
     public String convertToEntityAttribute(String dbData) {
-        return dbData == null ? null : decrypt(dbData);
+        return dbData == null ? null : decryptedValueCache.get(dbData, this::decrypt);
     }
 
     /**
@@ -0,0 +1,101 @@
+package banking.App.banking.app.converter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of decrypted attribute values keyed by their ciphertext.
+ * <p>
+ * Encrypted columns never change for a given ciphertext, so repeated entity
+ * hydration can reuse the plaintext instead of running AES again. The cache is
+ * disabled by default; when disabled every lookup goes straight to the loader.
+ * Its statistics are published as the {@code decrypted-values} cache metrics.
+ * </p>
+ */
+@Component
+public class DecryptedValueCache implements MeterBinder {
+
+    private final boolean enabled;
+    private final Cache<String, String> cache;
+
+    public DecryptedValueCache(@Value("${encryption.cache.enabled:false}") boolean enabled,
+                               @Value("${encryption.cache.maximum-size:10000}") long maximumSize,
+                               @Value("${encryption.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.enabled = enabled;
+        this.cache = enabled
+                ? Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(expireAfterWrite)
+                        .recordStats()
+                        .build()
+                : null;
+    }
+
+    /**
+     * Returns the plaintext for the given ciphertext, decrypting it through the loader on a miss.
+     *
+     * @param ciphertext the encrypted database value
+     * @param loader     the function that decrypts the value on a cache miss
+     * @return the decrypted value
+     */
+    public String get(String ciphertext, Function<String, String> loader) {
+        return enabled ? cache.get(ciphertext, loader) : loader.apply(ciphertext);
+    }
+
+    /**
+     * Discards every cached plaintext, e.g. after the encryption key has been rotated.
+     */
+    public void invalidateAll() {
+        if (enabled) {
+            cache.invalidateAll();
+            cache.cleanUp();
+        }
+    }
+
+    /**
+     * Returns the number of cached values after running any pending evictions.
+     *
+     * @return the number of cached values, or 0 when caching is disabled
+     */
+    long estimatedSize() {
+        if (!enabled) {
+            return 0;
+        }
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Returns whether caching is enabled.
+     *
+     * @return true if decrypted values are cached
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(registry, cache, "decrypted-values");
+        }
+    }
+
+    /**
+     * Returns a snapshot of the hit, miss and eviction counters.
+     *
+     * @return the cache statistics, or empty statistics when caching is disabled
+     */
+    public CacheStats stats() {
+        return enabled ? cache.stats() : CacheStats.empty();
+    }
+}
@@ -1,5 +1,6 @@
 package banking.App.banking.app.dto;
 
+import banking.App.banking.app.util.Money;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -13,4 +14,8 @@ public class AccountDetails {
     private String accountHolderName;
     private BigDecimal balance;
     private String accountNumber;
+
+    public AccountDetails(Long id, String accountHolderName, Money balance, String accountNumber) {
+        this(id, accountHolderName, balance.toBigDecimal(), accountNumber);
+    }
 }
@@ -0,0 +1,13 @@
+package banking.App.banking.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountImportError {
+    private long line;
+    private String message;
+}
@@ -0,0 +1,17 @@
+package banking.App.banking.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountPage {
+    private List<AccountDetails> accounts;
+    private String nextCursor;
+}
@@ -0,0 +1,30 @@
+package banking.App.banking.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Balance summary of an account over an inclusive date range. Deposits include incoming
+ * transfers and withdrawals include outgoing transfers, so the closing balance is always
+ * the opening balance plus deposits minus withdrawals.
+ */
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountStatement {
+    private Long accountId;
+    private LocalDate from;
+    private LocalDate to;
+    private BigDecimal openingBalance;
+    private BigDecimal closingBalance;
+    private BigDecimal depositTotal;
+    private long depositCount;
+    private BigDecimal withdrawalTotal;
+    private long withdrawalCount;
+}
@@ -0,0 +1,26 @@
+package banking.App.banking.app.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchTransactionItem {
+    @NotNull(message = "Account ID is required")
+    private Long accountId;
+
+    @NotNull(message = "Transaction type is required")
+    @Pattern(regexp = "DEPOSIT|WITHDRAW", message = "Transaction type must be DEPOSIT or WITHDRAW")
+    private String transactionType;
+
+    @NotNull(message = "Amount is required")
+    @Min(value = 0, message = "Amount must be positive")
+    private BigDecimal amount;
+}
@@ -0,0 +1,19 @@
+package banking.App.banking.app.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchTransactionRequest {
+    @NotEmpty(message = "At least one operation is required")
+    @Size(max = 10000, message = "At most 10000 operations are allowed per batch")
+    private List<@Valid BatchTransactionItem> operations;
+}
@@ -0,0 +1,28 @@
+package banking.App.banking.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchTransactionResult {
+    public static final String APPLIED = "APPLIED";
+    public static final String REJECTED = "REJECTED";
+    public static final String FAILED = "FAILED";
+
+    public static final String ACCOUNT_NOT_FOUND = "ACCOUNT_NOT_FOUND";
+    public static final String ACCOUNT_MOVING = "ACCOUNT_MOVING";
+    public static final String INSUFFICIENT_BALANCE = "INSUFFICIENT_BALANCE";
+    public static final String INVALID_AMOUNT = "INVALID_AMOUNT";
+
+    private int index;
+    private Long accountId;
+    private String status;
+    private String reason;
+    private String message;
+    private BigDecimal balance;
+}
@@ -1,5 +1,6 @@
 package banking.App.banking.app.dto;
 
+import banking.App.banking.app.util.Money;
 import lombok.*;
 
 import java.math.BigDecimal;
@@ -14,4 +15,8 @@ public class TransactionDetails {
     private BigDecimal amount;
     private String transactionType;
     private LocalDateTime timestamp;
+
+    public TransactionDetails(Long id, Money amount, String transactionType, LocalDateTime timestamp) {
+        this(id, amount.toBigDecimal(), transactionType, timestamp);
+    }
 }
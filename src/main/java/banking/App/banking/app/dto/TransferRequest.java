@@ -0,0 +1,17 @@
+package banking.App.banking.app.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class TransferRequest {
+    @NotNull(message = "Target account ID is required")
+    private Long toAccountId;
+
+    @NotNull(message = "Amount is required")
+    @Min(value = 0, message = "Amount must be positive")
+    private BigDecimal amount;
+}
@@ -30,11 +30,22 @@ public class AccountMapper {
         return new AccountDetails(
                 account.getId(),
                 account.getAccountHolderName(),
-                account.getBalance(),
+                account.getBalance().toBigDecimal(),
                 maskedAccountNumber
         );
     }
 
+    /**
+     * Masks the account number of an AccountDetails DTO read directly from the database.
+     *
+     * @param accountDetails the AccountDetails DTO with an unmasked account number
+     * @return the same AccountDetails DTO with masked account number
+     */
+    public static AccountDetails maskAccountDetails(AccountDetails accountDetails) {
+        accountDetails.setAccountNumber(maskAccountNumber(accountDetails.getAccountNumber()));
+        return accountDetails;
+    }
+
     /**
      * Masks the account number, showing only the last four digits.
      *
@@ -1,13 +1,14 @@
 package banking.App.banking.app.entity;
 
 import banking.App.banking.app.converter.AttributeEncryptor;
+import banking.App.banking.app.util.Money;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,7 +16,10 @@ import java.util.List;
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "accounts")
+@Table(name = "accounts", indexes = {
+        @Index(name = "idx_accounts_account_number_hash", columnList = "account_number_hash", unique = true),
+        @Index(name = "idx_accounts_closed_at", columnList = "closed_at")
+})
 @Entity
 public class Account {
     @Id
@@ -26,12 +30,31 @@ public class Account {
     private String accountHolderName;
 
     @Column(nullable = false)
-    private BigDecimal balance = BigDecimal.ZERO;
+    private Money balance = Money.ZERO;
 
     @Column(name = "account_number", unique = true, nullable = false)
     @Convert(converter = AttributeEncryptor.class)
     private String accountNumber;
 
-    @OneToMany(mappedBy = "account", cascade = CascadeType.ALL, orphanRemoval = true)
+    /**
+     * HMAC blind index of the account number, used for lookups and uniqueness.
+     * Nullable until existing rows have been backfilled.
+     */
+    @Column(name = "account_number_hash", length = 64)
+    @Convert(disableConversion = true)
+    private String accountNumberHash;
+
+    /**
+     * When the account was closed by a deletion request; null while it is open. Closed
+     * accounts are removed together with their transactions by the AccountPurger.
+     */
+    @Column(name = "closed_at")
+    private LocalDateTime closedAt;
+
+    /**
+     * Read-only side of the association; transactions are never cascaded from the account,
+     * so removing an account does not load them.
+     */
+    @OneToMany(mappedBy = "account")
     private List<Transaction> transactions = new ArrayList<>();
 }
@@ -0,0 +1,42 @@
+package banking.App.banking.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A cross-shard transfer whose source has been debited but whose credit has not been
+ * confirmed yet. It is written on the source shard in the debit's transaction and deleted
+ * once the target has been credited or the debit has been reversed.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "transfer_intents", indexes = {
+        @Index(name = "idx_transfer_intents_created_at", columnList = "created_at")
+})
+public class TransferIntent {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "from_account_id", nullable = false)
+    private Long fromAccountId;
+
+    @Column(name = "to_account_id", nullable = false)
+    private Long toAccountId;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
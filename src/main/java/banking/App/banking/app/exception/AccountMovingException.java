@@ -0,0 +1,7 @@
+package banking.App.banking.app.exception;
+
+public class AccountMovingException extends RuntimeException {
+    public AccountMovingException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package banking.App.banking.app.exception;
+
+public class OutcomeUnknownException extends RuntimeException {
+    public OutcomeUnknownException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,9 +1,78 @@
 package banking.App.banking.app.repository;
 
 import banking.App.banking.app.entity.Account;
+import banking.App.banking.app.dto.AccountDetails;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
-    boolean existsByAccountNumber(String accountNumber);
+    boolean existsByAccountNumberHash(String accountNumberHash);
+
+    Optional<Account> findByAccountNumberHash(String accountNumberHash);
+
+    List<Account> findByAccountNumberHashIsNull(Pageable pageable);
+
+    Optional<Account> findByIdAndClosedAtIsNull(Long id);
+
+    boolean existsByIdAndClosedAtIsNull(Long id);
+
+    /**
+     * Returns the page of accounts after the given ID as DTOs with unmasked account numbers.
+     */
+    @Query("SELECT new banking.App.banking.app.dto.AccountDetails(a.id, a.accountHolderName, a.balance, a.accountNumber) " +
+            "FROM Account a WHERE a.id > :afterId AND a.closedAt IS NULL ORDER BY a.id")
+    List<AccountDetails> findPageAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Streams all accounts as DTOs with unmasked account numbers. Must be consumed
+     * inside a transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new banking.App.banking.app.dto.AccountDetails(a.id, a.accountHolderName, a.balance, a.accountNumber) " +
+            "FROM Account a WHERE a.closedAt IS NULL ORDER BY a.id")
+    Stream<AccountDetails> streamAll();
+
+    /**
+     * Atomically adds the amount to the balance of the account.
+     *
+     * @return the number of updated rows; 0 if the account does not exist or is closed
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE accounts SET balance = balance + :amount WHERE id = :id AND closed_at IS NULL", nativeQuery = true)
+    int incrementBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Atomically subtracts the amount from the balance of the account if the balance covers it.
+     *
+     * @return the number of updated rows; 0 if the account does not exist, is closed or the balance is insufficient
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE accounts SET balance = balance - :amount WHERE id = :id AND balance >= :amount " +
+            "AND closed_at IS NULL", nativeQuery = true)
+    int decrementBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Marks the account as closed, leaving its removal to the AccountPurger.
+     *
+     * @return the number of updated rows; 0 if the account does not exist or is already closed
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE accounts SET closed_at = :closedAt WHERE id = :id AND closed_at IS NULL", nativeQuery = true)
+    int close(@Param("id") Long id, @Param("closedAt") LocalDateTime closedAt);
 
 }
@@ -1,11 +1,67 @@
 package banking.App.banking.app.repository;
 
+import banking.App.banking.app.dto.TransactionDetails;
 import banking.App.banking.app.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction,Long> {
     List<Transaction> findByAccountId(Long id);
 
+    /**
+     * Returns the first page of an account's transactions, oldest first, as DTOs.
+     */
+    @Query("SELECT new banking.App.banking.app.dto.TransactionDetails(t.id, t.amount, t.transactionType, t.timestamp) " +
+            "FROM Transaction t WHERE t.account.id = :accountId " +
+            "ORDER BY t.timestamp, t.id")
+    List<TransactionDetails> findPageByAccountId(@Param("accountId") Long accountId, Pageable pageable);
+
+    /**
+     * Returns the page of an account's transactions that follows the given (timestamp, id) keyset cursor.
+     */
+    @Query("SELECT new banking.App.banking.app.dto.TransactionDetails(t.id, t.amount, t.transactionType, t.timestamp) " +
+            "FROM Transaction t WHERE t.account.id = :accountId " +
+            "AND (t.timestamp > :timestamp OR (t.timestamp = :timestamp AND t.id > :id)) " +
+            "ORDER BY t.timestamp, t.id")
+    List<TransactionDetails> findPageByAccountIdAfter(@Param("accountId") Long accountId,
+                                                      @Param("timestamp") LocalDateTime timestamp,
+                                                      @Param("id") Long id,
+                                                      Pageable pageable);
+
+    /**
+     * Streams all of an account's transactions, oldest first, as DTOs. Must be consumed
+     * inside a transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new banking.App.banking.app.dto.TransactionDetails(t.id, t.amount, t.transactionType, t.timestamp) " +
+            "FROM Transaction t WHERE t.account.id = :accountId " +
+            "ORDER BY t.timestamp, t.id")
+    Stream<TransactionDetails> streamByAccountId(@Param("accountId") Long accountId);
+
+    /**
+     * Streams an account's transactions from the given timestamp on, oldest first, as DTOs.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new banking.App.banking.app.dto.TransactionDetails(t.id, t.amount, t.transactionType, t.timestamp) " +
+            "FROM Transaction t WHERE t.account.id = :accountId AND t.timestamp >= :from " +
+            "ORDER BY t.timestamp, t.id")
+    Stream<TransactionDetails> streamByAccountIdFrom(@Param("accountId") Long accountId,
+                                                     @Param("from") LocalDateTime from);
+
 }
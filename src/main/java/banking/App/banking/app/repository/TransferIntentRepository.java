@@ -0,0 +1,22 @@
+package banking.App.banking.app.repository;
+
+import banking.App.banking.app.entity.TransferIntent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TransferIntentRepository extends JpaRepository<TransferIntent, String> {
+
+    @Query("SELECT t FROM TransferIntent t WHERE t.createdAt < :cutoff ORDER BY t.createdAt")
+    List<TransferIntent> findCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM TransferIntent t WHERE t.id = :id")
+    int deleteIntent(@Param("id") String id);
+
+}
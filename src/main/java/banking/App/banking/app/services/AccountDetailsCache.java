@@ -0,0 +1,124 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.AccountDetails;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * An in-process, size-bounded cache of AccountDetails snapshots keyed by account ID.
+ * <p>
+ * Entries are evicted with Caffeine's W-TinyLFU policy. Writers never put values into
+ * the cache; they evict the account once their transaction completes. A miss is loaded
+ * outside the cache's locks, because a writer evicts while still holding its database
+ * connection and must not wait for a load that is itself waiting for a connection.
+ * Instead every eviction first bumps a generation counter for the account's stripe, and
+ * a loaded snapshot is only stored if the stripe's generation has not changed since the
+ * load began. A snapshot read before a write committed is therefore always discarded,
+ * and the next read loads the committed balance. The cache is per instance, so it must be disabled
+ * when several instances write to the same database. Its statistics are published
+ * as the {@code account-details} cache metrics.
+ * </p>
+ */
+@Component
+public class AccountDetailsCache implements MeterBinder {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final boolean enabled;
+    private final Cache<Long, AccountDetails> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public AccountDetailsCache(@Value("${account.cache.enabled:true}") boolean enabled,
+                               @Value("${account.cache.maximum-size:10000}") long maximumSize) {
+        this.enabled = enabled;
+        this.cache = enabled
+                ? Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .recordStats()
+                        .build()
+                : null;
+    }
+
+    /**
+     * Returns a copy of the cached snapshot of the account, loading it on a miss.
+     *
+     * @param id     the ID of the account
+     * @param loader the function that loads the account details on a cache miss
+     * @return a copy of the account details
+     */
+    public AccountDetails get(Long id, Function<Long, AccountDetails> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        AccountDetails cached = cache.getIfPresent(id);
+        if (cached == null) {
+            int stripe = stripe(id);
+            long generation = generations.get(stripe);
+            AccountDetails loaded = loader.apply(id);
+            cached = cache.asMap().compute(id, (key, current) ->
+                    current != null ? current : generations.get(stripe) == generation ? loaded : null);
+            if (cached == null) {
+                cached = loaded;
+            }
+        }
+        return new AccountDetails(cached.getId(), cached.getAccountHolderName(), cached.getBalance(), cached.getAccountNumber());
+    }
+
+    /**
+     * Evicts the account once the current transaction completes, or immediately if there
+     * is no transaction. Eviction also happens on rollback, which is harmless.
+     *
+     * @param id the ID of the account that is being modified
+     */
+    public void evictOnCompletion(Long id) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                evict(id);
+            }
+        });
+    }
+
+    private void evict(Long id) {
+        generations.incrementAndGet(stripe(id));
+        cache.invalidate(id);
+    }
+
+    private static int stripe(Long id) {
+        return Long.hashCode(id) & (GENERATION_STRIPES - 1);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(registry, cache, "account-details");
+        }
+    }
+
+    /**
+     * Returns a snapshot of the hit, miss, eviction and load time counters.
+     *
+     * @return the cache statistics, or empty statistics when caching is disabled
+     */
+    public CacheStats stats() {
+        return enabled ? cache.stats() : CacheStats.empty();
+    }
+}
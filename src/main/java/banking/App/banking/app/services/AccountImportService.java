@@ -0,0 +1,363 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.AccountImportError;
+import banking.App.banking.app.dto.AccountImportResult;
+import banking.App.banking.app.exception.AccountMovingException;
+import banking.App.banking.app.exception.EncryptionException;
+import banking.App.banking.app.util.BlindIndexUtil;
+import banking.App.banking.app.util.EncryptionUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports accounts in bulk from a CSV or newline-delimited JSON stream.
+ * <p>
+ * The import is a three-stage pipeline. The calling thread parses the input line by line
+ * and groups valid rows into chunks of {@code account-import.chunk-size}. Each chunk is
+ * handed to a pool of encryption workers, which allocate the chunk's account numbers with
+ * one allocator call and encrypt and blind-index every row in parallel. The calling thread
+ * then writes finished chunks, oldest first, with one batched JDBC insert and one commit
+ * per chunk. At most {@code account-import.max-in-flight-chunks} chunks are parsed but not
+ * yet written; when that window is full the parser waits for the oldest chunk, so it stops
+ * reading the request body and memory stays bounded regardless of the input size.
+ * </p>
+ * <p>
+ * CSV input has one record per line with the account holder name in the first column and
+ * an optional {@code accountHolderName} header; fields may be quoted but must not span
+ * lines. NDJSON input has one {@code {"accountHolderName": "..."}} object per line. Rows
+ * that cannot be parsed, or whose chunk cannot be written, are reported with their line
+ * number; the other rows are imported.
+ * </p>
+ * <p>
+ * With the {@link ShardRouter} enabled the workers also allocate the account IDs, and each
+ * chunk is written as one insert and commit per shard.
+ * </p>
+ */
+@Component
+public class AccountImportService {
+
+    /**
+     * The supported input formats.
+     */
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountImportService.class);
+    private static final String HOLDER_NAME_FIELD = "accountHolderName";
+    private static final String INSERT_ACCOUNT =
+            "INSERT INTO accounts (account_holder_name, balance, account_number, account_number_hash) VALUES (?, 0, ?, ?)";
+    private static final String INSERT_ACCOUNT_WITH_ID =
+            "INSERT INTO accounts (id, account_holder_name, balance, account_number, account_number_hash) VALUES (?, ?, 0, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EncryptionUtil encryptionUtil;
+    private final BlindIndexUtil blindIndexUtil;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final ShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxInFlightChunks;
+    private final int maxReportedErrors;
+    private final ExecutorService encryptionWorkers;
+
+    public AccountImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                EncryptionUtil encryptionUtil, BlindIndexUtil blindIndexUtil,
+                                AccountNumberAllocator accountNumberAllocator, ShardRouter shardRouter,
+                                ObjectMapper objectMapper,
+                                @Value("${account-import.chunk-size:500}") int chunkSize,
+                                @Value("${account-import.max-in-flight-chunks:8}") int maxInFlightChunks,
+                                @Value("${account-import.encryption-threads:0}") int encryptionThreads,
+                                @Value("${account-import.max-reported-errors:1000}") int maxReportedErrors) {
+        if (chunkSize < 1 || maxInFlightChunks < 1) {
+            throw new IllegalArgumentException("Import chunk size and in-flight chunk limit must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.encryptionUtil = encryptionUtil;
+        this.blindIndexUtil = blindIndexUtil;
+        this.accountNumberAllocator = accountNumberAllocator;
+        this.shardRouter = shardRouter;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxInFlightChunks = maxInFlightChunks;
+        this.maxReportedErrors = maxReportedErrors;
+
+        int threads = encryptionThreads > 0 ? encryptionThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.encryptionWorkers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "account-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        encryptionWorkers.shutdownNow();
+    }
+
+    /**
+     * Imports all accounts from the input stream.
+     *
+     * @param input  the CSV or NDJSON input, read incrementally
+     * @param format the format of the input
+     * @return an AccountImportResult with row counts, throughput and per-row errors
+     * @throws IOException if the input cannot be read
+     */
+    public AccountImportResult importAccounts(InputStream input, Format format) throws IOException {
+        long start = System.nanoTime();
+        ImportProgress progress = new ImportProgress(maxReportedErrors);
+        Deque<PendingChunk> inFlight = new ArrayDeque<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        try {
+            List<ImportRow> rows = new ArrayList<>(chunkSize);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (lineNumber == 1 && format == Format.CSV && isCsvHeader(line))) {
+                    continue;
+                }
+                progress.totalRows++;
+                try {
+                    rows.add(new ImportRow(lineNumber, parseHolderName(line, format)));
+                } catch (IllegalArgumentException e) {
+                    progress.fail(lineNumber, e.getMessage());
+                    continue;
+                }
+                if (rows.size() == chunkSize) {
+                    submit(rows, inFlight, progress);
+                    rows = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!rows.isEmpty()) {
+                submit(rows, inFlight, progress);
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.poll(), progress);
+            }
+        } finally {
+            inFlight.forEach(chunk -> chunk.encrypted.cancel(true));
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        double rowsPerSecond = progress.importedRows / Math.max(elapsedNanos / 1_000_000_000.0, 1e-9);
+        logger.info("Imported {} of {} accounts in {} ms ({} rows/sec), {} rows failed", progress.importedRows,
+                progress.totalRows, elapsedNanos / 1_000_000, Math.round(rowsPerSecond), progress.failedRows);
+        return new AccountImportResult(progress.totalRows, progress.importedRows, progress.failedRows,
+                elapsedNanos / 1_000_000, rowsPerSecond, progress.errors);
+    }
+
+    /**
+     * Hands a chunk to the encryption workers, first writing the oldest chunk if the
+     * in-flight window is full.
+     */
+    private void submit(List<ImportRow> rows, Deque<PendingChunk> inFlight, ImportProgress progress) {
+        if (inFlight.size() >= maxInFlightChunks) {
+            write(inFlight.poll(), progress);
+        }
+        inFlight.add(new PendingChunk(rows, encryptionWorkers.submit(() -> encrypt(rows))));
+    }
+
+    /**
+     * Allocates account numbers, and with sharding account IDs, for a chunk and builds its
+     * encrypted insert parameters.
+     */
+    private List<Object[]> encrypt(List<ImportRow> rows) {
+        List<String> accountNumbers = accountNumberAllocator.nextAccountNumbers(rows.size());
+        long[] ids = shardRouter.isEnabled() ? shardRouter.nextAccountIds(rows.size()) : null;
+        List<Object[]> parameters = new ArrayList<>(rows.size());
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                String accountNumber = accountNumbers.get(i);
+                String holderName = encryptionUtil.encrypt(rows.get(i).holderName());
+                String encryptedAccountNumber = encryptionUtil.encrypt(accountNumber);
+                String accountNumberHash = blindIndexUtil.compute(accountNumber);
+                parameters.add(ids == null
+                        ? new Object[]{holderName, encryptedAccountNumber, accountNumberHash}
+                        : new Object[]{ids[i], holderName, encryptedAccountNumber, accountNumberHash});
+            }
+        } catch (Exception e) {
+            throw new EncryptionException("Error encrypting imported account: " + e.getMessage(), e);
+        }
+        return parameters;
+    }
+
+    /**
+     * Waits for a chunk to be encrypted and inserts it in one transaction. A failure is
+     * reported for every row of the chunk.
+     */
+    private void write(PendingChunk chunk, ImportProgress progress) {
+        try {
+            List<Object[]> parameters = chunk.encrypted.get();
+            if (shardRouter.isEnabled()) {
+                writeToShards(chunk, parameters, progress);
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_ACCOUNT, parameters));
+            progress.importedRows += chunk.rows.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing accounts", e);
+        } catch (ExecutionException | DataAccessException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            logger.error("Failed to import accounts on lines {} to {}: {}", chunk.rows.get(0).lineNumber(),
+                    chunk.rows.get(chunk.rows.size() - 1).lineNumber(), cause.getMessage(), cause);
+            for (ImportRow row : chunk.rows) {
+                progress.fail(row.lineNumber(), "Account could not be imported");
+            }
+        }
+    }
+
+    /**
+     * Inserts the rows of an encrypted chunk on the shards their IDs map to, one
+     * transaction per shard. A failure is reported for every row of the failed shard.
+     */
+    private void writeToShards(PendingChunk chunk, List<Object[]> parameters, ImportProgress progress) {
+        List<List<Integer>> rowsByShard = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            rowsByShard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < parameters.size(); i++) {
+            long id = (Long) parameters.get(i)[0];
+            try {
+                shardRouter.awaitWritable(id);
+            } catch (AccountMovingException e) {
+                progress.fail(chunk.rows.get(i).lineNumber(), e.getMessage());
+                continue;
+            }
+            rowsByShard.get(shardRouter.shardOf(id)).add(i);
+        }
+
+        for (int shard = 0; shard < rowsByShard.size(); shard++) {
+            List<Integer> rows = rowsByShard.get(shard);
+            if (rows.isEmpty()) {
+                continue;
+            }
+            List<Object[]> shardParameters = new ArrayList<>(rows.size());
+            rows.forEach(row -> shardParameters.add(parameters.get(row)));
+            try {
+                shardRouter.onShard(shard, () -> transactionTemplate.execute(status ->
+                        jdbcTemplate.batchUpdate(INSERT_ACCOUNT_WITH_ID, shardParameters)));
+                progress.importedRows += rows.size();
+            } catch (DataAccessException e) {
+                logger.error("Failed to import {} accounts on shard {}: {}", rows.size(), shard, e.getMessage(), e);
+                for (int row : rows) {
+                    progress.fail(chunk.rows.get(row).lineNumber(), "Account could not be imported");
+                }
+            }
+        }
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return parseCsvField(line).equalsIgnoreCase(HOLDER_NAME_FIELD);
+    }
+
+    /**
+     * Extracts the account holder name from one input line.
+     *
+     * @throws IllegalArgumentException if the line is malformed or the name is missing
+     */
+    private String parseHolderName(String line, Format format) {
+        String holderName;
+        if (format == Format.CSV) {
+            holderName = parseCsvField(line);
+        } else {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON");
+            }
+            JsonNode field = node.get(HOLDER_NAME_FIELD);
+            holderName = field != null && field.isTextual() ? field.asText() : "";
+        }
+        if (holderName.isBlank()) {
+            throw new IllegalArgumentException("Account holder name is required");
+        }
+        return holderName.trim();
+    }
+
+    /**
+     * Returns the first field of a CSV record, unquoting it if necessary.
+     *
+     * @throws IllegalArgumentException if a quoted field is not terminated
+     */
+    private static String parseCsvField(String line) {
+        if (!line.startsWith("\"")) {
+            int comma = line.indexOf(',');
+            return comma < 0 ? line : line.substring(0, comma);
+        }
+        StringBuilder field = new StringBuilder();
+        for (int i = 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c != '"') {
+                field.append(c);
+            } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                field.append('"');
+                i++;
+            } else {
+                return field.toString();
+            }
+        }
+        throw new IllegalArgumentException("Unterminated quoted field");
+    }
+
+    private record ImportRow(long lineNumber, String holderName) {
+    }
+
+    private record PendingChunk(List<ImportRow> rows, Future<List<Object[]>> encrypted) {
+    }
+
+    /**
+     * Row counters and the first reported errors of one import.
+     */
+    private static final class ImportProgress {
+
+        private final int maxReportedErrors;
+        private final List<AccountImportError> errors = new ArrayList<>();
+        private long totalRows;
+        private long importedRows;
+        private long failedRows;
+
+        private ImportProgress(int maxReportedErrors) {
+            this.maxReportedErrors = maxReportedErrors;
+        }
+
+        private void fail(long lineNumber, String message) {
+            failedRows++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new AccountImportError(lineNumber, message));
+            }
+        }
+    }
+}
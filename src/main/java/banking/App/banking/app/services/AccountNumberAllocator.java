@@ -0,0 +1,142 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.util.AccountNumberPermutation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out collision-free account numbers without querying for existing ones.
+ * <p>
+ * Sequence numbers are reserved from the database in blocks of {@link #BLOCK_SIZE}
+ * through {@code account_number_seq}, then served from memory. Each sequence number
+ * is turned into an account number by {@link AccountNumberPermutation}, so only one
+ * database round-trip is needed per block rather than one or more per account.
+ * Numbers of a partially used block are skipped after a restart. A
+ * {@link ReentrantLock} rather than {@code synchronized} guards the block, so a
+ * virtual thread waiting on the block query does not pin its carrier thread.
+ * </p>
+ * <p>
+ * Allocation never retries, so instead of retry counts the allocator publishes the
+ * allocation time ({@code banking.account_number.allocation}) and the number of block
+ * reservations ({@code banking.account_number.block_reservations}).
+ * </p>
+ */
+@Component
+public class AccountNumberAllocator {
+
+    static final int BLOCK_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountNumberPermutation accountNumberPermutation;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Timer allocationTimer;
+    private final Counter blockReservations;
+
+    private long next;
+    private long blockEnd;
+
+    public AccountNumberAllocator(JdbcTemplate jdbcTemplate, AccountNumberPermutation accountNumberPermutation,
+                                  MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.accountNumberPermutation = accountNumberPermutation;
+        this.allocationTimer = Timer.builder("banking.account_number.allocation")
+                .description("Time spent allocating account numbers, including block reservations")
+                .register(meterRegistry);
+        this.blockReservations = Counter.builder("banking.account_number.block_reservations")
+                .description("Account number blocks reserved from the database sequence")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates the block sequence if it does not exist yet.
+     */
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS account_number_seq START WITH 0 MINVALUE 0 INCREMENT BY " + BLOCK_SIZE);
+    }
+
+    /**
+     * Allocates the next account number.
+     *
+     * @return a unique 12-digit account number
+     * @throws IllegalStateException if the account number space is exhausted
+     */
+    public String nextAccountNumber() {
+        long start = System.nanoTime();
+        long sequence;
+        lock.lock();
+        try {
+            sequence = nextSequence();
+        } finally {
+            lock.unlock();
+        }
+        String accountNumber = accountNumberPermutation.format(sequence);
+        allocationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return accountNumber;
+    }
+
+    /**
+     * Allocates several account numbers at once, taking the lock only once.
+     *
+     * @param count the number of account numbers to allocate
+     * @return the unique 12-digit account numbers
+     * @throws IllegalStateException if the account number space is exhausted
+     */
+    public List<String> nextAccountNumbers(int count) {
+        long start = System.nanoTime();
+        long[] sequences = new long[count];
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                sequences[i] = nextSequence();
+            }
+        } finally {
+            lock.unlock();
+        }
+        List<String> accountNumbers = new ArrayList<>(count);
+        for (long sequence : sequences) {
+            accountNumbers.add(accountNumberPermutation.format(sequence));
+        }
+        allocationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return accountNumbers;
+    }
+
+    /**
+     * Returns the next sequence number, reserving a new block when the current one is used up.
+     * Must be called with the lock held.
+     */
+    private long nextSequence() {
+        if (next == blockEnd) {
+            long blockStart = reserveBlock();
+            if (blockStart + BLOCK_SIZE > AccountNumberPermutation.DOMAIN_SIZE) {
+                throw new IllegalStateException("Account number space exhausted");
+            }
+            next = blockStart;
+            blockEnd = blockStart + BLOCK_SIZE;
+        }
+        return next++;
+    }
+
+    /**
+     * Reserves the next block of sequence numbers.
+     *
+     * @return the first sequence number of the reserved block
+     */
+    long reserveBlock() {
+        blockReservations.increment();
+        Long blockStart = jdbcTemplate.queryForObject("SELECT nextval('account_number_seq')", Long.class);
+        if (blockStart == null) {
+            throw new IllegalStateException("Failed to reserve an account number block");
+        }
+        return blockStart;
+    }
+}
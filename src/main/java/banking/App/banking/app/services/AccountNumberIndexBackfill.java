@@ -0,0 +1,73 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.entity.Account;
+import banking.App.banking.app.repository.AccountRepository;
+import banking.App.banking.app.util.BlindIndexUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Backfills the account number blind index for accounts created before the column existed.
+ * <p>
+ * Runs once at startup and processes accounts in small batches, each in its own
+ * transaction, until no account without a blind index remains. New accounts get
+ * their blind index on creation, so on an already migrated database this is a
+ * single empty query. With the {@link ShardRouter} enabled every shard is backfilled.
+ * </p>
+ */
+@Component
+public class AccountNumberIndexBackfill implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountNumberIndexBackfill.class);
+    private static final int BATCH_SIZE = 500;
+
+    private final AccountRepository accountRepository;
+    private final BlindIndexUtil blindIndexUtil;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    public AccountNumberIndexBackfill(AccountRepository accountRepository, BlindIndexUtil blindIndexUtil,
+                                      PlatformTransactionManager transactionManager, ShardRouter shardRouter) {
+        this.accountRepository = accountRepository;
+        this.blindIndexUtil = blindIndexUtil;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        shardRouter.forEachShard(shard -> {
+            int total = 0;
+            int updated;
+            do {
+                updated = transactionTemplate.execute(status -> backfillBatch());
+                total += updated;
+            } while (updated == BATCH_SIZE);
+
+            if (total > 0) {
+                logger.info("Backfilled account number blind index for {} accounts", total);
+            }
+        });
+    }
+
+    /**
+     * Computes the blind index for one batch of accounts that do not have one yet.
+     *
+     * @return the number of accounts updated
+     */
+    private int backfillBatch() {
+        List<Account> accounts = accountRepository.findByAccountNumberHashIsNull(PageRequest.of(0, BATCH_SIZE));
+        for (Account account : accounts) {
+            account.setAccountNumberHash(blindIndexUtil.compute(account.getAccountNumber()));
+        }
+        return accounts.size();
+    }
+}
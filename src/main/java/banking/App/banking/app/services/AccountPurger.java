@@ -0,0 +1,195 @@
+package banking.App.banking.app.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes closed accounts and their transactions in the background.
+ * <p>
+ * Deleting an account only sets its {@code closed_at}. Every
+ * {@code account-purge.interval} each shard's closed accounts are removed, oldest first:
+ * their transactions go in set-based {@code DELETE} statements of at most
+ * {@code account-purge.chunk-size} rows, each its own short transaction, and then the
+ * account row itself. No entities are loaded, and a purge interrupted by a restart
+ * continues where it stopped. Closed accounts no longer accept balance changes, so no
+ * transactions are added while an account is being purged.
+ * </p>
+ * <p>
+ * A run first takes the purge lease, a row in the {@code account_purge_lease} table on
+ * shard 0, so only one instance purges at a time. The lease is renewed after every
+ * account and given up at the end of the run; a lease not renewed for
+ * {@code account-purge.lease-timeout} is taken over by the next run of another instance.
+ * Purged accounts are recorded with the {@link TransactionArchive} before their row is
+ * deleted, so their archived transactions are no longer read.
+ * </p>
+ */
+@Component
+public class AccountPurger implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountPurger.class);
+    private static final int ACCOUNTS_PER_RUN = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final TransactionArchive transactionArchive;
+    private final int chunkSize;
+    private final Duration leaseTimeout;
+    private final String leaseHolder = UUID.randomUUID().toString();
+    private final AtomicLong pendingAccounts = new AtomicLong();
+    private final AtomicLong purgedAccounts = new AtomicLong();
+    private final AtomicLong purgedTransactions = new AtomicLong();
+
+    public AccountPurger(DataSource dataSource, ShardRouter shardRouter, TransactionArchive transactionArchive,
+                         @Value("${account-purge.chunk-size:5000}") int chunkSize,
+                         @Value("${account-purge.lease-timeout:5m}") Duration leaseTimeout) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("account-purge.chunk-size must be positive");
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.shardRouter = shardRouter;
+        this.transactionArchive = transactionArchive;
+        this.chunkSize = chunkSize;
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    /**
+     * Creates the purge lease if it does not exist yet.
+     */
+    @PostConstruct
+    public void start() {
+        shardRouter.onShard(0, () -> {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS account_purge_lease (id INT PRIMARY KEY, " +
+                    "holder VARCHAR(36), expires_at TIMESTAMP NOT NULL)");
+            try {
+                jdbcTemplate.update("INSERT INTO account_purge_lease (id, holder, expires_at) VALUES (1, NULL, ?)",
+                        LocalDateTime.now());
+            } catch (DuplicateKeyException e) {
+                // Created by another instance.
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Purges up to {@value #ACCOUNTS_PER_RUN} closed accounts per shard, unless another
+     * instance holds the purge lease.
+     *
+     * @return the number of accounts removed
+     */
+    @Scheduled(fixedDelayString = "${account-purge.interval:PT10S}",
+            initialDelayString = "${account-purge.interval:PT10S}")
+    public int purge() {
+        if (!renewLease()) {
+            return 0;
+        }
+        int[] purged = new int[1];
+        long[] pending = new long[1];
+        boolean[] leaseLost = new boolean[1];
+        try {
+            shardRouter.forEachShard(shard -> {
+                if (leaseLost[0]) {
+                    return;
+                }
+                List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM accounts WHERE closed_at IS NOT NULL " +
+                        "ORDER BY closed_at, id LIMIT " + ACCOUNTS_PER_RUN, Long.class);
+                for (Long id : ids) {
+                    if (!renewLease()) {
+                        logger.warn("The account purge lease was taken over by another instance after {} accounts",
+                                purged[0]);
+                        leaseLost[0] = true;
+                        return;
+                    }
+                    if (purgeAccount(id)) {
+                        purged[0]++;
+                    }
+                }
+                Long remaining = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM accounts WHERE closed_at IS NOT NULL",
+                        Long.class);
+                pending[0] += remaining == null ? 0 : remaining;
+            });
+        } finally {
+            releaseLease();
+        }
+        if (!leaseLost[0]) {
+            pendingAccounts.set(pending[0]);
+        }
+        return purged[0];
+    }
+
+    /**
+     * Takes or extends the purge lease.
+     *
+     * @return false if another instance holds it
+     */
+    private boolean renewLease() {
+        LocalDateTime now = LocalDateTime.now();
+        return shardRouter.onShard(0, () -> jdbcTemplate.update("UPDATE account_purge_lease SET holder = ?, " +
+                "expires_at = ? WHERE id = 1 AND (holder = ? OR holder IS NULL OR expires_at < ?)",
+                leaseHolder, now.plus(leaseTimeout), leaseHolder, now)) == 1;
+    }
+
+    private void releaseLease() {
+        shardRouter.onShard(0, () -> jdbcTemplate.update("UPDATE account_purge_lease SET holder = NULL " +
+                "WHERE id = 1 AND holder = ?", leaseHolder));
+    }
+
+    /**
+     * Deletes the transactions of one closed account chunk by chunk, then the account.
+     *
+     * @return false if the account could not be removed yet
+     */
+    private boolean purgeAccount(long id) {
+        long removed = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM transactions WHERE id IN (SELECT id FROM transactions " +
+                    "WHERE account_id = ? LIMIT " + chunkSize + ")", id);
+            removed += deleted;
+            purgedTransactions.addAndGet(deleted);
+        } while (deleted == chunkSize);
+
+        transactionArchive.recordPurged(id);
+        try {
+            if (jdbcTemplate.update("DELETE FROM accounts WHERE id = ? AND closed_at IS NOT NULL", id) == 0) {
+                return false;
+            }
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Closed account {} still has rows referencing it; retrying on the next run", id);
+            return false;
+        }
+        purgedAccounts.incrementAndGet();
+        logger.info("Purged closed account {} and {} transactions", id, removed);
+        return true;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.account.purge.pending", pendingAccounts, AtomicLong::get)
+                .description("Closed accounts waiting to be purged, as of the last run")
+                .register(registry);
+        FunctionCounter.builder("banking.account.purge.accounts", purgedAccounts, AtomicLong::get)
+                .description("Closed accounts purged")
+                .register(registry);
+        FunctionCounter.builder("banking.account.purge.transactions", purgedTransactions, AtomicLong::get)
+                .description("Transactions deleted while purging closed accounts")
+                .register(registry);
+    }
+}
@@ -1,10 +1,18 @@
 package banking.App.banking.app.services;
 
 import banking.App.banking.app.dto.AccountDetails;
+import banking.App.banking.app.dto.AccountPage;
+import banking.App.banking.app.dto.AccountStatement;
+import banking.App.banking.app.dto.BatchTransactionItem;
+import banking.App.banking.app.dto.BatchTransactionResult;
 import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.dto.TransactionDetails;
+import banking.App.banking.app.dto.TransactionPage;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface AccountService {
 
@@ -12,11 +20,29 @@ public interface AccountService {
 
     AccountDetails getAccountById(Long id);
 
+    AccountDetails getAccountByNumber(String accountNumber);
+
     AccountDetails deposit(Long id, BigDecimal amount);
 
+    AccountDetails deposit(Long id, BigDecimal amount, String idempotencyKey);
+
     AccountDetails withdraw(Long id, BigDecimal amount);
 
-    List<AccountDetails> getAllAccounts();
+    AccountDetails withdraw(Long id, BigDecimal amount, String idempotencyKey);
+
+    AccountDetails transfer(Long fromId, Long toId, BigDecimal amount);
+
+    List<BatchTransactionResult> processBatch(List<BatchTransactionItem> operations);
+
+    TransactionPage getTransactionHistory(Long id, String cursor, int size);
+
+    void streamTransactionHistory(Long id, Consumer<TransactionDetails> consumer);
+
+    AccountStatement getStatement(Long id, LocalDate from, LocalDate to);
+
+    AccountPage getAccounts(String cursor, int size);
+
+    void streamAccounts(Consumer<AccountDetails> consumer);
 
     void deleteAccount(Long id);
 
@@ -1,58 +1,166 @@
 package banking.App.banking.app.services;
 
+import banking.App.banking.app.config.ReplicaRoutingDataSource;
 import banking.App.banking.app.dto.AccountDetails;
+import banking.App.banking.app.dto.AccountPage;
+import banking.App.banking.app.dto.AccountStatement;
+import banking.App.banking.app.dto.BatchTransactionItem;
+import banking.App.banking.app.dto.BatchTransactionResult;
 import banking.App.banking.app.dto.mapper.AccountMapper;
 import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.dto.TransactionDetails;
+import banking.App.banking.app.dto.TransactionPage;
 import banking.App.banking.app.entity.Account;
 import banking.App.banking.app.entity.Transaction;
+import banking.App.banking.app.entity.TransferIntent;
+import banking.App.banking.app.exception.AccountMovingException;
 import banking.App.banking.app.exception.AccountNotFoundException;
-import banking.App.banking.app.exception.DuplicateAccountNumberException;
+import banking.App.banking.app.exception.EncryptionException;
+import banking.App.banking.app.exception.OutcomeUnknownException;
 import banking.App.banking.app.repository.AccountRepository;
 import banking.App.banking.app.repository.TransactionRepository;
+import banking.App.banking.app.repository.TransferIntentRepository;
+import banking.App.banking.app.util.BlindIndexUtil;
+import banking.App.banking.app.util.EncryptionUtil;
+import banking.App.banking.app.util.LongLongMap;
+import banking.App.banking.app.util.Money;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.security.SecureRandom;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import java.util.stream.Collectors;
 
 @Service
+@Timed(value = "banking.account.service", description = "Time spent in AccountService methods")
 public class AccountServiceImplementation implements AccountService {
 
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
-    private final SecureRandom secureRandom = new SecureRandom();
-    private static final int ACCOUNT_NUMBER_LENGTH = 12;
-    private static final int MAX_GENERATION_ATTEMPTS = 5;
+    private final TransferIntentRepository transferIntentRepository;
+    private final BlindIndexUtil blindIndexUtil;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final AccountDetailsCache accountDetailsCache;
+    private final IdempotencyService idempotencyService;
+    private final LedgerService ledgerService;
+    private final BalanceEngine balanceEngine;
+    private final ShardRouter shardRouter;
+    private final TransactionArchive transactionArchive;
+    private final EncryptionUtil encryptionUtil;
+    private final Duration transferRecoveryDelay;
+    private final Counter insufficientBalanceRejections;
+    private final Counter insufficientBalanceBatchRejections;
+    private static final Logger logger = LoggerFactory.getLogger(AccountServiceImplementation.class);
+    private static final int BATCH_CHUNK_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int TRANSFER_RECOVERY_BATCH_SIZE = 100;
+    private static final String INSERT_ACCOUNT =
+            "INSERT INTO accounts (id, account_holder_name, balance, account_number, account_number_hash) VALUES (?, ?, 0, ?, ?)";
 
-    public AccountServiceImplementation(AccountRepository accountRepository, TransactionRepository transactionRepository) {
+    public AccountServiceImplementation(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                                        TransferIntentRepository transferIntentRepository, BlindIndexUtil blindIndexUtil,
+                                        AccountNumberAllocator accountNumberAllocator, NamedParameterJdbcTemplate jdbcTemplate,
+                                        PlatformTransactionManager transactionManager,
+                                        AccountDetailsCache accountDetailsCache, IdempotencyService idempotencyService,
+                                        LedgerService ledgerService, BalanceEngine balanceEngine, ShardRouter shardRouter,
+                                        TransactionArchive transactionArchive, EncryptionUtil encryptionUtil,
+                                        @Value("${cross-shard-transfer.recovery-delay:1m}") Duration transferRecoveryDelay,
+                                        MeterRegistry meterRegistry) {
         this.accountRepository = accountRepository;
         this.transactionRepository = transactionRepository;
+        this.transferIntentRepository = transferIntentRepository;
+        this.blindIndexUtil = blindIndexUtil;
+        this.accountNumberAllocator = accountNumberAllocator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.accountDetailsCache = accountDetailsCache;
+        this.idempotencyService = idempotencyService;
+        this.ledgerService = ledgerService;
+        this.balanceEngine = balanceEngine;
+        this.shardRouter = shardRouter;
+        this.transactionArchive = transactionArchive;
+        this.encryptionUtil = encryptionUtil;
+        this.transferRecoveryDelay = transferRecoveryDelay;
+        this.insufficientBalanceRejections = insufficientBalanceCounter(meterRegistry, "single");
+        this.insufficientBalanceBatchRejections = insufficientBalanceCounter(meterRegistry, "batch");
     }
 
     /**
      * Creates a new account based on the provided account creation request.
+     * <p>
+     * With the {@link ShardRouter} enabled the account ID is allocated up front and the
+     * row is inserted on the shard that the ID maps to.
+     * </p>
      *
      * @param createAccountRequest the request object containing account creation details
      * @return AccountDetails containing the details of the newly created account
      */
     @Override
-    @Transactional
     public AccountDetails createAccount(CreateAccountRequest createAccountRequest) {
         Account account = new Account();
         account.setAccountHolderName(createAccountRequest.getAccountHolderName());
 
-        String accountNumber = generateUniqueAccountNumber();
+        String accountNumber = accountNumberAllocator.nextAccountNumber();
         account.setAccountNumber(accountNumber);
+        account.setAccountNumberHash(blindIndexUtil.compute(accountNumber));
 
-        Account savedAccount = accountRepository.save(account);
+        if (shardRouter.isEnabled()) {
+            account.setId(shardRouter.nextAccountId());
+            shardRouter.writeOnShardOf(account.getId(), () -> transactionTemplate.execute(status ->
+                    jdbcTemplate.getJdbcTemplate().update(INSERT_ACCOUNT, account.getId(),
+                            encrypt(account.getAccountHolderName()), encrypt(accountNumber),
+                            account.getAccountNumberHash())));
+            return AccountMapper.mapToAccountDetails(account);
+        }
+        Account savedAccount = transactionTemplate.execute(status -> accountRepository.save(account));
         return AccountMapper.mapToAccountDetails(savedAccount);
     }
 
     /**
      * Retrieves account details by account ID.
+     * <p>
+     * Served from the {@link AccountDetailsCache} when possible. Cache misses are loaded
+     * from the primary even with replica routing enabled, so the cache never holds a
+     * replica's stale row, and a hit is as fresh as a read of the primary. Inside a
+     * read-only transaction, which may already be reading from a replica, the cache is
+     * bypassed and the account is read within that transaction. With the
+     * {@link BalanceEngine} enabled the balance is read from memory.
+     * </p>
      *
      * @param id the ID of the account to retrieve
      * @return AccountDetails containing the account details
@@ -60,15 +168,51 @@ public class AccountServiceImplementation implements AccountService {
      */
     @Override
     public AccountDetails getAccountById(Long id) {
-        Account account = accountRepository
-                .findById(id)
-                .orElseThrow(() -> new AccountNotFoundException("Account with ID " + id + " does not exist"));
+        if (balanceEngine.isEnabled()) {
+            return withEngineBalance(id, balanceEngine.getBalance(id));
+        }
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return shardRouter.onShardOf(id, () -> loadAccountDetails(id));
+        }
+        return accountDetailsCache.get(id, accountId -> ReplicaRoutingDataSource.onPrimary(
+                () -> shardRouter.onShardOf(accountId, () -> loadAccountDetails(accountId))));
+    }
 
-        return AccountMapper.mapToAccountDetails(account);
+    /**
+     * Retrieves account details by account number.
+     * <p>
+     * The account is found through the blind index of the account number, so the lookup
+     * uses the unique index on {@code account_number_hash} and never compares encrypted
+     * values. With the {@link ShardRouter} enabled every shard is searched, and a copy
+     * left behind by a bucket move is ignored.
+     * </p>
+     *
+     * @param accountNumber the unmasked account number
+     * @return AccountDetails containing the account details
+     * @throws AccountNotFoundException if no open account has the given account number
+     */
+    @Override
+    public AccountDetails getAccountByNumber(String accountNumber) {
+        String accountNumberHash = blindIndexUtil.compute(accountNumber);
+        Long id = shardRouter.scatter(shard -> accountRepository.findByAccountNumberHash(accountNumberHash)
+                        .filter(account -> account.getClosedAt() == null)
+                        .filter(account -> !shardRouter.isEnabled() || shardRouter.shardOf(account.getId()) == shard)
+                        .map(Account::getId))
+                .stream()
+                .flatMap(Optional::stream)
+                .findFirst()
+                .orElseThrow(() -> new AccountNotFoundException("No account with the given account number exists"));
+        return getAccountById(id);
     }
 
     /**
      * Deposits an amount into the specified account.
+     * <p>
+     * The balance is updated with a single atomic UPDATE statement, so concurrent
+     * deposits on the same account never lose updates and no entity read is needed
+     * before the write. With the {@link BalanceEngine} enabled the deposit is applied
+     * in memory and checkpointed to the database later.
+     * </p>
      *
      * @param id     the ID of the account to deposit into
      * @param amount the amount to deposit
@@ -77,32 +221,46 @@ public class AccountServiceImplementation implements AccountService {
      * @throws AccountNotFoundException if the account with the given ID does not exist
      */
     @Override
-    @Transactional
     public AccountDetails deposit(Long id, BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        Money money = Money.of(amount);
+        if (!money.isPositive()) {
             throw new IllegalArgumentException("Deposit amount must be positive");
         }
+        if (balanceEngine.isEnabled()) {
+            return withEngineBalance(id, balanceEngine.deposit(id, money));
+        }
 
-        Account account = accountRepository
-                .findById(id)
-                .orElseThrow(() -> new AccountNotFoundException("Account with ID " + id + " does not exist"));
-
-        BigDecimal totalBalance = account.getBalance().add(amount);
-        account.setBalance(totalBalance.setScale(2, RoundingMode.HALF_UP));
-        Account savedAccount = accountRepository.save(account);
-
-        Transaction transaction = new Transaction();
-        transaction.setAccount(account);
-        transaction.setAmount(amount);
-        transaction.setTransactionType("DEPOSIT");
-
-        transactionRepository.save(transaction);
+        return shardRouter.writeOnShardOf(id, () -> transactionTemplate.execute(status -> {
+            credit(id, money);
+            recordTransaction(id, money, "DEPOSIT");
+            return loadAccountDetails(id);
+        }));
+    }
 
-        return AccountMapper.mapToAccountDetails(savedAccount);
+    /**
+     * Deposits an amount into the specified account at most once per idempotency key.
+     * A retry with the same key returns the original result without depositing again.
+     *
+     * @param id             the ID of the account to deposit into
+     * @param amount         the amount to deposit
+     * @param idempotencyKey the client-supplied idempotency key
+     * @return AccountDetails as returned by the first successful deposit with this key
+     * @throws IllegalArgumentException if the deposit amount is non-positive or the key was used for a different request
+     * @throws AccountNotFoundException if the account with the given ID does not exist
+     */
+    @Override
+    public AccountDetails deposit(Long id, BigDecimal amount, String idempotencyKey) {
+        return shardRouter.onShardOf(id, () ->
+                idempotencyService.execute(idempotencyKey, "DEPOSIT", id, amount, () -> deposit(id, amount)));
     }
 
     /**
      * Withdraws an amount from the specified account.
+     * <p>
+     * The balance check and the update happen in one conditional UPDATE statement,
+     * so concurrent withdrawals can never overdraw the account. With the
+     * {@link BalanceEngine} enabled the withdrawal is applied in memory instead.
+     * </p>
      *
      * @param id     the ID of the account to withdraw from
      * @param amount the amount to withdraw
@@ -111,49 +269,559 @@ public class AccountServiceImplementation implements AccountService {
      * @throws AccountNotFoundException if the account with the given ID does not exist
      */
     @Override
-    @Transactional
     public AccountDetails withdraw(Long id, BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        Money money = Money.of(amount);
+        if (!money.isPositive()) {
             throw new IllegalArgumentException("Withdrawal amount must be positive");
         }
+        if (balanceEngine.isEnabled()) {
+            try {
+                return withEngineBalance(id, balanceEngine.withdraw(id, money));
+            } catch (IllegalArgumentException e) {
+                insufficientBalanceRejections.increment();
+                throw e;
+            }
+        }
 
-        Account account = accountRepository
-                .findById(id)
-                .orElseThrow(() -> new AccountNotFoundException("Account with ID " + id + " does not exist"));
+        return shardRouter.writeOnShardOf(id, () -> transactionTemplate.execute(status -> {
+            debit(id, money);
+            recordTransaction(id, money, "WITHDRAW");
+            return loadAccountDetails(id);
+        }));
+    }
 
-        if (account.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Insufficient balance");
+    /**
+     * Withdraws an amount from the specified account at most once per idempotency key.
+     * A retry with the same key returns the original result without withdrawing again.
+     *
+     * @param id             the ID of the account to withdraw from
+     * @param amount         the amount to withdraw
+     * @param idempotencyKey the client-supplied idempotency key
+     * @return AccountDetails as returned by the first successful withdrawal with this key
+     * @throws IllegalArgumentException if the withdrawal amount is non-positive or exceeds the account balance,
+     *                                  or the key was used for a different request
+     * @throws AccountNotFoundException if the account with the given ID does not exist
+     */
+    @Override
+    public AccountDetails withdraw(Long id, BigDecimal amount, String idempotencyKey) {
+        return shardRouter.onShardOf(id, () ->
+                idempotencyService.execute(idempotencyKey, "WITHDRAW", id, amount, () -> withdraw(id, amount)));
+    }
+
+    /**
+     * Transfers an amount from one account to another in a single transaction.
+     * <p>
+     * Both balance updates are atomic UPDATE statements and are always issued in
+     * ascending account ID order, so concurrent transfers in opposite directions
+     * acquire row locks in the same order and cannot deadlock. If the source
+     * balance is insufficient the whole transfer is rolled back. With the
+     * {@link BalanceEngine} enabled both balances are updated in memory under their
+     * stripe locks. Accounts on different shards are handled by
+     * {@link #transferAcrossShards(Long, Long, Money)}.
+     * </p>
+     *
+     * @param fromId the ID of the account to transfer from
+     * @param toId   the ID of the account to transfer to
+     * @param amount the amount to transfer
+     * @return AccountDetails containing the updated source account details
+     * @throws IllegalArgumentException if the amount is non-positive, the accounts are the same,
+     *                                  or the source balance is insufficient
+     * @throws AccountNotFoundException if either account does not exist
+     * @throws OutcomeUnknownException  if a cross-shard transfer was debited but not yet credited
+     */
+    @Override
+    public AccountDetails transfer(Long fromId, Long toId, BigDecimal amount) {
+        Money money = Money.of(amount);
+        if (!money.isPositive()) {
+            throw new IllegalArgumentException("Transfer amount must be positive");
+        }
+        if (fromId.equals(toId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        if (balanceEngine.isEnabled()) {
+            try {
+                return withEngineBalance(fromId, balanceEngine.transfer(fromId, toId, money));
+            } catch (IllegalArgumentException e) {
+                insufficientBalanceRejections.increment();
+                throw e;
+            }
         }
 
-        BigDecimal totalBalance = account.getBalance().subtract(amount);
-        account.setBalance(totalBalance.setScale(2, RoundingMode.HALF_UP));
-        Account savedAccount = accountRepository.save(account);
+        if (shardRouter.shardOf(fromId) != shardRouter.shardOf(toId)) {
+            return transferAcrossShards(fromId, toId, money);
+        }
 
-        Transaction transaction = new Transaction();
-        transaction.setAccount(account);
-        transaction.setAmount(amount);
-        transaction.setTransactionType("WITHDRAW");
+        return shardRouter.writeOnShardOf(fromId, () -> transactionTemplate.execute(status -> {
+            if (fromId < toId) {
+                debit(fromId, money);
+                credit(toId, money);
+            } else {
+                credit(toId, money);
+                debit(fromId, money);
+            }
 
-        transactionRepository.save(transaction);
+            recordTransaction(fromId, money, "TRANSFER_OUT");
+            recordTransaction(toId, money, "TRANSFER_IN");
+            return loadAccountDetails(fromId);
+        }));
+    }
 
-        return AccountMapper.mapToAccountDetails(savedAccount);
+    /**
+     * Transfers an amount between accounts on different shards as a sequence of local
+     * transactions: the target is checked to exist, then the source is debited together with
+     * a {@link TransferIntent} in one source transaction, and the intent is completed by
+     * {@link #completeTransfer(TransferIntent)}. Unlike a same-shard transfer, the debit is
+     * visible before the credit. If the process stops between the two, or the credit fails
+     * for another reason than a missing target, the intent stays behind and
+     * {@link #recoverTransfers()} completes it later.
+     *
+     * @throws OutcomeUnknownException if the source was debited but the credit failed; the
+     *                                 transfer is then completed or reversed in the background
+     */
+    private AccountDetails transferAcrossShards(Long fromId, Long toId, Money money) {
+        if (!shardRouter.onShardOf(toId, () -> accountRepository.existsByIdAndClosedAtIsNull(toId))) {
+            throw new AccountNotFoundException("Account with ID " + toId + " does not exist");
+        }
+        TransferIntent intent = new TransferIntent(UUID.randomUUID().toString(), fromId, toId, money.toBigDecimal(),
+                LocalDateTime.now());
+        AccountDetails source = shardRouter.writeOnShardOf(fromId, () -> transactionTemplate.execute(status -> {
+            debit(fromId, money);
+            recordTransaction(fromId, money, "TRANSFER_OUT");
+            transferIntentRepository.save(intent);
+            return loadAccountDetails(fromId);
+        }));
+        try {
+            if (!completeTransfer(intent)) {
+                throw new AccountNotFoundException("Account with ID " + toId + " does not exist");
+            }
+        } catch (AccountNotFoundException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new OutcomeUnknownException("Transfer from account " + fromId + " to account " + toId
+                    + " was debited but not yet credited; it will be completed or reversed", e);
+        }
+        return source;
     }
 
     /**
-     * Retrieves all accounts in the system.
+     * Completes the cross-shard transfers whose intents are older than
+     * {@code cross-shard-transfer.recovery-delay}, on every shard. Each is credited to its
+     * target unless that already happened, or reversed if the target no longer exists.
+     * Intents older than the idempotency retention are only logged, because whether their
+     * credit was applied can no longer be told; they need manual reconciliation.
      *
-     * @return a list of AccountDetails containing details of all accounts
+     * @return the number of transfers completed or reversed
+     */
+    @Scheduled(fixedDelayString = "${cross-shard-transfer.recovery-interval:PT30S}")
+    public int recoverTransfers() {
+        if (!shardRouter.isEnabled()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expired = now.minus(idempotencyService.getRetention());
+        int[] recovered = new int[1];
+        shardRouter.forEachShard(shard -> {
+            List<TransferIntent> intents = transferIntentRepository.findCreatedBefore(now.minus(transferRecoveryDelay),
+                    PageRequest.of(0, TRANSFER_RECOVERY_BATCH_SIZE));
+            for (TransferIntent intent : intents) {
+                if (intent.getCreatedAt().isBefore(expired)) {
+                    logger.error("Cross-shard transfer {} from {} to {} is older than the idempotency retention " +
+                            "and needs manual reconciliation", intent.getId(), intent.getFromAccountId(),
+                            intent.getToAccountId());
+                    continue;
+                }
+                try {
+                    completeTransfer(intent);
+                    recovered[0]++;
+                } catch (RuntimeException e) {
+                    logger.warn("Cross-shard transfer {} could not be completed yet: {}", intent.getId(), e.getMessage());
+                }
+            }
+        });
+        if (recovered[0] > 0) {
+            logger.info("Completed {} pending cross-shard transfers", recovered[0]);
+        }
+        return recovered[0];
+    }
+
+    /**
+     * Credits the target of a cross-shard transfer and deletes its intent. The credit is
+     * stored under an idempotency key derived from the intent, so completing the same
+     * intent again never credits twice. If the target no longer exists, the source is
+     * credited back with a compensating {@code TRANSFER_IN} in the transaction that deletes
+     * the intent, unless the intent has already been completed.
+     *
+     * @return true if the target was credited, false if the transfer was reversed
+     */
+    private boolean completeTransfer(TransferIntent intent) {
+        Long fromId = intent.getFromAccountId();
+        Long toId = intent.getToAccountId();
+        Money money = Money.of(intent.getAmount());
+        try {
+            shardRouter.writeOnShardOf(toId, () -> idempotencyService.execute("transfer:" + intent.getId(),
+                    "TRANSFER_IN", toId, intent.getAmount(), () -> {
+                        credit(toId, money);
+                        recordTransaction(toId, money, "TRANSFER_IN");
+                        return loadAccountDetails(toId);
+                    }));
+        } catch (AccountNotFoundException e) {
+            logger.warn("Target {} of cross-shard transfer {} no longer exists, reversing the debit of {}",
+                    toId, intent.getId(), fromId);
+            shardRouter.writeOnShardOf(fromId, () -> transactionTemplate.execute(status -> {
+                if (transferIntentRepository.deleteIntent(intent.getId()) == 1) {
+                    credit(fromId, money);
+                    recordTransaction(fromId, money, "TRANSFER_IN");
+                }
+                return null;
+            }));
+            return false;
+        }
+        try {
+            shardRouter.writeOnShardOf(fromId, () -> transactionTemplate.execute(status ->
+                    transferIntentRepository.deleteIntent(intent.getId())));
+        } catch (RuntimeException e) {
+            logger.warn("Intent of completed cross-shard transfer {} was not deleted; recovery will delete it: {}",
+                    intent.getId(), e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Applies a batch of deposits and withdrawals across many accounts.
+     * <p>
+     * Operations are processed in chunks of {@link #BATCH_CHUNK_SIZE}, one database
+     * transaction per chunk. Within a chunk the touched accounts are locked once in
+     * ascending ID order, every operation is applied in submission order against the
+     * locked balance, and then all balances and transaction rows are written with JDBC
+     * batches. An operation that cannot be applied is rejected without affecting the
+     * others; if a chunk fails as a whole, its operations are reported as failed.
+     * With the {@link BalanceEngine} enabled the operations are applied in memory one
+     * by one and the call returns once all of them have been flushed to the log. With the
+     * {@link ShardRouter} enabled the operations are split by shard and the shards are
+     * processed in parallel.
+     * </p>
+     *
+     * @param operations the operations to apply
+     * @return one result per operation, in the same order as the operations
+     */
+    @Override
+    public List<BatchTransactionResult> processBatch(List<BatchTransactionItem> operations) {
+        if (balanceEngine.isEnabled()) {
+            return processBatchInEngine(operations);
+        }
+        BatchTransactionResult[] results = new BatchTransactionResult[operations.size()];
+        if (!shardRouter.isEnabled()) {
+            applyChunks(operations, IntStream.range(0, operations.size()).toArray(), results);
+            return List.of(results);
+        }
+
+        List<List<Integer>> indexesByShard = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            indexesByShard.add(new ArrayList<>());
+        }
+        for (int index = 0; index < operations.size(); index++) {
+            Long accountId = operations.get(index).getAccountId();
+            try {
+                shardRouter.awaitWritable(accountId);
+            } catch (AccountMovingException e) {
+                results[index] = new BatchTransactionResult(index, accountId, BatchTransactionResult.REJECTED,
+                        BatchTransactionResult.ACCOUNT_MOVING, e.getMessage(), null);
+                continue;
+            }
+            indexesByShard.get(shardRouter.shardOf(accountId)).add(index);
+        }
+        shardRouter.scatter(shard -> {
+            applyChunks(operations, indexesByShard.get(shard).stream().mapToInt(Integer::intValue).toArray(), results);
+            return null;
+        });
+        return List.of(results);
+    }
+
+    /**
+     * Retrieves one page of the transaction history of the specified account, oldest first.
+     * <p>
+     * Pages are addressed with an opaque keyset cursor on {@code (timestamp, id)}, so each
+     * page is a bounded index range scan regardless of how deep into the history it is.
+     * Pages before the {@link TransactionArchive}'s hot/cold boundary are read from the
+     * archived segments and topped up from the database.
+     * </p>
+     *
+     * @param id     the ID of the account
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size   the maximum number of transactions to return
+     * @return a TransactionPage containing the transactions and the cursor of the next page, if any
+     * @throws IllegalArgumentException if the page size is out of range or the cursor is malformed
+     * @throws AccountNotFoundException if the account with the given ID does not exist
      */
     @Override
-    public List<AccountDetails> getAllAccounts() {
-        List<Account> accounts = accountRepository.findAll();
-        return accounts.stream()
-                .map(AccountMapper::mapToAccountDetails)
+    @Transactional(readOnly = true)
+    public TransactionPage getTransactionHistory(Long id, String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<TransactionDetails> transactions = shardRouter.onShardOf(id, () -> findTransactions(id, cursor, size + 1));
+
+        String nextCursor = null;
+        if (transactions.size() > size) {
+            transactions = transactions.subList(0, size);
+            TransactionDetails last = transactions.get(size - 1);
+            nextCursor = encodeCursor(last.getTimestamp() + "," + last.getId());
+        }
+        return new TransactionPage(transactions, nextCursor);
+    }
+
+    /**
+     * Reads up to {@code limit} transactions of the account after the cursor position.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     * @throws AccountNotFoundException if the account with the given ID does not exist
+     */
+    private List<TransactionDetails> findTransactions(Long id, String cursor, int limit) {
+        if (!accountRepository.existsByIdAndClosedAtIsNull(id)) {
+            throw new AccountNotFoundException("Account with ID " + id + " does not exist");
+        }
+
+        LocalDateTime timestamp = null;
+        long transactionId = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] position = decodeCursor(cursor, 2);
+            try {
+                timestamp = LocalDateTime.parse(position[0]);
+                transactionId = Long.parseLong(position[1]);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        TransactionArchive.Snapshot archive = transactionArchive.snapshot();
+        LocalDateTime hotFrom = archive.getHotFrom();
+        if (hotFrom != null && (timestamp == null || timestamp.isBefore(hotFrom))) {
+            List<TransactionDetails> transactions = new ArrayList<>(archive.read(id, timestamp, transactionId, limit));
+            if (transactions.size() < limit) {
+                transactions.addAll(transactionRepository.findPageByAccountIdAfter(id, hotFrom, Long.MIN_VALUE,
+                        PageRequest.of(0, limit - transactions.size())));
+            }
+            return transactions;
+        }
+        PageRequest pageRequest = PageRequest.of(0, limit);
+        if (timestamp == null) {
+            return transactionRepository.findPageByAccountId(id, pageRequest);
+        }
+        return transactionRepository.findPageByAccountIdAfter(id, timestamp, transactionId, pageRequest);
+    }
+
+    /**
+     * Streams the full transaction history of the specified account, oldest first.
+     * <p>
+     * Rows are read as DTO projections with a bounded JDBC fetch size and handed to the
+     * consumer one at a time, so memory use does not grow with the length of the history.
+     * Archived transactions are streamed from their segments first.
+     * </p>
+     *
+     * @param id       the ID of the account
+     * @param consumer the consumer receiving each transaction
+     * @throws AccountNotFoundException if the account with the given ID does not exist
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamTransactionHistory(Long id, Consumer<TransactionDetails> consumer) {
+        shardRouter.onShardOf(id, () -> {
+            if (!accountRepository.existsByIdAndClosedAtIsNull(id)) {
+                throw new AccountNotFoundException("Account with ID " + id + " does not exist");
+            }
+            TransactionArchive.Snapshot archive = transactionArchive.snapshot();
+            archive.forEach(id, null, consumer);
+            try (Stream<TransactionDetails> transactions = archive.getHotFrom() == null
+                    ? transactionRepository.streamByAccountId(id)
+                    : transactionRepository.streamByAccountIdFrom(id, archive.getHotFrom())) {
+                transactions.forEach(consumer);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Computes the statement of the specified account for an inclusive date range.
+     * <p>
+     * All figures come from one aggregate query that reads the account balance and
+     * range-scans the account's transactions on the covering
+     * {@code (account_id, timestamp, ...)} index. The opening and closing balances are
+     * derived by subtracting the net movements after each boundary from the current
+     * balance, so no transactions before the range are read, but every transaction from
+     * the start of the range up to now is: the scan has no upper bound, and the cost of a
+     * statement grows with the account's activity since the range started rather than
+     * with the activity inside it. Transaction types
+     * are stored encrypted with a deterministic cipher, so the query compares them with
+     * the encrypted type names. When the range starts before the {@link TransactionArchive}'s
+     * hot/cold boundary, the archived part is summed from the segments and the query starts
+     * at the boundary.
+     * </p>
+     *
+     * @param id   the ID of the account
+     * @param from the first day of the statement
+     * @param to   the last day of the statement
+     * @return the AccountStatement for the range
+     * @throws IllegalArgumentException if the range ends before it starts
+     * @throws AccountNotFoundException if the account with the given ID does not exist
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public AccountStatement getStatement(Long id, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Statement end date must not be before its start date");
+        }
+
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        TransactionArchive.Snapshot archive = transactionArchive.snapshot();
+        ArchivedMovements archived = new ArchivedMovements();
+        if (archive.getHotFrom() != null && start.isBefore(archive.getHotFrom())) {
+            archive.forEach(id, start, transaction -> archived.add(transaction, end));
+            start = archive.getHotFrom();
+        }
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("id", id);
+        parameters.put("start", start);
+        parameters.put("end", end);
+        parameters.put("credits", List.of(encryptType("DEPOSIT"), encryptType("TRANSFER_IN")));
+        parameters.put("debits", List.of(encryptType("WITHDRAW"), encryptType("TRANSFER_OUT")));
+
+        List<AccountStatement> statements = shardRouter.onShardOf(id, () -> jdbcTemplate.query(
+                "SELECT a.balance, " +
+                "COALESCE(SUM(CASE WHEN t.transaction_type IN (:credits) THEN t.amount ELSE -t.amount END), 0) AS net_since_start, " +
+                "COALESCE(SUM(CASE WHEN t.timestamp >= :end THEN " +
+                "CASE WHEN t.transaction_type IN (:credits) THEN t.amount ELSE -t.amount END END), 0) AS net_since_end, " +
+                "COALESCE(SUM(CASE WHEN t.timestamp < :end AND t.transaction_type IN (:credits) THEN t.amount END), 0) AS deposit_total, " +
+                "COUNT(CASE WHEN t.timestamp < :end AND t.transaction_type IN (:credits) THEN 1 END) AS deposit_count, " +
+                "COALESCE(SUM(CASE WHEN t.timestamp < :end AND t.transaction_type IN (:debits) THEN t.amount END), 0) AS withdrawal_total, " +
+                "COUNT(CASE WHEN t.timestamp < :end AND t.transaction_type IN (:debits) THEN 1 END) AS withdrawal_count " +
+                "FROM accounts a LEFT JOIN transactions t ON t.account_id = a.id AND t.timestamp >= :start " +
+                "WHERE a.id = :id AND a.closed_at IS NULL GROUP BY a.id, a.balance",
+                parameters,
+                (rs, rowNum) -> {
+                    Money balance = Money.of(rs.getBigDecimal("balance"));
+                    Money netSinceStart = Money.of(rs.getBigDecimal("net_since_start")).plus(Money.ofMinor(archived.net));
+                    Money netSinceEnd = Money.of(rs.getBigDecimal("net_since_end")).plus(Money.ofMinor(archived.netAfterEnd));
+                    return new AccountStatement(id, from, to,
+                            balance.minus(netSinceStart).toBigDecimal(),
+                            balance.minus(netSinceEnd).toBigDecimal(),
+                            Money.of(rs.getBigDecimal("deposit_total")).plus(Money.ofMinor(archived.depositTotal)).toBigDecimal(),
+                            rs.getLong("deposit_count") + archived.depositCount,
+                            Money.of(rs.getBigDecimal("withdrawal_total")).plus(Money.ofMinor(archived.withdrawalTotal)).toBigDecimal(),
+                            rs.getLong("withdrawal_count") + archived.withdrawalCount);
+                }));
+
+        if (statements.isEmpty()) {
+            throw new AccountNotFoundException("Account with ID " + id + " does not exist");
+        }
+        return statements.get(0);
+    }
+
+    /**
+     * Retrieves one page of accounts ordered by ID.
+     * <p>
+     * Pages are addressed with an opaque keyset cursor on the account ID. Rows are read
+     * as DTO projections, so no managed entities are built, and account numbers are
+     * masked row by row. With the {@link ShardRouter} enabled every shard is queried in
+     * parallel for its next page and the pages are merged by ID; rows of a bucket that is
+     * being moved are taken only from the shard that currently owns the bucket.
+     * </p>
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size   the maximum number of accounts to return
+     * @return an AccountPage containing the accounts and the cursor of the next page, if any
+     * @throws IllegalArgumentException if the page size is out of range or the cursor is malformed
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public AccountPage getAccounts(String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        long afterId = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                afterId = Long.parseLong(decodeCursor(cursor, 1)[0]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        long after = afterId;
+        List<List<AccountDetails>> shardPages = shardRouter.scatter(shard ->
+                accountRepository.findPageAfterId(after, PageRequest.of(0, size + 1)));
+
+        // A shard with a full page may hold further rows below other shards' rows, so the
+        // merged page must end at the lowest last ID of the full shard pages.
+        long lastId = Long.MAX_VALUE;
+        boolean more = false;
+        List<AccountDetails> accounts = new ArrayList<>();
+        for (int shard = 0; shard < shardPages.size(); shard++) {
+            List<AccountDetails> shardPage = shardPages.get(shard);
+            if (shardPage.size() > size) {
+                more = true;
+                lastId = Math.min(lastId, shardPage.get(size).getId());
+            }
+            for (AccountDetails account : shardPage) {
+                if (shardRouter.shardOf(account.getId()) == shard) {
+                    accounts.add(account);
+                }
+            }
+        }
+        long end = lastId;
+        accounts = accounts.stream()
+                .filter(account -> account.getId() <= end)
+                .sorted(Comparator.comparing(AccountDetails::getId))
+                .limit(size + 1)
+                .map(AccountMapper::maskAccountDetails)
                 .collect(Collectors.toList());
+
+        if (accounts.size() > size) {
+            accounts = accounts.subList(0, size);
+            more = true;
+        }
+        String nextCursor = null;
+        if (more) {
+            nextCursor = encodeCursor(String.valueOf(accounts.isEmpty() ? lastId : accounts.get(accounts.size() - 1).getId()));
+        }
+        return new AccountPage(accounts, nextCursor);
+    }
+
+    /**
+     * Streams all accounts ordered by ID.
+     * <p>
+     * Rows are read through a read-only DTO projection with a bounded JDBC fetch size;
+     * each row is decrypted and masked only as it is handed to the consumer, so memory
+     * use does not grow with the number of accounts. With the {@link ShardRouter} enabled
+     * the shards are read page by page and merged by ID, holding at most one page per
+     * shard in memory.
+     * </p>
+     *
+     * @param consumer the consumer receiving each account
+     */
+    @Override
+    public void streamAccounts(Consumer<AccountDetails> consumer) {
+        if (shardRouter.isEnabled()) {
+            streamAccountsAcrossShards(consumer);
+            return;
+        }
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<AccountDetails> accounts = accountRepository.streamAll()) {
+                accounts.map(AccountMapper::maskAccountDetails).forEach(consumer);
+            }
+        });
     }
 
     /**
      * Deletes the specified account.
+     * <p>
+     * The account is only marked as closed, which hides it from reads and rejects further
+     * mutations; the {@link AccountPurger} removes it and its transactions in the
+     * background. With the {@link BalanceEngine} enabled, the account is removed from the
+     * engine and its pending mutations are checkpointed once the closing commits.
+     * </p>
      *
      * @param id the ID of the account to delete
      * @throws AccountNotFoundException if the account with the given ID does not exist
@@ -161,48 +829,396 @@ public class AccountServiceImplementation implements AccountService {
     @Override
     @Transactional
     public void deleteAccount(Long id) {
-        if (!accountRepository.existsById(id)) {
-            throw new AccountNotFoundException("Account with ID " + id + " does not exist");
+        shardRouter.writeOnShardOf(id, () -> {
+            if (accountRepository.close(id, LocalDateTime.now()) == 0) {
+                throw new AccountNotFoundException("Account with ID " + id + " does not exist");
+            }
+            return null;
+        });
+        if (balanceEngine.isEnabled()) {
+            balanceEngine.removeOnCommit(id);
         }
-        accountRepository.deleteById(id);
+        accountDetailsCache.evictOnCompletion(id);
     }
 
     /**
-     * Generates a unique account number.
+     * Streams all accounts of all shards ordered by ID, merging one page per shard at a time.
      *
-     * @return a unique 12-digit account number
-     * @throws DuplicateAccountNumberException if a unique account number cannot be generated after the maximum number of attempts
+     * @param consumer the consumer receiving each account
      */
-    private String generateUniqueAccountNumber() {
-        for (int attempt = 0; attempt < MAX_GENERATION_ATTEMPTS; attempt++) {
-            String accountNumber = generateAccountNumber();
-            if (isAccountNumberUnique(accountNumber)) {
-                return accountNumber;
+    private void streamAccountsAcrossShards(Consumer<AccountDetails> consumer) {
+        PriorityQueue<ShardCursor> cursors = new PriorityQueue<>(Comparator.comparing(cursor -> cursor.buffer.peek().getId()));
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            ShardCursor cursor = new ShardCursor(shard);
+            if (cursor.fill()) {
+                cursors.add(cursor);
+            }
+        }
+        while (!cursors.isEmpty()) {
+            ShardCursor cursor = cursors.poll();
+            AccountDetails account = cursor.buffer.poll();
+            if (shardRouter.shardOf(account.getId()) == cursor.shard) {
+                consumer.accept(AccountMapper.maskAccountDetails(account));
+            }
+            if (!cursor.buffer.isEmpty() || cursor.fill()) {
+                cursors.add(cursor);
             }
         }
-        throw new DuplicateAccountNumberException("Failed to generate a unique account number after " + MAX_GENERATION_ATTEMPTS + " attempts");
     }
 
     /**
-     * Generates a random 12-digit account number using SecureRandom.
+     * Applies the operations of a batch through the balance engine.
+     *
+     * @param operations the operations to apply
+     * @return one result per operation, in the same order as the operations
+     */
+    private List<BatchTransactionResult> processBatchInEngine(List<BatchTransactionItem> operations) {
+        List<BatchTransactionResult> results = new ArrayList<>(operations.size());
+        for (int index = 0; index < operations.size(); index++) {
+            BatchTransactionItem operation = operations.get(index);
+            Long accountId = operation.getAccountId();
+            boolean deposit = "DEPOSIT".equals(operation.getTransactionType());
+            Money amount;
+            try {
+                amount = Money.of(operation.getAmount());
+            } catch (IllegalArgumentException e) {
+                results.add(new BatchTransactionResult(index, accountId, BatchTransactionResult.REJECTED,
+                        BatchTransactionResult.INVALID_AMOUNT, e.getMessage(), null));
+                continue;
+            }
+            if (!amount.isPositive()) {
+                results.add(new BatchTransactionResult(index, accountId, BatchTransactionResult.REJECTED,
+                        BatchTransactionResult.INVALID_AMOUNT, "Amount must be positive", null));
+                continue;
+            }
+            try {
+                Money balance = balanceEngine.applyUnsynced(accountId, deposit, amount);
+                results.add(new BatchTransactionResult(index, accountId, BatchTransactionResult.APPLIED, null, null,
+                        balance.toBigDecimal()));
+            } catch (AccountNotFoundException e) {
+                results.add(new BatchTransactionResult(index, accountId, BatchTransactionResult.REJECTED,
+                        BatchTransactionResult.ACCOUNT_NOT_FOUND, e.getMessage(), null));
+            } catch (IllegalArgumentException e) {
+                insufficientBalanceBatchRejections.increment();
+                results.add(new BatchTransactionResult(index, accountId, BatchTransactionResult.REJECTED,
+                        BatchTransactionResult.INSUFFICIENT_BALANCE, e.getMessage(), null));
+            }
+        }
+        balanceEngine.sync();
+        return results;
+    }
+
+    /**
+     * Applies the given operations in chunks of {@link #BATCH_CHUNK_SIZE}, one transaction
+     * per chunk, reporting every operation of a failed chunk as failed.
+     *
+     * @param operations the operations of the batch
+     * @param indexes    the indexes of the operations to apply, in submission order
+     * @param results    the results array to fill in
+     */
+    private void applyChunks(List<BatchTransactionItem> operations, int[] indexes, BatchTransactionResult[] results) {
+        for (int start = 0; start < indexes.length; start += BATCH_CHUNK_SIZE) {
+            int from = start;
+            int to = Math.min(start + BATCH_CHUNK_SIZE, indexes.length);
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyChunk(operations, indexes, from, to, results));
+            } catch (RuntimeException e) {
+                logger.error("Failed to apply batch operations {} to {}: {}", indexes[from], indexes[to - 1],
+                        e.getMessage(), e);
+                for (int position = from; position < to; position++) {
+                    int index = indexes[position];
+                    results[index] = new BatchTransactionResult(index, operations.get(index).getAccountId(),
+                            BatchTransactionResult.FAILED, null, "Batch chunk could not be applied", null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the operations at {@code indexes[from]} to {@code indexes[to - 1]} within the
+     * current transaction.
+     *
+     * @param operations the operations of the batch
+     * @param indexes    the indexes of the operations to apply, in submission order
+     * @param from       the position in {@code indexes} of the first operation of the chunk
+     * @param to         the position in {@code indexes} after the last operation of the chunk
+     * @param results    the results array to fill in
+     */
+    private void applyChunk(List<BatchTransactionItem> operations, int[] indexes, int from, int to,
+                            BatchTransactionResult[] results) {
+        Map<Long, List<Integer>> operationsByAccount = new TreeMap<>();
+        Money[] amounts = new Money[to - from];
+        for (int position = from; position < to; position++) {
+            int index = indexes[position];
+            BatchTransactionItem operation = operations.get(index);
+            Money amount;
+            try {
+                amount = Money.of(operation.getAmount());
+            } catch (IllegalArgumentException e) {
+                results[index] = new BatchTransactionResult(index, operation.getAccountId(),
+                        BatchTransactionResult.REJECTED, BatchTransactionResult.INVALID_AMOUNT, e.getMessage(), null);
+                continue;
+            }
+            if (!amount.isPositive()) {
+                results[index] = new BatchTransactionResult(index, operation.getAccountId(),
+                        BatchTransactionResult.REJECTED, BatchTransactionResult.INVALID_AMOUNT,
+                        "Amount must be positive", null);
+                continue;
+            }
+            amounts[position - from] = amount;
+            operationsByAccount.computeIfAbsent(operation.getAccountId(), id -> new ArrayList<>()).add(position);
+        }
+        if (operationsByAccount.isEmpty()) {
+            return;
+        }
+
+        LongLongMap balances = new LongLongMap(operationsByAccount.size());
+        jdbcTemplate.query("SELECT id, balance FROM accounts WHERE id IN (:ids) AND closed_at IS NULL ORDER BY id FOR UPDATE",
+                Map.of("ids", operationsByAccount.keySet()),
+                rs -> {
+                    balances.put(rs.getLong("id"), Money.of(rs.getBigDecimal("balance")).getMinorUnits());
+                });
+
+        List<Object[]> balanceUpdates = new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>();
+        for (Map.Entry<Long, List<Integer>> entry : operationsByAccount.entrySet()) {
+            Long accountId = entry.getKey();
+            if (!balances.containsKey(accountId)) {
+                for (int position : entry.getValue()) {
+                    int index = indexes[position];
+                    results[index] = new BatchTransactionResult(index, accountId, BatchTransactionResult.REJECTED,
+                            BatchTransactionResult.ACCOUNT_NOT_FOUND,
+                            "Account with ID " + accountId + " does not exist", null);
+                }
+                continue;
+            }
+
+            long originalBalance = balances.get(accountId, 0);
+            long balance = originalBalance;
+            for (int position : entry.getValue()) {
+                int index = indexes[position];
+                BatchTransactionItem operation = operations.get(index);
+                Money amount = amounts[position - from];
+                boolean deposit = "DEPOSIT".equals(operation.getTransactionType());
+                if (!deposit && balance < amount.getMinorUnits()) {
+                    insufficientBalanceBatchRejections.increment();
+                    results[index] = new BatchTransactionResult(index, accountId, BatchTransactionResult.REJECTED,
+                            BatchTransactionResult.INSUFFICIENT_BALANCE, "Insufficient balance",
+                            BigDecimal.valueOf(balance, Money.SCALE));
+                    continue;
+                }
+                balance = deposit
+                        ? Math.addExact(balance, amount.getMinorUnits())
+                        : balance - amount.getMinorUnits();
+                results[index] = new BatchTransactionResult(index, accountId, BatchTransactionResult.APPLIED, null, null,
+                        BigDecimal.valueOf(balance, Money.SCALE));
+
+                Transaction transaction = new Transaction();
+                transaction.setAccount(accountRepository.getReferenceById(accountId));
+                transaction.setAmount(amount);
+                transaction.setTransactionType(operation.getTransactionType());
+                transactions.add(transaction);
+                ledgerService.record(accountId, operation.getTransactionType(), amount);
+            }
+            if (balance != originalBalance) {
+                balanceUpdates.add(new Object[]{BigDecimal.valueOf(balance, Money.SCALE), accountId});
+                accountDetailsCache.evictOnCompletion(accountId);
+            }
+        }
+
+        jdbcTemplate.getJdbcTemplate().batchUpdate("UPDATE accounts SET balance = ? WHERE id = ?", balanceUpdates);
+        transactionRepository.saveAll(transactions);
+    }
+
+    /**
+     * Loads account details from the database, bypassing the cache. Write paths use this
+     * so that uncommitted balances are never placed in the cache.
+     *
+     * @param id the ID of the account to load
+     * @return AccountDetails containing the account details
+     * @throws AccountNotFoundException if the account with the given ID does not exist
+     */
+    private AccountDetails loadAccountDetails(Long id) {
+        Account account = accountRepository
+                .findByIdAndClosedAtIsNull(id)
+                .orElseThrow(() -> new AccountNotFoundException("Account with ID " + id + " does not exist"));
+
+        return AccountMapper.mapToAccountDetails(account);
+    }
+
+    /**
+     * Returns the cached account details with the balance replaced by the engine's balance.
+     */
+    private AccountDetails withEngineBalance(Long id, Money balance) {
+        AccountDetails accountDetails = accountDetailsCache.get(id, this::loadAccountDetails);
+        return new AccountDetails(accountDetails.getId(), accountDetails.getAccountHolderName(), balance,
+                accountDetails.getAccountNumber());
+    }
+
+    /**
+     * Returns the stored, encrypted form of an account field.
+     */
+    private String encrypt(String value) {
+        try {
+            return encryptionUtil.encrypt(value);
+        } catch (Exception e) {
+            throw new EncryptionException("Error encrypting account: " + e.getMessage(), e);
+        }
+    }
+
+    private static Counter insufficientBalanceCounter(MeterRegistry meterRegistry, String path) {
+        return Counter.builder("banking.balance.insufficient")
+                .description("Debits rejected because the balance did not cover them")
+                .tag("path", path)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the stored, encrypted form of a transaction type.
+     */
+    private String encryptType(String transactionType) {
+        try {
+            return encryptionUtil.encrypt(transactionType);
+        } catch (Exception e) {
+            throw new EncryptionException("Error encrypting transaction type: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Encodes a keyset position as an opaque, URL-safe cursor.
+     */
+    private static String encodeCursor(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor into the given number of comma-separated position parts.
      *
-     * @return a 12-digit account number as a String
+     * @throws IllegalArgumentException if the cursor is malformed
      */
-    private String generateAccountNumber() {
-        StringBuilder accountNumber = new StringBuilder();
-        for (int i = 0; i < ACCOUNT_NUMBER_LENGTH; i++) {
-            accountNumber.append(secureRandom.nextInt(10));
+    private static String[] decodeCursor(String cursor, int parts) {
+        String[] position;
+        try {
+            position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
         }
-        return accountNumber.toString();
+        if (position.length != parts) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return position;
     }
 
     /**
-     * Checks if the generated account number is unique.
+     * Atomically adds the amount to the balance of the specified account.
      *
-     * @param accountNumber the account number to check
-     * @return true if unique, false otherwise
+     * @param id     the ID of the account
+     * @param amount the amount to add
+     * @throws AccountNotFoundException if the account with the given ID does not exist
      */
-    private boolean isAccountNumberUnique(String accountNumber) {
-        return !accountRepository.existsByAccountNumber(accountNumber);
+    private void credit(Long id, Money amount) {
+        if (accountRepository.incrementBalance(id, amount.toBigDecimal()) == 0) {
+            throw new AccountNotFoundException("Account with ID " + id + " does not exist");
+        }
+        accountDetailsCache.evictOnCompletion(id);
+    }
+
+    /**
+     * Atomically subtracts the amount from the balance of the specified account.
+     *
+     * @param id     the ID of the account
+     * @param amount the amount to subtract
+     * @throws IllegalArgumentException if the account balance is insufficient
+     * @throws AccountNotFoundException if the account with the given ID does not exist
+     */
+    private void debit(Long id, Money amount) {
+        if (accountRepository.decrementBalance(id, amount.toBigDecimal()) == 0) {
+            if (!accountRepository.existsByIdAndClosedAtIsNull(id)) {
+                throw new AccountNotFoundException("Account with ID " + id + " does not exist");
+            }
+            insufficientBalanceRejections.increment();
+            throw new IllegalArgumentException("Insufficient balance");
+        }
+        accountDetailsCache.evictOnCompletion(id);
+    }
+
+    /**
+     * Records a transaction for the specified account without loading the account.
+     *
+     * @param accountId       the ID of the account
+     * @param amount          the transaction amount
+     * @param transactionType the transaction type
+     */
+    private void recordTransaction(Long accountId, Money amount, String transactionType) {
+        Transaction transaction = new Transaction();
+        transaction.setAccount(accountRepository.getReferenceById(accountId));
+        transaction.setAmount(amount);
+        transaction.setTransactionType(transactionType);
+
+        transactionRepository.save(transaction);
+        ledgerService.record(accountId, transactionType, amount);
+    }
+
+    /**
+     * Sums of archived transactions for a statement, in minor units.
+     */
+    private static final class ArchivedMovements {
+        private long net;
+        private long netAfterEnd;
+        private long depositTotal;
+        private long depositCount;
+        private long withdrawalTotal;
+        private long withdrawalCount;
+
+        private void add(TransactionDetails transaction, LocalDateTime end) {
+            long amount = Money.of(transaction.getAmount()).getMinorUnits();
+            boolean credit = "DEPOSIT".equals(transaction.getTransactionType())
+                    || "TRANSFER_IN".equals(transaction.getTransactionType());
+            long signed = credit ? amount : -amount;
+            net += signed;
+            if (!transaction.getTimestamp().isBefore(end)) {
+                netAfterEnd += signed;
+            } else if (credit) {
+                depositTotal += amount;
+                depositCount++;
+            } else {
+                withdrawalTotal += amount;
+                withdrawalCount++;
+            }
+        }
+    }
+
+    /**
+     * The read position of one shard while streaming accounts across shards.
+     */
+    private final class ShardCursor {
+        private final int shard;
+        private final ArrayDeque<AccountDetails> buffer = new ArrayDeque<>();
+        private long afterId;
+        private boolean exhausted;
+
+        private ShardCursor(int shard) {
+            this.shard = shard;
+        }
+
+        /**
+         * Reads the shard's next page into the empty buffer.
+         *
+         * @return false if the shard has no more accounts
+         */
+        private boolean fill() {
+            if (exhausted) {
+                return false;
+            }
+            List<AccountDetails> page = shardRouter.onShard(shard, () ->
+                    accountRepository.findPageAfterId(afterId, PageRequest.of(0, MAX_PAGE_SIZE)));
+            exhausted = page.size() < MAX_PAGE_SIZE;
+            if (page.isEmpty()) {
+                return false;
+            }
+            afterId = page.get(page.size() - 1).getId();
+            buffer.addAll(page);
+            return true;
+        }
     }
 }
@@ -0,0 +1,897 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.exception.AccountNotFoundException;
+import banking.App.banking.app.exception.EncryptionException;
+import banking.App.banking.app.exception.OutcomeUnknownException;
+import banking.App.banking.app.util.EncryptionUtil;
+import banking.App.banking.app.util.LedgerFile;
+import banking.App.banking.app.util.LongLongMap;
+import banking.App.banking.app.util.Money;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Optional in-memory balance engine for deposits, withdrawals and transfers.
+ * <p>
+ * Balances are held as minor units in {@link LongLongMap}s split across lock stripes by
+ * account ID; an account is loaded from the database the first time it is touched. A
+ * mutation locks its stripe (both stripes, in index order, for a transfer), checks and
+ * updates the balance and appends a record to the current log segment, so every mutation
+ * is logged in one global sequence. A flusher thread writes and fsyncs the segment every
+ * {@code balance-engine.flush-interval}; with {@code balance-engine.await-flush} a caller
+ * returns only after its record is on disk, so many mutations share one fsync. The flusher
+ * holds the log lock only to detach the buffered records; the write and fsync run under a
+ * separate flush lock, so mutations keep appending while the disk catches up. If the log
+ * cannot be written, the records stay buffered and are retried, and callers waiting for
+ * them get an {@link OutcomeUnknownException}: the mutation has been applied in memory
+ * (and is reverted again if the surrounding transaction rolls back), and its records
+ * become durable if a retry succeeds.
+ * </p>
+ * <p>
+ * A segment is sealed once it holds {@code balance-engine.max-segment-records} records and
+ * at every {@code balance-engine.checkpoint-interval}. Each sealed segment is read back
+ * from disk and checkpointed to the database in one transaction: net balance deltas are applied with a
+ * batched {@code UPDATE accounts SET balance = balance + ?}, transaction rows are inserted
+ * with a JDBC batch and the segment number is recorded in {@code balance_engine_checkpoints}. The segment
+ * file is deleted afterwards. A mutation reverted by a rollback is followed by a cancellation
+ * record; both count towards the balance deltas, but neither becomes a transaction row or a
+ * ledger entry, and a segment is not checkpointed while a transaction that logged into it is
+ * still open. On startup, segments left by a shutdown or a crash are
+ * checkpointed before the engine serves requests; the recorded segment numbers make this
+ * idempotent.
+ * </p>
+ * <p>
+ * Between checkpoints the {@code accounts} and {@code transactions} tables lag behind the
+ * engine, so only one instance may run with the engine enabled, and listings, statements
+ * and transaction history reflect the last checkpoint.
+ * </p>
+ */
+@Component
+public class BalanceEngine implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceEngine.class);
+    private static final String INSERT_TRANSACTION =
+            "INSERT INTO transactions (id, account_id, amount, transaction_type, timestamp) VALUES (?, ?, ?, ?, ?)";
+    private static final Pattern SEGMENT_FILE = Pattern.compile("balance-engine-(\\d+)\\.log");
+    /**
+     * Flag set on the type code of a record that cancels a rolled-back mutation.
+     */
+    private static final byte CANCELLATION = 0x40;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EncryptionUtil encryptionUtil;
+    private final LedgerService ledgerService;
+    private final TransactionIdSequence transactionIdSequence;
+    private final boolean enabled;
+    private final Path logDirectory;
+    private final boolean awaitFlush;
+    private final Duration flushInterval;
+    private final Duration checkpointInterval;
+    private final long maxSegmentRecords;
+    private final Stripe[] stripes;
+    private final String[] encryptedTypeNames = new String[LedgerFile.TRANSFER_OUT + 1];
+
+    private final ReentrantLock logLock = new ReentrantLock();
+    private final Condition flushedCondition = logLock.newCondition();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private final Deque<Segment> sealedSegments = new ConcurrentLinkedDeque<>();
+    private final AtomicLong checkpoints = new AtomicLong();
+    private final AtomicLong checkpointedRecords = new AtomicLong();
+    private final NavigableSet<Long> openPositions = new ConcurrentSkipListSet<>();
+    private final Map<LogRecord, Integer> cancelledRecords = new ConcurrentHashMap<>();
+
+    private LedgerFile segmentFile;
+    private long segmentNumber;
+    private SealingSegment sealing;
+    private long appended;
+    private long flushed;
+    private IOException flushFailure;
+    private ScheduledExecutorService scheduler;
+
+    public BalanceEngine(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                         EncryptionUtil encryptionUtil, LedgerService ledgerService,
+                         TransactionIdSequence transactionIdSequence,
+                         @Value("${balance-engine.enabled:false}") boolean enabled,
+                         @Value("${balance-engine.stripes:64}") int stripeCount,
+                         @Value("${balance-engine.log-directory:data/balance-engine}") Path logDirectory,
+                         @Value("${balance-engine.await-flush:true}") boolean awaitFlush,
+                         @Value("${balance-engine.flush-interval:2ms}") Duration flushInterval,
+                         @Value("${balance-engine.checkpoint-interval:1s}") Duration checkpointInterval,
+                         @Value("${balance-engine.max-segment-records:100000}") long maxSegmentRecords) {
+        if (Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Balance engine stripe count must be a power of two");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.encryptionUtil = encryptionUtil;
+        this.ledgerService = ledgerService;
+        this.transactionIdSequence = transactionIdSequence;
+        this.enabled = enabled;
+        this.logDirectory = logDirectory;
+        this.awaitFlush = awaitFlush;
+        this.flushInterval = flushInterval;
+        this.checkpointInterval = checkpointInterval;
+        this.maxSegmentRecords = maxSegmentRecords;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Checkpoints segments left by a previous run, opens a new segment and starts the
+     * flusher and checkpointer.
+     *
+     * @throws IOException if the log directory cannot be read or the segment cannot be opened
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS balance_engine_checkpoints " +
+                "(segment BIGINT PRIMARY KEY, created_at TIMESTAMP NOT NULL)");
+        Files.createDirectories(logDirectory);
+        for (byte type = LedgerFile.DEPOSIT; type <= LedgerFile.TRANSFER_OUT; type++) {
+            try {
+                encryptedTypeNames[type] = encryptionUtil.encrypt(typeName(type));
+            } catch (Exception e) {
+                throw new EncryptionException("Error encrypting transaction type: " + e.getMessage(), e);
+            }
+        }
+
+        long lastSegment = recover();
+        Long lastCheckpoint = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(segment), 0) FROM balance_engine_checkpoints", Long.class);
+        segmentNumber = Math.max(lastSegment, lastCheckpoint == null ? 0 : lastCheckpoint) + 1;
+        segmentFile = LedgerFile.open(segmentPath(segmentNumber), (accountId, type, amountMinor, timestampMicros) -> {
+        });
+
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "balance-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushInterval.toNanos(), flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+        scheduler.scheduleWithFixedDelay(this::checkpointQuietly, checkpointInterval.toNanos(),
+                checkpointInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the background threads and flushes the current segment. Segments that have not
+     * been checkpointed yet stay on disk and are checkpointed by the next startup, so
+     * shutdown does not wait for the database to catch up.
+     */
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        flushLock.lock();
+        try {
+            flushSegment();
+            segmentFile.close();
+            if (segmentFile.getRecordCount() == 0) {
+                Files.deleteIfExists(segmentPath(segmentNumber));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether deposits, withdrawals and balance reads go through the engine.
+     *
+     * @return true if the engine is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the current balance of the account.
+     *
+     * @param accountId the ID of the account
+     * @return the balance
+     * @throws AccountNotFoundException if the account does not exist
+     */
+    public Money getBalance(long accountId) {
+        Stripe stripe = load(accountId);
+        stripe.lock.lock();
+        try {
+            return Money.ofMinor(requireBalance(stripe, accountId));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the amount to the balance of the account.
+     *
+     * @param accountId the ID of the account
+     * @param amount    the positive amount to deposit
+     * @return the new balance
+     * @throws AccountNotFoundException if the account does not exist
+     */
+    public Money deposit(long accountId, Money amount) {
+        return apply(accountId, true, amount, awaitFlush);
+    }
+
+    /**
+     * Subtracts the amount from the balance of the account if the balance covers it.
+     *
+     * @param accountId the ID of the account
+     * @param amount    the positive amount to withdraw
+     * @return the new balance
+     * @throws IllegalArgumentException if the balance is insufficient
+     * @throws AccountNotFoundException if the account does not exist
+     */
+    public Money withdraw(long accountId, Money amount) {
+        return apply(accountId, false, amount, awaitFlush);
+    }
+
+    /**
+     * Applies a deposit or withdrawal without waiting for it to be flushed. Callers applying
+     * many operations call {@link #sync()} once afterwards.
+     *
+     * @param accountId the ID of the account
+     * @param credit    true for a deposit, false for a withdrawal
+     * @param amount    the positive amount
+     * @return the new balance
+     * @throws IllegalArgumentException if a withdrawal exceeds the balance
+     * @throws AccountNotFoundException if the account does not exist
+     */
+    public Money applyUnsynced(long accountId, boolean credit, Money amount) {
+        return apply(accountId, credit, amount, false);
+    }
+
+    /**
+     * Blocks until every mutation logged so far has been flushed, if flushes are awaited.
+     *
+     * @throws OutcomeUnknownException if the log could not be flushed
+     */
+    public void sync() {
+        if (!awaitFlush) {
+            return;
+        }
+        long position;
+        logLock.lock();
+        try {
+            position = appended;
+        } finally {
+            logLock.unlock();
+        }
+        awaitFlush(position);
+    }
+
+    /**
+     * Moves the amount from one account to another atomically.
+     *
+     * @param fromId the ID of the account to transfer from
+     * @param toId   the ID of the account to transfer to
+     * @param amount the positive amount to transfer
+     * @return the new balance of the source account
+     * @throws IllegalArgumentException if the source balance is insufficient
+     * @throws AccountNotFoundException if either account does not exist
+     */
+    public Money transfer(long fromId, long toId, Money amount) {
+        Stripe from = load(fromId);
+        Stripe to = load(toId);
+        Stripe first = stripeIndex(fromId) <= stripeIndex(toId) ? from : to;
+        Stripe second = first == from ? to : from;
+        long balance;
+        long outPosition;
+        long inPosition;
+        long timestampMicros;
+        first.lock.lock();
+        second.lock.lock();
+        try {
+            long toBalance = Math.addExact(requireBalance(to, toId), amount.getMinorUnits());
+            balance = requireBalance(from, fromId) - amount.getMinorUnits();
+            if (balance < 0) {
+                throw new IllegalArgumentException("Insufficient balance");
+            }
+            timestampMicros = nowMicros();
+            outPosition = log(fromId, LedgerFile.TRANSFER_OUT, amount.getMinorUnits(), timestampMicros);
+            inPosition = log(toId, LedgerFile.TRANSFER_IN, amount.getMinorUnits(), timestampMicros);
+            from.balances.put(fromId, balance);
+            to.balances.put(toId, toBalance);
+        } finally {
+            second.lock.unlock();
+            first.lock.unlock();
+        }
+        cancelOnRollback(new LogRecord(fromId, LedgerFile.TRANSFER_OUT, amount.getMinorUnits(), timestampMicros), outPosition);
+        cancelOnRollback(new LogRecord(toId, LedgerFile.TRANSFER_IN, amount.getMinorUnits(), timestampMicros), inPosition);
+        if (awaitFlush) {
+            awaitFlush(inPosition);
+        }
+        return Money.ofMinor(balance);
+    }
+
+    /**
+     * Removes the account from the engine and checkpoints its logged mutations, so that
+     * the account row can be deleted. Account IDs are never reused, so the account is
+     * remembered as removed and later mutations of it are rejected.
+     *
+     * @param accountId the ID of the account
+     */
+    public void remove(long accountId) {
+        Stripe stripe = stripes[stripeIndex(accountId)];
+        stripe.lock.lock();
+        try {
+            stripe.balances.remove(accountId);
+            stripe.removed.put(accountId, 1);
+        } finally {
+            stripe.lock.unlock();
+        }
+        checkpoint();
+    }
+
+    /**
+     * Removes the account from the engine once the current transaction commits, or
+     * immediately if there is no transaction, so that a rolled-back deletion leaves the
+     * account usable. A failed checkpoint is logged; the scheduled checkpoint retries it.
+     *
+     * @param accountId the ID of the account
+     */
+    public void removeOnCommit(long accountId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remove(accountId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    remove(accountId);
+                } catch (RuntimeException e) {
+                    logger.error("Checkpoint after removing account {} failed; it will be retried", accountId, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Seals the current log segment and writes every sealed segment to the database.
+     * Segments that fail to be written stay queued and are retried by the next checkpoint,
+     * and so does a segment holding records of transactions that have not completed yet.
+     */
+    public void checkpoint() {
+        checkpointLock.lock();
+        try {
+            flushLock.lock();
+            try {
+                sealSegment();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to seal balance engine log segment", e);
+            } finally {
+                flushLock.unlock();
+            }
+
+            while (!sealedSegments.isEmpty()) {
+                Segment segment = sealedSegments.peek();
+                Long oldestOpen = openPositions.ceiling(0L);
+                if (oldestOpen != null && oldestOpen <= segment.position()) {
+                    break;
+                }
+                writeCheckpoint(segment.number());
+                Files.deleteIfExists(segmentPath(segment.number()));
+                sealedSegments.poll();
+                checkpoints.incrementAndGet();
+                checkpointedRecords.addAndGet(segment.records());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read or delete balance engine log segment", e);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("banking.balance_engine.pending", this, BalanceEngine::getPendingCount)
+                .description("Mutations logged but not yet checkpointed to the database")
+                .register(registry);
+        FunctionCounter.builder("banking.balance_engine.checkpoints", checkpoints, AtomicLong::get)
+                .description("Log segments checkpointed to the database")
+                .register(registry);
+    }
+
+    private long getPendingCount() {
+        logLock.lock();
+        try {
+            return appended - checkpointedRecords.get();
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    /**
+     * Applies a deposit or withdrawal under the account's stripe lock and logs it.
+     */
+    private Money apply(long accountId, boolean credit, Money amount, boolean await) {
+        Stripe stripe = load(accountId);
+        byte type = credit ? LedgerFile.DEPOSIT : LedgerFile.WITHDRAW;
+        long balance;
+        long position;
+        long timestampMicros;
+        stripe.lock.lock();
+        try {
+            balance = requireBalance(stripe, accountId);
+            if (credit) {
+                balance = Math.addExact(balance, amount.getMinorUnits());
+            } else if (balance < amount.getMinorUnits()) {
+                throw new IllegalArgumentException("Insufficient balance");
+            } else {
+                balance -= amount.getMinorUnits();
+            }
+            timestampMicros = nowMicros();
+            position = log(accountId, type, amount.getMinorUnits(), timestampMicros);
+            stripe.balances.put(accountId, balance);
+        } finally {
+            stripe.lock.unlock();
+        }
+        cancelOnRollback(new LogRecord(accountId, type, amount.getMinorUnits(), timestampMicros), position);
+        if (await) {
+            awaitFlush(position);
+        }
+        return Money.ofMinor(balance);
+    }
+
+    /**
+     * Returns the stripe of the account after loading its balance from the database if needed.
+     */
+    private Stripe load(long accountId) {
+        Stripe stripe = stripes[stripeIndex(accountId)];
+        stripe.lock.lock();
+        try {
+            if (stripe.balances.containsKey(accountId)) {
+                return stripe;
+            }
+            if (stripe.removed.containsKey(accountId)) {
+                throw new AccountNotFoundException("Account with ID " + accountId + " does not exist");
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        List<BigDecimal> balances = jdbcTemplate.queryForList("SELECT balance FROM accounts WHERE id = ? AND closed_at IS NULL",
+                BigDecimal.class, accountId);
+        if (balances.isEmpty()) {
+            throw new AccountNotFoundException("Account with ID " + accountId + " does not exist");
+        }
+        long balance = Money.of(balances.get(0)).getMinorUnits();
+        stripe.lock.lock();
+        try {
+            if (!stripe.balances.containsKey(accountId) && !stripe.removed.containsKey(accountId)) {
+                stripe.balances.put(accountId, balance);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return stripe;
+    }
+
+    private static long requireBalance(Stripe stripe, long accountId) {
+        if (!stripe.balances.containsKey(accountId)) {
+            throw new AccountNotFoundException("Account with ID " + accountId + " does not exist");
+        }
+        return stripe.balances.get(accountId, 0);
+    }
+
+    private int stripeIndex(long accountId) {
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (stripes.length - 1);
+    }
+
+    /**
+     * Appends a record to the current segment. Called with the account's stripe locked. If a
+     * transaction is active, the record stays open until the transaction completes, which
+     * holds back the checkpoint of its segment.
+     *
+     * @return the position of the record in the global log sequence
+     */
+    private long log(long accountId, byte type, long amountMinor, long timestampMicros) {
+        logLock.lock();
+        try {
+            segmentFile.append(accountId, type, amountMinor, timestampMicros);
+            appended++;
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                openPositions.add(appended);
+            }
+            return appended;
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private static long nowMicros() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+
+    /**
+     * Blocks until the record at the given position has been flushed.
+     *
+     * @throws OutcomeUnknownException if the log could not be flushed; the record stays
+     *                                 buffered and is written if a later flush succeeds
+     */
+    private void awaitFlush(long position) {
+        logLock.lock();
+        try {
+            while (flushed < position) {
+                if (flushFailure != null) {
+                    throw new OutcomeUnknownException("The operation was applied but could not be made durable yet; "
+                            + "check the account before retrying it", flushFailure);
+                }
+                flushedCondition.awaitUninterruptibly();
+            }
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private void flush() {
+        flushLock.lock();
+        try {
+            flushSegment();
+            if (segmentFile.getRecordCount() >= maxSegmentRecords) {
+                sealSegment();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to flush balance engine log", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the current segment, if it holds any records, switches appends to the next
+     * segment and queues the sealed one for the next checkpoint once its remaining records
+     * are on disk. Called with the flush lock held.
+     */
+    private void sealSegment() throws IOException {
+        flushSegment();
+        if (segmentFile.getRecordCount() == 0) {
+            return;
+        }
+        LedgerFile next = LedgerFile.open(segmentPath(segmentNumber + 1), (accountId, type, amountMinor, timestampMicros) -> {
+        });
+        logLock.lock();
+        try {
+            sealing = new SealingSegment(segmentFile, segmentNumber, appended);
+            segmentFile = next;
+            segmentNumber++;
+        } finally {
+            logLock.unlock();
+        }
+        finishSeal();
+    }
+
+    /**
+     * Writes the records appended to the segment being sealed after its last flush, closes it
+     * and queues it for checkpointing. Called with the flush lock held.
+     */
+    private void finishSeal() throws IOException {
+        if (sealing == null) {
+            return;
+        }
+        LedgerFile file = sealing.file();
+        try {
+            file.flush(true);
+        } catch (IOException e) {
+            publishFailure(e);
+            throw e;
+        }
+        file.close();
+        sealedSegments.add(new Segment(sealing.number(), file.getRecordCount(), sealing.position()));
+        publishFlushed(sealing.position());
+        sealing = null;
+    }
+
+    /**
+     * Writes and syncs the buffered records of the current segment. The log lock is held only
+     * while the records are detached from the append buffer. Called with the flush lock held.
+     */
+    private void flushSegment() throws IOException {
+        finishSeal();
+        LedgerFile file;
+        long position;
+        logLock.lock();
+        try {
+            if (flushed == appended) {
+                return;
+            }
+            file = segmentFile;
+            position = appended;
+            file.detach();
+        } finally {
+            logLock.unlock();
+        }
+        try {
+            file.writeDetached(true);
+        } catch (IOException e) {
+            publishFailure(e);
+            throw e;
+        }
+        publishFlushed(position);
+    }
+
+    private void publishFlushed(long position) {
+        logLock.lock();
+        try {
+            flushed = Math.max(flushed, position);
+            flushFailure = null;
+            flushedCondition.signalAll();
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private void publishFailure(IOException failure) {
+        logLock.lock();
+        try {
+            flushFailure = failure;
+            flushedCondition.signalAll();
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    /**
+     * Reverts an engine mutation if the surrounding database transaction rolls back, e.g.
+     * because an idempotency record could not be stored. The revert is logged as a copy of
+     * the original record with the {@link #CANCELLATION} flag set, which skips the balance
+     * check; the checkpoint applies both to the balance but writes neither to the
+     * transaction history or the ledger. The original record stays open until this runs,
+     * so its segment is not checkpointed before the cancellation is known.
+     */
+    private void cancelOnRollback(LogRecord original, long position) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_ROLLED_BACK) {
+                        cancel(original);
+                    }
+                } finally {
+                    openPositions.remove(position);
+                }
+            }
+        });
+    }
+
+    private void cancel(LogRecord original) {
+        long accountId = original.accountId();
+        Stripe stripe = load(accountId);
+        stripe.lock.lock();
+        try {
+            long delta = isCredit(original.type()) ? -original.amountMinor() : original.amountMinor();
+            stripe.balances.put(accountId, requireBalance(stripe, accountId) + delta);
+            log(accountId, (byte) (original.type() | CANCELLATION), original.amountMinor(), original.timestampMicros());
+            cancelledRecords.merge(original, 1, Integer::sum);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Applies log segments left by a previous run to the database and deletes them.
+     *
+     * @return the highest segment number found, or 0 if there were none
+     */
+    private long recover() throws IOException {
+        List<Long> segments;
+        try (Stream<Path> files = Files.list(logDirectory)) {
+            segments = files
+                    .map(path -> SEGMENT_FILE.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+        // A cancellation can be logged in a later segment than the record it cancels.
+        for (long segment : segments) {
+            LedgerFile.open(segmentPath(segment), (accountId, type, amountMinor, timestampMicros) -> {
+                if ((type & CANCELLATION) != 0) {
+                    cancelledRecords.merge(new LogRecord(accountId, (byte) (type & ~CANCELLATION), amountMinor,
+                            timestampMicros), 1, Integer::sum);
+                }
+            }).close();
+        }
+        for (long segment : segments) {
+            int records = writeCheckpoint(segment);
+            Files.delete(segmentPath(segment));
+            logger.info("Recovered {} balance engine mutations from log segment {}", records, segment);
+        }
+        return segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+    }
+
+    /**
+     * Reads one segment file and writes its records to the database in a single
+     * transaction, unless the segment has already been checkpointed. Transaction IDs are
+     * taken from {@code transactions_seq} in blocks of the allocation size of the
+     * Transaction mapping, the same way Hibernate's pooled optimizer takes them, so the
+     * rows never collide with entities saved through JPA. Cancelled records and their
+     * cancellations count towards the balances but are not written as transactions or to
+     * the ledger.
+     *
+     * @return the number of records in the segment
+     */
+    private int writeCheckpoint(long segment) throws IOException {
+        LongLongMap deltas = new LongLongMap(1024);
+        List<LogRecord> logged = new ArrayList<>();
+        LedgerFile file = LedgerFile.open(segmentPath(segment), (accountId, type, amountMinor, timestampMicros) -> {
+            byte originalType = (byte) (type & ~CANCELLATION);
+            long delta = isCredit(originalType) ? amountMinor : -amountMinor;
+            if (originalType == type) {
+                deltas.addTo(accountId, delta);
+                logged.add(new LogRecord(accountId, type, amountMinor, timestampMicros));
+            } else {
+                deltas.addTo(accountId, -delta);
+            }
+        });
+        int recordCount = (int) file.getRecordCount();
+        file.close();
+
+        List<LogRecord> cancelled = new ArrayList<>();
+        List<LogRecord> records = new ArrayList<>(logged.size());
+        for (LogRecord record : logged) {
+            int cancelledBefore = cancelled.size();
+            cancelledRecords.computeIfPresent(record, (key, count) -> {
+                cancelled.add(key);
+                return count > 1 ? count - 1 : null;
+            });
+            if (cancelled.size() == cancelledBefore) {
+                records.add(record);
+            }
+        }
+
+        List<Object[]> balanceUpdates = new ArrayList<>(deltas.size());
+        deltas.forEach((accountId, delta) -> {
+            if (delta != 0) {
+                balanceUpdates.add(new Object[]{BigDecimal.valueOf(delta, Money.SCALE), accountId});
+            }
+        });
+
+        try {
+            insertCheckpoint(segment, balanceUpdates, records);
+        } catch (RuntimeException e) {
+            cancelled.forEach(record -> cancelledRecords.merge(record, 1, Integer::sum));
+            throw e;
+        }
+        return recordCount;
+    }
+
+    private void insertCheckpoint(long segment, List<Object[]> balanceUpdates, List<LogRecord> records) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Integer done = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM balance_engine_checkpoints WHERE segment = ?", Integer.class, segment);
+            if (done != null && done > 0) {
+                return;
+            }
+            jdbcTemplate.batchUpdate("UPDATE accounts SET balance = balance + ? WHERE id = ?", balanceUpdates);
+
+            List<Object[]> rows = new ArrayList<>(records.size());
+            int idBlock = transactionIdSequence.getAllocationSize();
+            long nextId = 0;
+            long lastId = -1;
+            for (LogRecord record : records) {
+                if (nextId > lastId) {
+                    lastId = jdbcTemplate.queryForObject("SELECT nextval('transactions_seq')", Long.class);
+                    nextId = Math.max(1, lastId - idBlock + 1);
+                }
+                rows.add(new Object[]{nextId++, record.accountId(), BigDecimal.valueOf(record.amountMinor(), Money.SCALE),
+                        encryptedTypeNames[record.type()], LocalDateTime.ofInstant(
+                                Instant.EPOCH.plus(record.timestampMicros(), ChronoUnit.MICROS), ZoneId.systemDefault())});
+                ledgerService.record(record.accountId(), typeName(record.type()), Money.ofMinor(record.amountMinor()));
+            }
+            jdbcTemplate.batchUpdate(INSERT_TRANSACTION, rows);
+            jdbcTemplate.update("INSERT INTO balance_engine_checkpoints (segment, created_at) VALUES (?, ?)",
+                    segment, LocalDateTime.now());
+        });
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (RuntimeException e) {
+            logger.error("Balance engine checkpoint failed; it will be retried", e);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return logDirectory.resolve("balance-engine-" + segment + ".log");
+    }
+
+    private static boolean isCredit(byte type) {
+        return type == LedgerFile.DEPOSIT || type == LedgerFile.TRANSFER_IN;
+    }
+
+    private static String typeName(byte type) {
+        return switch (type) {
+            case LedgerFile.DEPOSIT -> "DEPOSIT";
+            case LedgerFile.WITHDRAW -> "WITHDRAW";
+            case LedgerFile.TRANSFER_IN -> "TRANSFER_IN";
+            case LedgerFile.TRANSFER_OUT -> "TRANSFER_OUT";
+            default -> throw new IllegalStateException("Unknown balance engine record type " + type);
+        };
+    }
+
+    /**
+     * One lock stripe: the balances of the accounts that hash to it and the lock guarding them.
+     */
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongLongMap balances = new LongLongMap(256);
+        private final LongLongMap removed = new LongLongMap(16);
+    }
+
+    private record LogRecord(long accountId, byte type, long amountMinor, long timestampMicros) {
+    }
+
+    /**
+     * A sealed segment; {@code position} is the log position of its last record.
+     */
+    private record Segment(long number, long records, long position) {
+    }
+
+    /**
+     * A segment that appends have moved away from but whose last records may not be on disk
+     * yet; {@code position} is the log position of its last record.
+     */
+    private record SealingSegment(LedgerFile file, long number, long position) {
+    }
+}
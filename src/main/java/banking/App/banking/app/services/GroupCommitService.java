@@ -0,0 +1,326 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.AccountDetails;
+import banking.App.banking.app.dto.BatchTransactionItem;
+import banking.App.banking.app.dto.BatchTransactionResult;
+import banking.App.banking.app.exception.AccountMovingException;
+import banking.App.banking.app.exception.AccountNotFoundException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional group-commit path for deposits and withdrawals.
+ * <p>
+ * Callers enqueue their mutation and block on a future. A single committer thread
+ * drains the queue into micro-batches of up to {@code group-commit.max-batch-size}
+ * operations, waiting at most {@code group-commit.max-wait} for a batch to fill, and
+ * applies each batch through {@link AccountService#processBatch} with one commit. A
+ * future is completed only after its batch has committed, so acknowledgements remain
+ * durable while many operations share one fsync.
+ * </p>
+ * <p>
+ * Callers enqueue under a shared lock and {@link #stop()} clears the running flag under
+ * the exclusive one, so once the flag is cleared no operation can enter the queue and
+ * the committer drains every operation that did. Operations still queued when the
+ * committer fails to stop in time are failed rather than left waiting.
+ * </p>
+ */
+@Component
+public class GroupCommitService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitService.class);
+
+    private final AccountService accountService;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingOperation> queue;
+    private final ReadWriteLock submitLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong operations = new AtomicLong();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private Thread committer;
+    private volatile boolean running;
+
+    public GroupCommitService(AccountService accountService,
+                              @Value("${group-commit.enabled:false}") boolean enabled,
+                              @Value("${group-commit.max-batch-size:256}") int maxBatchSize,
+                              @Value("${group-commit.max-wait:2ms}") Duration maxWait,
+                              @Value("${group-commit.queue-capacity:10000}") int queueCapacity) {
+        if (maxBatchSize < 1 || maxBatchSize > 500) {
+            throw new IllegalArgumentException("Group commit batch size must be between 1 and 500");
+        }
+        this.accountService = accountService;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Starts the committer thread if group commit is enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        committer = new Thread(this::run, "group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Stops the committer thread after it has applied the operations already queued.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (committer == null) {
+            return;
+        }
+        submitLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            submitLock.writeLock().unlock();
+        }
+        committer.interrupt();
+        committer.join(TimeUnit.SECONDS.toMillis(10));
+        if (committer.isAlive()) {
+            logger.warn("Group commit did not stop in time; {} queued operations are failed", queue.size());
+        }
+        List<PendingOperation> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        IllegalStateException stopped = new IllegalStateException("Group commit stopped before the operation was applied");
+        for (PendingOperation pending : leftover) {
+            pending.future().completeExceptionally(stopped);
+        }
+    }
+
+    /**
+     * Returns whether deposits and withdrawals should go through group commit.
+     *
+     * @return true if group commit is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Deposits an amount into the specified account as part of the next group commit.
+     *
+     * @param id     the ID of the account to deposit into
+     * @param amount the amount to deposit
+     * @return AccountDetails with the balance right after this deposit
+     * @throws IllegalArgumentException if the deposit amount is non-positive
+     * @throws AccountNotFoundException if the account with the given ID does not exist
+     */
+    public AccountDetails deposit(Long id, BigDecimal amount) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Deposit amount must be positive");
+        }
+        return submit(new BatchTransactionItem(id, "DEPOSIT", amount));
+    }
+
+    /**
+     * Withdraws an amount from the specified account as part of the next group commit.
+     *
+     * @param id     the ID of the account to withdraw from
+     * @param amount the amount to withdraw
+     * @return AccountDetails with the balance right after this withdrawal
+     * @throws IllegalArgumentException if the withdrawal amount is non-positive or exceeds the account balance
+     * @throws AccountNotFoundException if the account with the given ID does not exist
+     */
+    public AccountDetails withdraw(Long id, BigDecimal amount) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Withdrawal amount must be positive");
+        }
+        return submit(new BatchTransactionItem(id, "WITHDRAW", amount));
+    }
+
+    /**
+     * Returns the number of operations waiting for the next batch.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of batches committed so far.
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Returns the number of operations committed so far.
+     */
+    public long getOperationCount() {
+        return operations.get();
+    }
+
+    /**
+     * Returns the size of the most recent batch.
+     */
+    public long getLastBatchSize() {
+        return lastBatchSize.get();
+    }
+
+    /**
+     * Returns the total time operations spent queued before their batch was applied.
+     */
+    public Duration getTotalWaitTime() {
+        return Duration.ofNanos(totalWaitNanos.get());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.group_commit.queue.depth", this, GroupCommitService::getQueueDepth)
+                .description("Operations waiting for the next group commit")
+                .register(registry);
+        Gauge.builder("banking.group_commit.batch.last_size", this, GroupCommitService::getLastBatchSize)
+                .description("Size of the most recent group commit batch")
+                .register(registry);
+        FunctionCounter.builder("banking.group_commit.batches", this, GroupCommitService::getBatchCount)
+                .description("Group commit batches applied")
+                .register(registry);
+        FunctionTimer.builder("banking.group_commit.queue.wait", this, GroupCommitService::getOperationCount,
+                        service -> service.totalWaitNanos.get(), TimeUnit.NANOSECONDS)
+                .description("Time operations spent queued before their batch was applied")
+                .register(registry);
+    }
+
+    private AccountDetails submit(BatchTransactionItem item) {
+        PendingOperation pending = new PendingOperation(item, System.nanoTime(), new CompletableFuture<>());
+        submitLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Group commit is not running");
+            }
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing operation", e);
+        } finally {
+            submitLock.readLock().unlock();
+        }
+
+        BatchTransactionResult result;
+        try {
+            result = pending.future().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+
+        if (BatchTransactionResult.REJECTED.equals(result.getStatus())) {
+            throw rejection(result);
+        }
+        if (!BatchTransactionResult.APPLIED.equals(result.getStatus())) {
+            throw new IllegalStateException("Operation could not be committed: " + result.getMessage());
+        }
+
+        AccountDetails accountDetails = accountService.getAccountById(item.getAccountId());
+        accountDetails.setBalance(result.getBalance());
+        return accountDetails;
+    }
+
+    /**
+     * Maps a rejected result to the exception the direct deposit or withdrawal path would
+     * have thrown.
+     */
+    private static RuntimeException rejection(BatchTransactionResult result) {
+        String reason = result.getReason() == null ? "" : result.getReason();
+        return switch (reason) {
+            case BatchTransactionResult.ACCOUNT_NOT_FOUND -> new AccountNotFoundException(result.getMessage());
+            case BatchTransactionResult.ACCOUNT_MOVING -> new AccountMovingException(result.getMessage());
+            case BatchTransactionResult.INSUFFICIENT_BALANCE, BatchTransactionResult.INVALID_AMOUNT ->
+                    new IllegalArgumentException(result.getMessage());
+            default -> new IllegalStateException("Operation was rejected: " + result.getMessage());
+        };
+    }
+
+    private void run() {
+        List<PendingOperation> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOperation first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingOperation next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                if (running) {
+                    continue;
+                }
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingOperation> batch) {
+        long started = System.nanoTime();
+        List<BatchTransactionItem> items = new ArrayList<>(batch.size());
+        for (PendingOperation pending : batch) {
+            items.add(pending.item());
+            totalWaitNanos.addAndGet(started - pending.enqueuedAt());
+        }
+
+        try {
+            List<BatchTransactionResult> results = accountService.processBatch(items);
+            batches.incrementAndGet();
+            operations.addAndGet(batch.size());
+            lastBatchSize.set(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Group commit of {} operations failed: {}", batch.size(), e.getMessage(), e);
+            for (PendingOperation pending : batch) {
+                pending.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    private record PendingOperation(BatchTransactionItem item, long enqueuedAt,
+                                    CompletableFuture<BatchTransactionResult> future) {
+    }
+}
@@ -0,0 +1,143 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.AccountDetails;
+import banking.App.banking.app.entity.IdempotencyRecord;
+import banking.App.banking.app.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates client retries of balance mutations by their {@code Idempotency-Key}.
+ * <p>
+ * The first request with a key runs its write and stores the resulting AccountDetails
+ * in the {@code idempotency_keys} table in the same transaction; the record is always
+ * inserted, so the primary key on the idempotency key guarantees that only one of several
+ * attempts commits. An attempt that misses the in-memory index, because of a restart,
+ * another instance or a concurrent first attempt, fails on the key, rolls back its write
+ * and returns the stored result. Completed results are also kept in a bounded in-memory index, so a retry is normally
+ * answered without touching the database. Records older than the retention period are
+ * removed in the background.
+ * </p>
+ * <p>
+ * With the {@link ShardRouter} enabled, callers run {@link #execute} on the shard of the
+ * account, so a record is stored next to the balance it protects and moves with it.
+ * Uniqueness of a key is then enforced per shard; reuse of a key for another account is
+ * still rejected whenever the earlier record is found.
+ * </p>
+ */
+@Component
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final Duration retention;
+    private final Cache<String, IdempotencyRecord> completed;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              PlatformTransactionManager transactionManager, ShardRouter shardRouter,
+                              @Value("${idempotency.retention:24h}") Duration retention,
+                              @Value("${idempotency.cache.maximum-size:100000}") long maximumSize) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.retention = retention;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    /**
+     * Runs the operation once per idempotency key and returns its original result on retries.
+     *
+     * @param idempotencyKey the client-supplied idempotency key
+     * @param operation      the operation name, e.g. DEPOSIT
+     * @param accountId      the ID of the account the operation applies to
+     * @param amount         the operation amount
+     * @param action         the write to perform; it joins the transaction started here
+     * @return the AccountDetails produced by the first successful execution
+     * @throws IllegalArgumentException if the key is invalid or was used for a different request
+     */
+    public AccountDetails execute(String idempotencyKey, String operation, Long accountId, BigDecimal amount,
+                                  Supplier<AccountDetails> action) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        IdempotencyRecord known = completed.getIfPresent(idempotencyKey);
+        if (known != null) {
+            return replay(known, operation, accountId, amount);
+        }
+
+        try {
+            IdempotencyRecord record = transactionTemplate.execute(status -> {
+                AccountDetails result = action.get();
+                return idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(idempotencyKey, operation,
+                        accountId, amount, result.getBalance(), result.getAccountHolderName(),
+                        result.getAccountNumber(), LocalDateTime.now()));
+            });
+            completed.put(idempotencyKey, record);
+            return toAccountDetails(record);
+        } catch (DataIntegrityViolationException e) {
+            IdempotencyRecord existing = idempotencyRecordRepository.findById(idempotencyKey).orElseThrow(() -> e);
+            completed.put(idempotencyKey, existing);
+            return replay(existing, operation, accountId, amount);
+        }
+    }
+
+    /**
+     * Deletes idempotency records that are older than the retention period, on every shard.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval:PT10M}")
+    public void removeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        shardRouter.forEachShard(shard -> {
+            Integer removed = transactionTemplate.execute(status ->
+                    idempotencyRecordRepository.deleteCreatedBefore(cutoff));
+            if (removed != null && removed > 0) {
+                logger.info("Removed {} expired idempotency keys", removed);
+            }
+        });
+    }
+
+    /**
+     * Returns how long idempotency records are kept.
+     */
+    public Duration getRetention() {
+        return retention;
+    }
+
+    /**
+     * Returns the stored result of a previous execution after checking that the retry matches it.
+     */
+    private AccountDetails replay(IdempotencyRecord record, String operation, Long accountId, BigDecimal amount) {
+        if (!record.getOperation().equals(operation)
+                || !record.getAccountId().equals(accountId)
+                || record.getAmount().compareTo(amount) != 0) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different request");
+        }
+        return toAccountDetails(record);
+    }
+
+    private static AccountDetails toAccountDetails(IdempotencyRecord record) {
+        return new AccountDetails(record.getAccountId(), record.getAccountHolderName(), record.getBalance(),
+                record.getAccountNumber());
+    }
+}
@@ -0,0 +1,250 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.util.LedgerFile;
+import banking.App.banking.app.util.LongLongMap;
+import banking.App.banking.app.util.Money;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Mirrors committed balance movements into an append-only {@link LedgerFile} and keeps
+ * the resulting balances in memory.
+ * <p>
+ * At startup the ledger file is replayed to rebuild every balance, which reads the file
+ * sequentially through a memory mapping instead of scanning the transactions table. A new,
+ * empty ledger is seeded with one opening-balance record per account. Movements are
+ * appended after their database transaction commits, so rolled-back work never reaches the
+ * file. The append lock is held only to buffer a transaction's records and detach the
+ * buffer; the write and fsync run under a separate write lock, and a writer that finds its
+ * records already written by another writer's fsync returns without syncing again. A crash between the commit and the append loses
+ * that record; the scheduled reconciliation compares the ledger with {@code accounts.balance}
+ * in one ordered scan and reports such differences.
+ * </p>
+ * <p>
+ * The ledger is a local file, so it is disabled by default and only valid for a single
+ * instance writing to the database.
+ * </p>
+ */
+@Component
+public class LedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerService.class);
+    private static final int MAX_REPORTED_MISMATCHES = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Path path;
+    private final boolean sync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final LongLongMap balances = new LongLongMap(1024);
+    private LedgerFile ledgerFile;
+    private long appended;
+    private long written;
+
+    public LedgerService(JdbcTemplate jdbcTemplate,
+                         @Value("${ledger.enabled:false}") boolean enabled,
+                         @Value("${ledger.path:data/ledger.bin}") Path path,
+                         @Value("${ledger.sync:true}") boolean sync) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.path = path;
+        this.sync = sync;
+    }
+
+    /**
+     * Replays the ledger file into memory, seeding it from the accounts table when it is empty.
+     *
+     * @throws IOException if the ledger file cannot be opened or written
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        ledgerFile = LedgerFile.open(path, this::apply);
+        if (ledgerFile.getRecordCount() == 0) {
+            long timestamp = nowMicros();
+            jdbcTemplate.query("SELECT id, balance FROM accounts ORDER BY id", rs -> {
+                long accountId = rs.getLong(1);
+                long balance = Money.of(rs.getBigDecimal(2)).getMinorUnits();
+                ledgerFile.append(accountId, LedgerFile.OPENING_BALANCE, balance, timestamp);
+                balances.put(accountId, balance);
+            });
+            ledgerFile.flush(true);
+        }
+        logger.info("Loaded ledger {} with {} records for {} accounts in {} ms", path, ledgerFile.getRecordCount(),
+                balances.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (ledgerFile != null) {
+            ledgerFile.close();
+        }
+    }
+
+    /**
+     * Records a balance movement. Inside a transaction the movement is appended once the
+     * transaction commits; without one it is appended immediately.
+     *
+     * @param accountId       the ID of the account
+     * @param transactionType the transaction type: DEPOSIT, WITHDRAW, TRANSFER_IN or TRANSFER_OUT
+     * @param amount          the positive transaction amount
+     * @throws IllegalArgumentException if the transaction type is unknown
+     */
+    public void record(Long accountId, String transactionType, Money amount) {
+        if (!enabled) {
+            return;
+        }
+        PendingRecord record = new PendingRecord(accountId, typeCode(transactionType), amount.getMinorUnits());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(List.of(record));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<PendingRecord> pending = (List<PendingRecord>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<PendingRecord> records = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, records);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(records);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(LedgerService.this);
+                }
+            });
+            pending = records;
+        }
+        pending.add(record);
+    }
+
+    /**
+     * Compares the ledger balances with {@code accounts.balance} in a single scan ordered by
+     * account ID and logs every account whose balances differ. Movements committed while the
+     * scan runs can show up as transient differences.
+     *
+     * @return the number of accounts whose balances differ, or 0 if the ledger is disabled
+     */
+    @Scheduled(cron = "${ledger.reconcile-cron:0 0 2 * * *}")
+    public int reconcile() {
+        if (!enabled) {
+            return 0;
+        }
+        LongLongMap expected;
+        lock.lock();
+        try {
+            expected = balances.copy();
+        } finally {
+            lock.unlock();
+        }
+
+        int[] mismatches = new int[1];
+        long[] scanned = new long[1];
+        jdbcTemplate.query("SELECT id, balance FROM accounts ORDER BY id", rs -> {
+            long accountId = rs.getLong(1);
+            long actual = Money.of(rs.getBigDecimal(2)).getMinorUnits();
+            long ledger = expected.get(accountId, 0);
+            scanned[0]++;
+            if (actual != ledger) {
+                if (mismatches[0]++ < MAX_REPORTED_MISMATCHES) {
+                    logger.warn("Ledger mismatch for account {}: ledger {}, database {}", accountId,
+                            BigDecimal.valueOf(ledger, 2), BigDecimal.valueOf(actual, 2));
+                }
+            }
+        });
+        logger.info("Reconciled {} accounts against the ledger: {} mismatches", scanned[0], mismatches[0]);
+        return mismatches[0];
+    }
+
+    /**
+     * Buffers the records under the append lock, then writes every buffered record unless a
+     * concurrent writer already has. Records that fail to be written stay detached and are
+     * written first by the next append.
+     */
+    private void append(List<PendingRecord> records) {
+        long timestamp = nowMicros();
+        long position;
+        lock.lock();
+        try {
+            for (PendingRecord record : records) {
+                ledgerFile.append(record.accountId, record.type, record.amountMinor, timestamp);
+                apply(record.accountId, record.type, record.amountMinor, timestamp);
+            }
+            appended += records.size();
+            position = appended;
+        } finally {
+            lock.unlock();
+        }
+
+        writeLock.lock();
+        try {
+            if (written >= position) {
+                return;
+            }
+            long detached;
+            lock.lock();
+            try {
+                ledgerFile.detach();
+                detached = appended;
+            } finally {
+                lock.unlock();
+            }
+            ledgerFile.writeDetached(sync);
+            written = detached;
+        } catch (IOException e) {
+            // The database transaction has already committed; reconciliation reports the gap.
+            logger.error("Failed to append {} records to the ledger", records.size(), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void apply(long accountId, byte type, long amountMinor, long timestampMicros) {
+        switch (type) {
+            case LedgerFile.OPENING_BALANCE -> balances.put(accountId, amountMinor);
+            case LedgerFile.DEPOSIT, LedgerFile.TRANSFER_IN -> balances.addTo(accountId, amountMinor);
+            case LedgerFile.WITHDRAW, LedgerFile.TRANSFER_OUT -> balances.addTo(accountId, -amountMinor);
+            default -> throw new IllegalStateException("Unknown ledger record type " + type);
+        }
+    }
+
+    private static byte typeCode(String transactionType) {
+        return switch (transactionType) {
+            case "DEPOSIT" -> LedgerFile.DEPOSIT;
+            case "WITHDRAW" -> LedgerFile.WITHDRAW;
+            case "TRANSFER_IN" -> LedgerFile.TRANSFER_IN;
+            case "TRANSFER_OUT" -> LedgerFile.TRANSFER_OUT;
+            default -> throw new IllegalArgumentException("Unknown transaction type " + transactionType);
+        };
+    }
+
+    private static long nowMicros() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+
+    private record PendingRecord(long accountId, byte type, long amountMinor) {
+    }
+}
@@ -0,0 +1,356 @@
+package banking.App.banking.app.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves buckets of accounts between shards while the application keeps serving requests.
+ * <p>
+ * A bucket is moved in five steps:
+ * </p>
+ * <ol>
+ *     <li>the bucket is marked as moving in the catalog, so writes to its accounts start
+ *     waiting on every instance, and the move waits {@code shard-routing.move-grace} for
+ *     all instances to reload the catalog and for in-flight writes to finish;</li>
+ *     <li>the bucket's accounts are locked on the source shard and their rows, transactions
+ *     and idempotency keys are copied, still encrypted, to the target shard in one
+ *     target transaction;</li>
+ *     <li>the catalog assigns the bucket to the target shard and clears the moving flag,
+ *     and only then are the source locks released;</li>
+ *     <li>the move waits another grace period, during which instances that have not
+ *     reloaded the catalog still read the unchanged source rows;</li>
+ *     <li>the bucket's rows are deleted from the source shard.</li>
+ * </ol>
+ * <p>
+ * {@link #startRebalance()} spreads the buckets evenly over all configured shards, one
+ * move at a time on a background thread, so new shards are filled by adding their URL to
+ * {@code shard-routing.urls} and restarting one instance with
+ * {@code shard-routing.rebalance-on-start=true}.
+ * </p>
+ * <p>
+ * A move is refused while the {@link TransactionArchive} is archiving a month, and
+ * transactions that are already archived stay in their segments instead of being copied.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "shard-routing.enabled", havingValue = "true")
+public class ShardRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+    private static final int COPY_BATCH_SIZE = 500;
+
+    /**
+     * The tables holding per-account rows, parents first, with the column naming the account
+     * and, for archived tables, the column compared with the archive's hot/cold boundary.
+     */
+    private static final String[][] ACCOUNT_TABLES = {
+            {"accounts", "id", null},
+            {"transactions", "account_id", "timestamp"},
+            {"idempotency_keys", "account_id", null},
+            {"transfer_intents", "from_account_id", null}
+    };
+
+    private final ShardRouter shardRouter;
+    private final TransactionArchive transactionArchive;
+    private final JdbcTemplate catalog;
+    private final long moveGraceMillis;
+    private final boolean rebalanceOnStart;
+    private final ExecutorService worker;
+
+    private volatile Status status = new Status(false, 0, 0, null);
+
+    public ShardRebalancer(ShardRouter shardRouter, TransactionArchive transactionArchive,
+                           @Value("${shard-routing.move-grace:5s}") Duration moveGrace,
+                           @Value("${shard-routing.rebalance-on-start:false}") boolean rebalanceOnStart) {
+        this.shardRouter = shardRouter;
+        this.transactionArchive = transactionArchive;
+        this.catalog = new JdbcTemplate(shardRouter.getShardDataSource(0));
+        this.moveGraceMillis = moveGrace.toMillis();
+        this.rebalanceOnStart = rebalanceOnStart;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-rebalancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a rebalance once the application is ready, if
+     * {@code shard-routing.rebalance-on-start} is set.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRebalanceIfConfigured() {
+        if (rebalanceOnStart) {
+            startRebalance();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Returns the progress of the current or last rebalance.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Starts moving buckets in the background until every shard holds an even share.
+     *
+     * @return the status of the started rebalance, or of the one already running
+     */
+    public synchronized Status startRebalance() {
+        if (status.running()) {
+            return status;
+        }
+        List<int[]> moves = plan();
+        status = new Status(true, moves.size(), 0, null);
+        worker.execute(() -> {
+            int completed = 0;
+            try {
+                for (int[] move : moves) {
+                    moveBucket(move[0], move[1]);
+                    completed++;
+                    status = new Status(true, moves.size(), completed, null);
+                }
+                logger.info("Rebalance finished after {} bucket moves", completed);
+                status = new Status(false, moves.size(), completed, null);
+            } catch (RuntimeException e) {
+                logger.error("Rebalance stopped after {} of {} bucket moves: {}", completed, moves.size(),
+                        e.getMessage(), e);
+                status = new Status(false, moves.size(), completed, e.getMessage());
+            }
+        });
+        return status;
+    }
+
+    /**
+     * Computes the bucket moves that give every shard an even share of the buckets,
+     * moving as few buckets as possible.
+     *
+     * @return the moves as {@code {bucket, targetShard}} pairs
+     */
+    public List<int[]> plan() {
+        int[] assignment = shardRouter.getAssignment();
+        int shardCount = shardRouter.getShardCount();
+        int[] counts = new int[shardCount];
+        for (int shard : assignment) {
+            counts[shard]++;
+        }
+        int[] targets = new int[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            targets[shard] = assignment.length / shardCount + (shard < assignment.length % shardCount ? 1 : 0);
+        }
+
+        List<int[]> moves = new ArrayList<>();
+        int receiver = 0;
+        for (int bucket = 0; bucket < assignment.length; bucket++) {
+            int source = assignment[bucket];
+            if (counts[source] <= targets[source]) {
+                continue;
+            }
+            while (counts[receiver] >= targets[receiver]) {
+                receiver++;
+            }
+            moves.add(new int[]{bucket, receiver});
+            counts[source]--;
+            counts[receiver]++;
+        }
+        return moves;
+    }
+
+    /**
+     * Moves one bucket to another shard.
+     * <p>
+     * Both catalog updates of a move are compare-and-set on the bucket's row: the move is
+     * only claimed while the row still names the source shard and is not moving, and only
+     * switched while it is still claimed, so two rebalancers, on the same or on different
+     * instances, can never move one bucket at the same time.
+     * </p>
+     *
+     * @param bucket the bucket to move
+     * @param target the shard to move it to
+     * @throws IllegalArgumentException if the bucket or shard does not exist
+     * @throws IllegalStateException    if the bucket is already being moved, transactions are being
+     *                                  archived or the rows cannot be copied
+     */
+    public void moveBucket(int bucket, int target) {
+        if (bucket < 0 || bucket >= shardRouter.getBucketCount() || target < 0 || target >= shardRouter.getShardCount()) {
+            throw new IllegalArgumentException("Unknown bucket " + bucket + " or shard " + target);
+        }
+        int source = shardRouter.getAssignment()[bucket];
+        if (source == target) {
+            return;
+        }
+
+        if (catalog.update("UPDATE shard_buckets SET moving = TRUE WHERE bucket = ? AND shard = ? AND moving = FALSE",
+                bucket, source) == 0) {
+            shardRouter.refresh();
+            throw new IllegalStateException("Bucket " + bucket + " is already being moved or is no longer on shard "
+                    + source);
+        }
+        shardRouter.refresh();
+        try {
+            if (transactionArchive.isRunning()) {
+                throw new IllegalStateException("Transactions are being archived; bucket " + bucket + " was not moved");
+            }
+            transactionArchive.refresh();
+            pause();
+            copyAndSwitch(bucket, source, target, transactionArchive.snapshot().getHotFrom());
+        } catch (RuntimeException e) {
+            catalog.update("UPDATE shard_buckets SET moving = FALSE WHERE bucket = ? AND shard = ?", bucket, source);
+            shardRouter.refresh();
+            throw e;
+        }
+        pause();
+        deleteBucket(source, bucket);
+        logger.info("Moved bucket {} from shard {} to shard {}", bucket, source, target);
+    }
+
+    /**
+     * Copies the bucket's rows to the target shard under source row locks and switches the
+     * catalog over before the locks are released. Rows before {@code hotFrom} are archived
+     * and not copied.
+     */
+    private void copyAndSwitch(int bucket, int source, int target, LocalDateTime hotFrom) {
+        try (Connection from = shardRouter.getShardDataSource(source).getConnection();
+             Connection to = shardRouter.getShardDataSource(target).getConnection()) {
+            from.setAutoCommit(false);
+            to.setAutoCommit(false);
+            try {
+                try (PreparedStatement lock = bucketStatement(from,
+                        "SELECT id FROM accounts WHERE MOD(id, ?) = ? FOR UPDATE", bucket);
+                     ResultSet rows = lock.executeQuery()) {
+                    while (rows.next()) {
+                        // Every row of the bucket is locked until the catalog has switched.
+                    }
+                }
+                for (String[] table : ACCOUNT_TABLES) {
+                    copyRows(from, to, table, bucket, hotFrom);
+                }
+                to.commit();
+                try {
+                    if (catalog.update("UPDATE shard_buckets SET shard = ?, moving = FALSE WHERE bucket = ? AND shard = ? "
+                            + "AND moving = TRUE", target, bucket, source) == 0) {
+                        throw new IllegalStateException("Bucket " + bucket + " was changed in the catalog during its move");
+                    }
+                } catch (RuntimeException e) {
+                    deleteBucket(target, bucket);
+                    throw e;
+                }
+                shardRouter.refresh();
+                from.commit();
+            } catch (SQLException | RuntimeException e) {
+                to.rollback();
+                from.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to copy bucket " + bucket + " to shard " + target, e);
+        }
+    }
+
+    /**
+     * Copies the bucket's rows of one table, streaming them in JDBC batches.
+     */
+    private void copyRows(Connection from, Connection to, String[] table, int bucket, LocalDateTime hotFrom)
+            throws SQLException {
+        boolean archived = table[2] != null && hotFrom != null;
+        try (PreparedStatement select = bucketStatement(from, "SELECT * FROM " + table[0] + " WHERE MOD(" + table[1]
+                + ", ?) = ?" + (archived ? " AND " + table[2] + " >= ?" : ""), bucket)) {
+            if (archived) {
+                select.setObject(3, hotFrom);
+            }
+            select.setFetchSize(COPY_BATCH_SIZE);
+            try (ResultSet rows = select.executeQuery()) {
+                ResultSetMetaData metaData = rows.getMetaData();
+                int columns = metaData.getColumnCount();
+                StringJoiner names = new StringJoiner(", ");
+                StringJoiner placeholders = new StringJoiner(", ");
+                for (int column = 1; column <= columns; column++) {
+                    names.add(metaData.getColumnName(column));
+                    placeholders.add("?");
+                }
+                try (PreparedStatement insert = to.prepareStatement(
+                        "INSERT INTO " + table[0] + " (" + names + ") VALUES (" + placeholders + ")")) {
+                    int batched = 0;
+                    while (rows.next()) {
+                        for (int column = 1; column <= columns; column++) {
+                            insert.setObject(column, rows.getObject(column));
+                        }
+                        insert.addBatch();
+                        if (++batched == COPY_BATCH_SIZE) {
+                            insert.executeBatch();
+                            batched = 0;
+                        }
+                    }
+                    if (batched > 0) {
+                        insert.executeBatch();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the bucket's rows from a shard, children first.
+     */
+    private void deleteBucket(int shard, int bucket) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(shardRouter.getShardDataSource(shard));
+        for (int i = ACCOUNT_TABLES.length - 1; i >= 0; i--) {
+            jdbcTemplate.update("DELETE FROM " + ACCOUNT_TABLES[i][0] + " WHERE MOD(" + ACCOUNT_TABLES[i][1] + ", ?) = ?",
+                    shardRouter.getBucketCount(), bucket);
+        }
+    }
+
+    private PreparedStatement bucketStatement(Connection connection, String sql, int bucket) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statement.setInt(1, shardRouter.getBucketCount());
+        statement.setInt(2, bucket);
+        return statement;
+    }
+
+    private void pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(moveGraceMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while moving a bucket", e);
+        }
+    }
+
+    /**
+     * The progress of a rebalance.
+     *
+     * @param running        whether the rebalance is still moving buckets
+     * @param plannedMoves   the number of bucket moves it started with
+     * @param completedMoves the number of bucket moves completed so far
+     * @param error          the error that stopped it, if any
+     */
+    public record Status(boolean running, int plannedMoves, int completedMoves, String error) {
+    }
+}
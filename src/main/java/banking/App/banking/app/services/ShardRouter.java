@@ -0,0 +1,487 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.config.ShardRoutingDataSource;
+import banking.App.banking.app.exception.AccountMovingException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard an account lives on and runs work against that shard.
+ * <p>
+ * Every account ID hashes to one of {@code shard-routing.buckets} buckets
+ * ({@code id mod buckets}), and every bucket is assigned to one shard. The assignment is
+ * kept in memory, so routing never needs a lookup round-trip; it is loaded from the
+ * {@code shard_buckets} catalog table on shard 0 at startup and reloaded every
+ * {@code shard-routing.refresh-interval}, which is how instances learn about buckets
+ * moved by the {@link ShardRebalancer}. Writes to a bucket that is being moved wait up to
+ * {@code shard-routing.move-wait} for the move to finish and then fail with an
+ * {@link AccountMovingException}.
+ * </p>
+ * <p>
+ * At startup the router creates the mapped schema on shards that do not have it yet,
+ * creates the catalog, and moves the start of each shard's {@code transactions_seq} to
+ * {@code shard << 48}, so transaction IDs stay unique across shards and survive moves.
+ * Account IDs come from the {@code account_id_seq} catalog sequence instead of the
+ * per-shard identity column, reserved in blocks of {@link #ID_BLOCK_SIZE}.
+ * </p>
+ * <p>
+ * With {@code shard-routing.enabled=false} (the default) there is a single database,
+ * every account is on shard 0 and all methods simply run the given work.
+ * </p>
+ */
+@Component
+public class ShardRouter implements MeterBinder {
+
+    static final int ID_BLOCK_SIZE = 100;
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRouter.class);
+    private static final int TRANSACTION_ID_SHIFT = 48;
+
+    private final ShardRoutingDataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+    private final boolean enabled;
+    private final boolean createSchema;
+    private final int bucketCount;
+    private final long moveWaitNanos;
+    private final ReentrantLock idLock = new ReentrantLock();
+
+    private JdbcTemplate catalog;
+    private ExecutorService scatterWorkers;
+    private volatile Assignment assignment;
+    private long nextId;
+    private long idBlockEnd;
+
+    public ShardRouter(ObjectProvider<ShardRoutingDataSource> dataSource, EntityManagerFactory entityManagerFactory,
+                       @Value("${shard-routing.enabled:false}") boolean enabled,
+                       @Value("${shard-routing.create-schema:true}") boolean createSchema,
+                       @Value("${shard-routing.buckets:1024}") int bucketCount,
+                       @Value("${shard-routing.move-wait:5s}") Duration moveWait) {
+        if (bucketCount < 1) {
+            throw new IllegalArgumentException("shard-routing.buckets must be positive");
+        }
+        this.dataSource = enabled ? dataSource.getObject() : null;
+        this.entityManagerFactory = entityManagerFactory;
+        this.enabled = enabled;
+        this.createSchema = createSchema;
+        this.bucketCount = bucketCount;
+        this.moveWaitNanos = moveWait.toNanos();
+    }
+
+    /**
+     * Prepares the shards and loads the bucket assignment.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        catalog = new JdbcTemplate(dataSource.getShard(0));
+        int shardCount = dataSource.getShardCount();
+        if (createSchema) {
+            for (int shard = 1; shard < shardCount; shard++) {
+                createSchemaIfMissing(shard);
+            }
+        }
+        for (int shard = 1; shard < shardCount; shard++) {
+            reserveTransactionIdRange(shard);
+        }
+        createCatalog(shardCount);
+        refresh();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        scatterWorkers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Shard routing over {} shards and {} buckets", shardCount, bucketCount);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scatterWorkers != null) {
+            scatterWorkers.shutdownNow();
+        }
+    }
+
+    /**
+     * Reloads the bucket assignment from the catalog.
+     */
+    @Scheduled(fixedDelayString = "${shard-routing.refresh-interval:PT2S}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        int[] shards = new int[bucketCount];
+        boolean[] moving = new boolean[bucketCount];
+        int shardCount = dataSource.getShardCount();
+        catalog.query("SELECT bucket, shard, moving FROM shard_buckets", rs -> {
+            int bucket = rs.getInt("bucket");
+            int shard = rs.getInt("shard");
+            if (bucket < 0 || bucket >= bucketCount || shard < 0 || shard >= shardCount) {
+                throw new IllegalStateException("Bucket " + bucket + " is assigned to unknown shard " + shard);
+            }
+            shards[bucket] = shard;
+            moving[bucket] = rs.getBoolean("moving");
+        });
+        assignment = new Assignment(shards, moving);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the number of shards; 1 when sharding is disabled.
+     */
+    public int getShardCount() {
+        return enabled ? dataSource.getShardCount() : 1;
+    }
+
+    /**
+     * Returns the number of buckets account IDs are hashed into.
+     */
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    /**
+     * Returns the bucket of an account ID.
+     */
+    public int bucketOf(long accountId) {
+        return Math.floorMod(accountId, bucketCount);
+    }
+
+    /**
+     * Returns the shard currently holding the account with the given ID.
+     */
+    public int shardOf(long accountId) {
+        return enabled ? assignment.shards[bucketOf(accountId)] : 0;
+    }
+
+    /**
+     * Returns a copy of the current bucket-to-shard assignment, indexed by bucket.
+     */
+    public int[] getAssignment() {
+        return enabled ? assignment.shards.clone() : new int[bucketCount];
+    }
+
+    /**
+     * Returns whether the bucket is currently being moved to another shard.
+     */
+    public boolean isMoving(int bucket) {
+        return enabled && assignment.moving[bucket];
+    }
+
+    /**
+     * Returns the number of buckets currently being moved to another shard.
+     */
+    public int getMovingBucketCount() {
+        return enabled ? countBuckets(-1) : 0;
+    }
+
+    /**
+     * Returns the data source of one shard, bypassing the routing.
+     *
+     * @throws IllegalStateException if sharding is disabled
+     */
+    public DataSource getShardDataSource(int shard) {
+        if (!enabled) {
+            throw new IllegalStateException("Shard routing is disabled");
+        }
+        return dataSource.getShard(shard);
+    }
+
+    /**
+     * Runs work with every connection the current thread obtains routed to one shard. A
+     * transaction started inside the work stays on that shard; the previous selection is
+     * restored afterwards.
+     *
+     * @param shard the shard number
+     * @param work  the work to run
+     * @return the result of the work
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        int previous = ShardRoutingDataSource.getCurrentShard();
+        ShardRoutingDataSource.setCurrentShard(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardRoutingDataSource.setCurrentShard(previous);
+        }
+    }
+
+    /**
+     * Runs read work on the shard holding the given account.
+     *
+     * @param accountId the ID of the account
+     * @param work      the work to run
+     * @return the result of the work
+     */
+    public <T> T onShardOf(long accountId, Supplier<T> work) {
+        return onShard(shardOf(accountId), work);
+    }
+
+    /**
+     * Runs write work on the shard holding the given account, first waiting for a move of
+     * the account's bucket to finish.
+     *
+     * @param accountId the ID of the account
+     * @param work      the work to run
+     * @return the result of the work
+     * @throws AccountMovingException if the bucket is still being moved after the move wait
+     */
+    public <T> T writeOnShardOf(long accountId, Supplier<T> work) {
+        awaitWritable(accountId);
+        return onShardOf(accountId, work);
+    }
+
+    /**
+     * Waits for a move of the account's bucket to finish.
+     *
+     * @param accountId the ID of the account
+     * @throws AccountMovingException if the bucket is still being moved after the move wait
+     */
+    public void awaitWritable(long accountId) {
+        if (enabled) {
+            awaitBucketWritable(bucketOf(accountId));
+        }
+    }
+
+    /**
+     * Runs work on every shard in parallel and returns the results in shard order.
+     *
+     * @param work the work to run, given the shard number
+     * @return one result per shard
+     */
+    public <T> List<T> scatter(IntFunction<T> work) {
+        int shardCount = getShardCount();
+        if (shardCount == 1) {
+            return List.of(onShard(0, () -> work.apply(0)));
+        }
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(scatterWorkers.submit(() -> onShard(target, () -> work.apply(target))));
+        }
+        List<T> results = new ArrayList<>(shardCount);
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    /**
+     * Runs work on every shard, one after another.
+     *
+     * @param work the work to run, given the shard number
+     */
+    public void forEachShard(IntConsumer work) {
+        for (int shard = 0; shard < getShardCount(); shard++) {
+            int target = shard;
+            onShard(target, () -> {
+                work.accept(target);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Allocates the ID of a new account.
+     *
+     * @throws IllegalStateException if sharding is disabled
+     */
+    public long nextAccountId() {
+        return nextAccountIds(1)[0];
+    }
+
+    /**
+     * Allocates the IDs of several new accounts, taking the lock only once.
+     *
+     * @param count the number of IDs to allocate
+     * @throws IllegalStateException if sharding is disabled
+     */
+    public long[] nextAccountIds(int count) {
+        if (!enabled) {
+            throw new IllegalStateException("Account IDs are generated by the database when shard routing is disabled");
+        }
+        long[] ids = new long[count];
+        idLock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (nextId == idBlockEnd) {
+                    Long blockStart = catalog.queryForObject("SELECT nextval('account_id_seq')", Long.class);
+                    if (blockStart == null) {
+                        throw new IllegalStateException("Failed to reserve an account ID block");
+                    }
+                    nextId = blockStart;
+                    idBlockEnd = blockStart + ID_BLOCK_SIZE;
+                }
+                ids[i] = nextId++;
+            }
+        } finally {
+            idLock.unlock();
+        }
+        return ids;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        for (int shard = 0; shard < dataSource.getShardCount(); shard++) {
+            int target = shard;
+            Gauge.builder("banking.shard.buckets", this, router -> router.countBuckets(target))
+                    .description("Buckets currently assigned to the shard")
+                    .tag("shard", String.valueOf(shard))
+                    .register(registry);
+        }
+        Gauge.builder("banking.shard.buckets.moving", this, router -> router.countBuckets(-1))
+                .description("Buckets currently being moved between shards")
+                .register(registry);
+    }
+
+    private int countBuckets(int shard) {
+        Assignment current = assignment;
+        if (current == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            if (shard < 0 ? current.moving[bucket] : current.shards[bucket] == shard) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Waits until the bucket is not being moved, re-reading the catalog while waiting.
+     */
+    private void awaitBucketWritable(int bucket) {
+        if (!assignment.moving[bucket]) {
+            return;
+        }
+        long deadline = System.nanoTime() + moveWaitNanos;
+        while (assignment.moving[bucket]) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new AccountMovingException("Account is being moved to another shard, retry shortly");
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AccountMovingException("Interrupted while waiting for an account move");
+            }
+            refresh();
+        }
+    }
+
+    /**
+     * Creates the mapped tables and sequences on a shard that does not have them yet.
+     */
+    private void createSchemaIfMissing(int shard) {
+        try {
+            new JdbcTemplate(dataSource.getShard(shard)).queryForObject("SELECT COUNT(*) FROM accounts WHERE 1 = 0", Long.class);
+            return;
+        } catch (DataAccessException e) {
+            logger.info("Creating schema on shard {}", shard);
+        }
+        onShard(shard, () -> {
+            entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager().exportMappedObjects(true);
+            return null;
+        });
+    }
+
+    /**
+     * Moves the shard's transaction ID sequence into the shard's own range.
+     */
+    private void reserveTransactionIdRange(int shard) {
+        JdbcTemplate shardTemplate = new JdbcTemplate(dataSource.getShard(shard));
+        long rangeStart = (long) shard << TRANSACTION_ID_SHIFT;
+        Long current = shardTemplate.queryForObject("SELECT nextval('transactions_seq')", Long.class);
+        if (current != null && current < rangeStart) {
+            shardTemplate.execute("ALTER SEQUENCE transactions_seq RESTART WITH " + rangeStart);
+        }
+    }
+
+    /**
+     * Creates the bucket catalog and the account ID sequence if they do not exist yet.
+     * New buckets all go to shard 0 when it already holds accounts, so that the existing
+     * rows stay where they are until rebalanced, and round-robin otherwise.
+     */
+    private void createCatalog(int shardCount) {
+        catalog.execute("CREATE TABLE IF NOT EXISTS shard_buckets (bucket INT PRIMARY KEY, shard INT NOT NULL, " +
+                "moving BOOLEAN NOT NULL)");
+        Integer existing = catalog.queryForObject("SELECT COUNT(*) FROM shard_buckets", Integer.class);
+        long maxAccountId = 0;
+        for (int shard = 0; shard < shardCount; shard++) {
+            Long max = new JdbcTemplate(dataSource.getShard(shard)).queryForObject("SELECT MAX(id) FROM accounts", Long.class);
+            maxAccountId = Math.max(maxAccountId, max == null ? 0 : max);
+        }
+
+        if (existing == null || existing == 0) {
+            boolean existingAccounts = maxAccountId > 0;
+            List<Object[]> rows = new ArrayList<>(bucketCount);
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                rows.add(new Object[]{bucket, existingAccounts ? 0 : bucket % shardCount, false});
+            }
+            catalog.batchUpdate("INSERT INTO shard_buckets (bucket, shard, moving) VALUES (?, ?, ?)", rows);
+        } else if (existing != bucketCount) {
+            throw new IllegalStateException("The shard catalog has " + existing + " buckets but shard-routing.buckets is "
+                    + bucketCount + "; the bucket count cannot be changed");
+        }
+        catalog.execute("CREATE SEQUENCE IF NOT EXISTS account_id_seq START WITH " + (maxAccountId + 1)
+                + " INCREMENT BY " + ID_BLOCK_SIZE);
+    }
+
+    /**
+     * An immutable snapshot of the bucket assignment.
+     */
+    private record Assignment(int[] shards, boolean[] moving) {
+    }
+}
@@ -0,0 +1,603 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.TransactionDetails;
+import banking.App.banking.app.exception.EncryptionException;
+import banking.App.banking.app.util.EncryptionUtil;
+import banking.App.banking.app.util.Money;
+import banking.App.banking.app.util.TransactionSegmentFile;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Moves old transactions out of the database into compressed segment files and reads
+ * them back, enabled with {@code transaction-archive.enabled=true}.
+ * <p>
+ * On {@code transaction-archive.cron} every month that ended more than
+ * {@code transaction-archive.retention-months} months ago is archived, oldest first and
+ * on all shards together:
+ * </p>
+ * <ol>
+ *     <li>the month is claimed in the {@code transaction_archive_months} catalog table, and
+ *     the run backs off if a shard bucket is being moved;</li>
+ *     <li>each shard's transactions of the month are written, sorted by account, to one
+ *     {@link TransactionSegmentFile} in {@code transaction-archive.directory} and registered
+ *     in {@code transaction_segments};</li>
+ *     <li>the month is marked as archived, which moves the hot/cold boundary, and the run
+ *     waits {@code transaction-archive.grace} for every instance to reload the catalog and
+ *     for running reads to finish;</li>
+ *     <li>the month's rows are removed from every shard, by dropping its partition when the
+ *     {@link TransactionPartitionManager} created one and by chunked range deletes
+ *     otherwise.</li>
+ * </ol>
+ * <p>
+ * A run that stops halfway is resumed by the next run once its claim is older than
+ * {@code transaction-archive.claim-timeout}, so the archiver can be enabled on every
+ * instance. The {@link ShardRebalancer} does not move buckets while a month is being
+ * archived, so a month's rows are never copied to a shard that has already exported it.
+ * </p>
+ * <p>
+ * Readers take a {@link Snapshot} of the catalog, which is reloaded every
+ * {@code transaction-archive.refresh-interval}, read the rows before
+ * {@link Snapshot#getHotFrom()} from its segments and everything from that point on from
+ * the database. Segments are immutable, so one open file per segment is shared by all
+ * readers. The directory must be shared by all instances.
+ * </p>
+ * <p>
+ * Segments are never rewritten. The {@link AccountPurger} records purged accounts in the
+ * {@code purged_accounts} catalog table, and snapshots return nothing for them, but their
+ * archived transactions stay in the segment files for as long as the files are kept.
+ * </p>
+ */
+@Component
+public class TransactionArchive implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionArchive.class);
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int DELETE_CHUNK_SIZE = 10_000;
+    private static final String EXPORTING = "EXPORTING";
+    private static final String DELETING = "DELETING";
+    private static final String ARCHIVED = "ARCHIVED";
+    private static final Comparator<TransactionDetails> HISTORY_ORDER =
+            Comparator.comparing(TransactionDetails::getTimestamp).thenComparing(TransactionDetails::getId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate exportTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final TransactionPartitionManager partitionManager;
+    private final EncryptionUtil encryptionUtil;
+    private final boolean enabled;
+    private final Path directory;
+    private final int retentionMonths;
+    private final long graceMillis;
+    private final Duration claimTimeout;
+    private final Map<String, TransactionSegmentFile> openSegments = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(null, Collections.emptyNavigableMap(), new long[0]);
+
+    public TransactionArchive(DataSource dataSource, PlatformTransactionManager transactionManager,
+                              ShardRouter shardRouter, TransactionPartitionManager partitionManager,
+                              EncryptionUtil encryptionUtil,
+                              @Value("${transaction-archive.enabled:false}") boolean enabled,
+                              @Value("${transaction-archive.directory:data/transaction-archive}") Path directory,
+                              @Value("${transaction-archive.retention-months:12}") int retentionMonths,
+                              @Value("${transaction-archive.grace:10s}") Duration grace,
+                              @Value("${transaction-archive.claim-timeout:1h}") Duration claimTimeout) {
+        if (retentionMonths < 1) {
+            throw new IllegalArgumentException("transaction-archive.retention-months must be positive");
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.exportTemplate = new JdbcTemplate(dataSource);
+        this.exportTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.partitionManager = partitionManager;
+        this.encryptionUtil = encryptionUtil;
+        this.enabled = enabled;
+        this.directory = directory;
+        this.retentionMonths = retentionMonths;
+        this.graceMillis = grace.toMillis();
+        this.claimTimeout = claimTimeout;
+    }
+
+    /**
+     * Creates the catalog tables and loads the registered segments.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        onCatalog(() -> {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS transaction_archive_months (month_start DATE PRIMARY KEY, " +
+                    "state VARCHAR(16) NOT NULL, updated_at TIMESTAMP NOT NULL)");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS transaction_segments (month_start DATE NOT NULL, " +
+                    "shard INT NOT NULL, file_name VARCHAR(255) NOT NULL, record_count BIGINT NOT NULL, " +
+                    "PRIMARY KEY (month_start, shard))");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS purged_accounts (account_id BIGINT PRIMARY KEY, " +
+                    "purged_at TIMESTAMP NOT NULL)");
+            return null;
+        });
+        refresh();
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (TransactionSegmentFile segment : openSegments.values()) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close segment {}", segment.getPath(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the archived months and their segments as of the last catalog reload.
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns whether a month is currently being archived. Buckets must not be moved
+     * between shards while it is.
+     */
+    public boolean isRunning() {
+        if (!enabled) {
+            return false;
+        }
+        Integer running = onCatalog(() -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transaction_archive_months WHERE state <> ?", Integer.class, ARCHIVED));
+        return running != null && running > 0;
+    }
+
+    /**
+     * Records that an account is being purged, so that its archived transactions are no
+     * longer read. Recording an account twice has no effect.
+     *
+     * @param accountId the ID of the account
+     */
+    public void recordPurged(long accountId) {
+        if (!enabled) {
+            return;
+        }
+        onCatalog(() -> {
+            try {
+                jdbcTemplate.update("INSERT INTO purged_accounts (account_id, purged_at) VALUES (?, ?)",
+                        accountId, LocalDateTime.now());
+            } catch (DuplicateKeyException e) {
+                // Recorded by an earlier, interrupted purge.
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Reloads the archived months, opens their segments and reloads the purged accounts.
+     */
+    @Scheduled(fixedDelayString = "${transaction-archive.refresh-interval:PT5S}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        NavigableMap<YearMonth, List<TransactionSegmentFile>> segments = new TreeMap<>();
+        LocalDate[] latest = new LocalDate[1];
+        long[] purged = snapshot.purgedAccountIds;
+        long[][] reloaded = new long[1][];
+        onCatalog(() -> {
+            jdbcTemplate.query("SELECT month_start FROM transaction_archive_months WHERE state <> ?", rs -> {
+                LocalDate month = rs.getObject(1, LocalDate.class);
+                if (latest[0] == null || month.isAfter(latest[0])) {
+                    latest[0] = month;
+                }
+            }, EXPORTING);
+            jdbcTemplate.query("SELECT s.month_start, s.file_name FROM transaction_segments s " +
+                    "JOIN transaction_archive_months m ON m.month_start = s.month_start WHERE m.state <> ? ORDER BY s.month_start, s.shard", rs -> {
+                YearMonth month = YearMonth.from(rs.getObject(1, LocalDate.class));
+                segments.computeIfAbsent(month, key -> new ArrayList<>()).add(openSegment(rs.getString(2)));
+            }, EXPORTING);
+            Integer purgedCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM purged_accounts", Integer.class);
+            if (purgedCount != null && purgedCount != purged.length) {
+                reloaded[0] = jdbcTemplate.queryForList("SELECT account_id FROM purged_accounts ORDER BY account_id",
+                        Long.class).stream().mapToLong(Long::longValue).toArray();
+            }
+            return null;
+        });
+        LocalDateTime hotFrom = latest[0] == null ? null : latest[0].plusMonths(1).atStartOfDay();
+        snapshot = new Snapshot(hotFrom, Collections.unmodifiableNavigableMap(segments),
+                reloaded[0] == null ? purged : reloaded[0]);
+    }
+
+    /**
+     * Archives every month that has fallen out of the retention period, oldest first.
+     */
+    @Scheduled(cron = "${transaction-archive.cron:0 30 3 * * *}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        while (true) {
+            Claim latest = onCatalog(() -> jdbcTemplate.query(
+                    "SELECT month_start, state, updated_at FROM transaction_archive_months ORDER BY month_start DESC LIMIT 1",
+                    rs -> rs.next() ? new Claim(YearMonth.from(rs.getObject(1, LocalDate.class)), rs.getString(2),
+                            rs.getTimestamp(3)) : null));
+            YearMonth month;
+            String state = null;
+            if (latest == null) {
+                month = oldestMonth();
+            } else if (ARCHIVED.equals(latest.state())) {
+                month = latest.month().plusMonths(1);
+            } else if (takeOver(latest)) {
+                month = latest.month();
+                state = latest.state();
+            } else {
+                return;
+            }
+            if (month == null || !month.isBefore(cutoff) || !archiveMonth(month, state)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Archives one month, starting or resuming at the given state.
+     *
+     * @param state null for a new month, otherwise the state of a claim taken over
+     * @return false if the run has to back off
+     */
+    private boolean archiveMonth(YearMonth month, String state) {
+        LocalDate key = month.atDay(1);
+        if (state == null) {
+            try {
+                onCatalog(() -> jdbcTemplate.update("INSERT INTO transaction_archive_months (month_start, state, updated_at) " +
+                        "VALUES (?, ?, ?)", key, EXPORTING, LocalDateTime.now()));
+            } catch (DuplicateKeyException e) {
+                return false;
+            }
+            state = EXPORTING;
+        }
+        if (EXPORTING.equals(state)) {
+            shardRouter.refresh();
+            if (shardRouter.getMovingBucketCount() > 0) {
+                onCatalog(() -> jdbcTemplate.update("DELETE FROM transaction_archive_months WHERE month_start = ? AND state = ?",
+                        key, EXPORTING));
+                logger.info("Archiving of {} postponed until no shard bucket is being moved", month);
+                return false;
+            }
+            shardRouter.forEachShard(shard -> {
+                long records = export(month, shard);
+                onCatalog(() -> transactionTemplate.execute(status -> {
+                    jdbcTemplate.update("DELETE FROM transaction_segments WHERE month_start = ? AND shard = ?", key, shard);
+                    if (records > 0) {
+                        jdbcTemplate.update("INSERT INTO transaction_segments (month_start, shard, file_name, record_count) " +
+                                "VALUES (?, ?, ?, ?)", key, shard, segmentFileName(month, shard), records);
+                    }
+                    return jdbcTemplate.update("UPDATE transaction_archive_months SET updated_at = ? WHERE month_start = ?",
+                            LocalDateTime.now(), key);
+                }));
+                logger.info("Archived {} transactions of {} from shard {}", records, month, shard);
+            });
+            setState(key, DELETING);
+            refresh();
+            pause();
+        }
+        shardRouter.forEachShard(shard -> {
+            long removed = purge(month);
+            onCatalog(() -> jdbcTemplate.update("UPDATE transaction_archive_months SET updated_at = ? WHERE month_start = ?",
+                    LocalDateTime.now(), key));
+            logger.info("Removed {} archived transactions of {} from shard {}", removed, month, shard);
+        });
+        setState(key, ARCHIVED);
+        return true;
+    }
+
+    /**
+     * Writes the transactions of one month on the shard selected for the current thread to
+     * a new segment file.
+     *
+     * @return the number of transactions written
+     */
+    private long export(YearMonth month, int shard) {
+        Map<String, Byte> typeCodes = new HashMap<>();
+        try (TransactionSegmentFile.Writer writer =
+                     TransactionSegmentFile.create(directory.resolve(segmentFileName(month, shard)))) {
+            transactionTemplate.executeWithoutResult(status -> exportTemplate.query(
+                    "SELECT account_id, id, timestamp, amount, transaction_type FROM transactions " +
+                    "WHERE timestamp >= ? AND timestamp < ? ORDER BY account_id, timestamp, id", rs -> {
+                        byte type = typeCodes.computeIfAbsent(rs.getString(5), this::decryptTypeCode);
+                        try {
+                            writer.append(rs.getLong(1), rs.getLong(2), toMicros(rs.getObject(3, LocalDateTime.class)),
+                                    Money.of(rs.getBigDecimal(4)).getMinorUnits(), type);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay()));
+            if (writer.getRecordCount() == 0) {
+                return 0;
+            }
+            return writer.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the segment of " + month + " for shard " + shard, e);
+        }
+    }
+
+    /**
+     * Removes the transactions of one month from the shard selected for the current thread.
+     *
+     * @return the number of rows deleted, or -1 if a partition was dropped
+     */
+    private long purge(YearMonth month) {
+        if (partitionManager.dropPartition(month)) {
+            return -1;
+        }
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM transactions WHERE id IN (SELECT id FROM transactions " +
+                            "WHERE timestamp >= ? AND timestamp < ? LIMIT " + DELETE_CHUNK_SIZE + ")",
+                    month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay());
+            total += deleted;
+        } while (deleted == DELETE_CHUNK_SIZE);
+        return total;
+    }
+
+    /**
+     * Returns the month of the oldest transaction on any shard, or null if there is none.
+     */
+    private YearMonth oldestMonth() {
+        LocalDateTime oldest = null;
+        for (LocalDateTime shardOldest : shardRouter.scatter(shard ->
+                jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM transactions", LocalDateTime.class))) {
+            if (shardOldest != null && (oldest == null || shardOldest.isBefore(oldest))) {
+                oldest = shardOldest;
+            }
+        }
+        return oldest == null ? null : YearMonth.from(oldest);
+    }
+
+    /**
+     * Takes over the claim of an interrupted run once it has not been updated for the
+     * claim timeout.
+     */
+    private boolean takeOver(Claim claim) {
+        if (claim.updatedAt().toLocalDateTime().plus(claimTimeout).isAfter(LocalDateTime.now())) {
+            return false;
+        }
+        Integer taken = onCatalog(() -> jdbcTemplate.update("UPDATE transaction_archive_months SET updated_at = ? " +
+                "WHERE month_start = ? AND updated_at = ?", LocalDateTime.now(), claim.month().atDay(1), claim.updatedAt()));
+        if (taken == null || taken == 0) {
+            return false;
+        }
+        logger.info("Resuming the interrupted archiving of {}", claim.month());
+        return true;
+    }
+
+    private void setState(LocalDate month, String state) {
+        onCatalog(() -> jdbcTemplate.update("UPDATE transaction_archive_months SET state = ?, updated_at = ? WHERE month_start = ?",
+                state, LocalDateTime.now(), month));
+    }
+
+    private TransactionSegmentFile openSegment(String fileName) {
+        return openSegments.computeIfAbsent(fileName, name -> {
+            try {
+                return TransactionSegmentFile.open(directory.resolve(name));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open segment " + name, e);
+            }
+        });
+    }
+
+    private byte decryptTypeCode(String encryptedType) {
+        try {
+            return TransactionSegmentFile.typeCode(encryptionUtil.decrypt(encryptedType));
+        } catch (Exception e) {
+            throw new EncryptionException("Error decrypting transaction type: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> T onCatalog(Supplier<T> work) {
+        return shardRouter.onShard(0, work);
+    }
+
+    private void pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(graceMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while archiving transactions", e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("banking.transaction.archive.segments", openSegments, Map::size)
+                .description("Archived transaction segments open for reading")
+                .register(registry);
+        Gauge.builder("banking.transaction.archive.records", openSegments, segments -> segments.values().stream()
+                        .mapToLong(TransactionSegmentFile::getRecordCount).sum())
+                .description("Transactions held in archived segments")
+                .register(registry);
+    }
+
+    static String segmentFileName(YearMonth month, int shard) {
+        return "transactions-" + month + "-shard-" + shard + ".seg";
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + timestamp.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * The latest month in the archive catalog.
+     */
+    private record Claim(YearMonth month, String state, Timestamp updatedAt) {
+    }
+
+    /**
+     * The archived months and their segments at one point in time. Rows before
+     * {@link #getHotFrom()} are read from the segments, rows from then on from the database.
+     * Purged accounts have no archived rows.
+     */
+    public static final class Snapshot {
+
+        private final LocalDateTime hotFrom;
+        private final NavigableMap<YearMonth, List<TransactionSegmentFile>> segments;
+        private final long[] purgedAccountIds;
+
+        private Snapshot(LocalDateTime hotFrom, NavigableMap<YearMonth, List<TransactionSegmentFile>> segments,
+                         long[] purgedAccountIds) {
+            this.hotFrom = hotFrom;
+            this.segments = segments;
+            this.purgedAccountIds = purgedAccountIds;
+        }
+
+        /**
+         * Returns the start of the first month that is not archived, or null if no month is.
+         */
+        public LocalDateTime getHotFrom() {
+            return hotFrom;
+        }
+
+        /**
+         * Reads up to {@code limit} archived transactions of an account that follow a
+         * {@code (timestamp, id)} position, oldest first.
+         *
+         * @param accountId the ID of the account
+         * @param timestamp the timestamp of the position, or null to start at the oldest transaction
+         * @param id        the transaction ID of the position
+         * @param limit     the maximum number of transactions to return
+         */
+        public List<TransactionDetails> read(long accountId, LocalDateTime timestamp, long id, int limit) {
+            List<TransactionDetails> transactions = new ArrayList<>();
+            if (isPurged(accountId)) {
+                return transactions;
+            }
+            NavigableMap<YearMonth, List<TransactionSegmentFile>> months =
+                    timestamp == null ? segments : segments.tailMap(YearMonth.from(timestamp), true);
+            for (List<TransactionSegmentFile> monthSegments : months.values()) {
+                readMonth(monthSegments, accountId, transaction -> {
+                    if (timestamp == null || transaction.getTimestamp().isAfter(timestamp)
+                            || transaction.getTimestamp().isEqual(timestamp) && transaction.getId() > id) {
+                        transactions.add(transaction);
+                    }
+                    return transactions.size() < limit;
+                });
+                if (transactions.size() >= limit) {
+                    break;
+                }
+            }
+            return transactions;
+        }
+
+        /**
+         * Passes the archived transactions of an account from a point in time onwards to the
+         * consumer, oldest first. Only one month of the account is held in memory at a time.
+         *
+         * @param accountId the ID of the account
+         * @param from      the earliest timestamp to include, or null for all
+         * @param consumer  the consumer receiving each transaction
+         */
+        public void forEach(long accountId, LocalDateTime from, Consumer<TransactionDetails> consumer) {
+            if (isPurged(accountId)) {
+                return;
+            }
+            NavigableMap<YearMonth, List<TransactionSegmentFile>> months =
+                    from == null ? segments : segments.tailMap(YearMonth.from(from), true);
+            for (List<TransactionSegmentFile> monthSegments : months.values()) {
+                readMonth(monthSegments, accountId, transaction -> {
+                    if (from == null || !transaction.getTimestamp().isBefore(from)) {
+                        consumer.accept(transaction);
+                    }
+                    return true;
+                });
+            }
+        }
+
+        /**
+         * Returns whether the account has been purged.
+         */
+        public boolean isPurged(long accountId) {
+            return Arrays.binarySearch(purgedAccountIds, accountId) >= 0;
+        }
+
+        /**
+         * Reads the account's transactions of one month in history order. A month normally
+         * has one segment per shard but only one of them holds the account.
+         */
+        private static void readMonth(List<TransactionSegmentFile> monthSegments, long accountId,
+                                      Predicate<TransactionDetails> consumer) {
+            try {
+                if (monthSegments.size() == 1) {
+                    monthSegments.get(0).read(accountId, (account, id, timestampMicros, amountMinor, type) ->
+                            consumer.test(toDetails(id, timestampMicros, amountMinor, type)));
+                    return;
+                }
+                List<TransactionDetails> transactions = new ArrayList<>();
+                for (TransactionSegmentFile segment : monthSegments) {
+                    segment.read(accountId, (account, id, timestampMicros, amountMinor, type) ->
+                            transactions.add(toDetails(id, timestampMicros, amountMinor, type)));
+                }
+                transactions.sort(HISTORY_ORDER);
+                for (TransactionDetails transaction : transactions) {
+                    if (!consumer.test(transaction)) {
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read archived transactions of account " + accountId, e);
+            }
+        }
+
+        private static TransactionDetails toDetails(long id, long timestampMicros, long amountMinor, byte type) {
+            return new TransactionDetails(id, Money.ofMinor(amountMinor), TransactionSegmentFile.typeName(type),
+                    fromMicros(timestampMicros));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.entity.Transaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.generator.Generator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * The {@code transactions_seq} sequence that transaction IDs are taken from.
+ * <p>
+ * Transaction IDs used to come from an identity column. At startup, before any request is
+ * served, the sequence is moved past the highest existing transaction ID on every shard
+ * where it is behind; this is the migration for databases created before the sequence
+ * existed, and on an up-to-date database it costs one query per shard. The allocation
+ * size is read from the {@link Transaction} mapping rather than repeated here.
+ * </p>
+ */
+@Component
+public class TransactionIdSequence {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionIdSequence.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final int allocationSize;
+
+    public TransactionIdSequence(DataSource dataSource, EntityManagerFactory entityManagerFactory,
+                                 ShardRouter shardRouter) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.shardRouter = shardRouter;
+        this.allocationSize = allocationSize(entityManagerFactory);
+    }
+
+    /**
+     * Restarts the sequence above the highest transaction ID on every shard where it is behind.
+     */
+    @PostConstruct
+    public void migrate() {
+        shardRouter.forEachShard(shard -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM transactions", Long.class);
+            Long current = jdbcTemplate.queryForObject("SELECT nextval('transactions_seq')", Long.class);
+            if (maxId != null && current != null && current < maxId) {
+                jdbcTemplate.execute("ALTER SEQUENCE transactions_seq RESTART WITH " + (maxId + allocationSize));
+                logger.info("Moved transactions_seq past the highest transaction ID {} on shard {}", maxId, shard);
+            }
+        });
+    }
+
+    /**
+     * Returns how many IDs one call to {@code nextval} reserves.
+     */
+    public int getAllocationSize() {
+        return allocationSize;
+    }
+
+    private static int allocationSize(EntityManagerFactory entityManagerFactory) {
+        Generator generator = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                .getEntityDescriptor(Transaction.class).getGenerator();
+        if (generator instanceof SequenceStyleGenerator sequenceGenerator) {
+            return sequenceGenerator.getOptimizer().getIncrementSize();
+        }
+        throw new IllegalStateException("Transaction IDs must be generated from transactions_seq");
+    }
+}
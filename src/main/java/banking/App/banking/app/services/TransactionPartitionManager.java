@@ -0,0 +1,202 @@
+package banking.App.banking.app.services;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the {@code transactions} table partitioned by month on PostgreSQL, enabled with
+ * {@code transaction-partitioning.enabled=true}.
+ * <p>
+ * At startup a plain {@code transactions} table is converted in one DDL transaction: it
+ * is renamed to {@code transactions_legacy}, a table of the same shape partitioned by
+ * range of {@code timestamp} takes its name, and the old table is attached as the
+ * partition for everything before next month. Attaching validates the old rows once, so
+ * the conversion of a large table should run in a maintenance window. The primary key of
+ * the partitioned table is {@code (id, timestamp)}, because PostgreSQL requires unique
+ * keys to include the partition key; IDs still come from {@code transactions_seq}.
+ * </p>
+ * <p>
+ * Monthly partitions named {@code transactions_pYYYYMM} are then created up to
+ * {@code transaction-partitioning.months-ahead} months in advance, at startup and on
+ * {@code transaction-partitioning.maintenance-cron}, so inserts never find a missing
+ * partition. With the {@link ShardRouter} enabled every shard is partitioned. The
+ * {@link TransactionArchive} drops whole monthly partitions once they are archived.
+ * </p>
+ */
+@Component
+public class TransactionPartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionPartitionManager.class);
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final int monthsAhead;
+
+    public TransactionPartitionManager(DataSource dataSource, PlatformTransactionManager transactionManager,
+                                       ShardRouter shardRouter,
+                                       @Value("${transaction-partitioning.enabled:false}") boolean enabled,
+                                       @Value("${transaction-partitioning.months-ahead:3}") int monthsAhead) {
+        if (monthsAhead < 1) {
+            throw new IllegalArgumentException("transaction-partitioning.months-ahead must be positive");
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+    }
+
+    /**
+     * Converts the table on every shard if needed and creates the upcoming partitions.
+     *
+     * @throws IllegalStateException if the database is not PostgreSQL
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        shardRouter.forEachShard(shard -> {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            if (!"PostgreSQL".equals(product)) {
+                throw new IllegalStateException("transaction-partitioning.enabled requires PostgreSQL, not " + product);
+            }
+            if (!isPartitioned()) {
+                transactionTemplate.executeWithoutResult(status -> convert());
+            }
+        });
+        createPartitions();
+    }
+
+    /**
+     * Creates the monthly partitions from the end of the last existing partition up to
+     * {@code months-ahead} months after the current one, on every shard.
+     */
+    @Scheduled(cron = "${transaction-partitioning.maintenance-cron:0 0 1 * * *}")
+    public void createPartitions() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+        shardRouter.forEachShard(shard -> {
+            LocalDateTime upperBound = partitionsEnd();
+            YearMonth month = upperBound == null ? YearMonth.now() : YearMonth.from(upperBound);
+            if (upperBound != null && !upperBound.equals(month.atDay(1).atStartOfDay())) {
+                month = month.plusMonths(1);
+            }
+            for (; !month.isAfter(last); month = month.plusMonths(1)) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF transactions "
+                        + "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+                logger.info("Created transaction partition {} on shard {}", partitionName(month), shard);
+            }
+        });
+    }
+
+    /**
+     * Detaches and drops the partition holding exactly one month, on the shard selected for
+     * the current thread.
+     *
+     * @param month the month of the partition
+     * @return false if partitioning is disabled or the month has no partition of its own
+     */
+    public boolean dropPartition(YearMonth month) {
+        if (!enabled) {
+            return false;
+        }
+        String partition = partitionName(month);
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+        if (!Boolean.TRUE.equals(exists)) {
+            return false;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE transactions DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        });
+        logger.info("Dropped transaction partition {}", partition);
+        return true;
+    }
+
+    /**
+     * Returns the name of the partition of one month.
+     */
+    static String partitionName(YearMonth month) {
+        return "transactions_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    private boolean isPartitioned() {
+        String kind = jdbcTemplate.queryForObject(
+                "SELECT c.relkind::text FROM pg_class c WHERE c.oid = to_regclass('transactions')", String.class);
+        return "p".equals(kind);
+    }
+
+    /**
+     * Replaces the plain table with a partitioned one and attaches the old table as the
+     * partition for everything before next month. Runs in one transaction.
+     */
+    private void convert() {
+        LocalDateTime legacyEnd = YearMonth.now().plusMonths(1).atDay(1).atStartOfDay();
+        String primaryKey = jdbcTemplate.queryForObject("SELECT conname FROM pg_constraint " +
+                "WHERE conrelid = 'transactions'::regclass AND contype = 'p'", String.class);
+        List<Map<String, Object>> foreignKeys = jdbcTemplate.queryForList("SELECT conname, " +
+                "pg_get_constraintdef(oid) AS definition FROM pg_constraint " +
+                "WHERE conrelid = 'transactions'::regclass AND contype = 'f'");
+
+        jdbcTemplate.execute("ALTER TABLE transactions RENAME TO transactions_legacy");
+        jdbcTemplate.execute("ALTER TABLE transactions_legacy RENAME CONSTRAINT " + primaryKey + " TO transactions_legacy_pkey");
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS idx_transactions_account_timestamp_covering " +
+                "RENAME TO idx_transactions_legacy_account_timestamp_covering");
+        jdbcTemplate.execute("CREATE TABLE transactions (LIKE transactions_legacy INCLUDING DEFAULTS) " +
+                "PARTITION BY RANGE (timestamp)");
+        jdbcTemplate.execute("ALTER TABLE transactions ADD CONSTRAINT transactions_pkey PRIMARY KEY (id, timestamp)");
+        jdbcTemplate.execute("CREATE INDEX idx_transactions_account_timestamp_covering " +
+                "ON transactions (account_id, timestamp, id, transaction_type, amount)");
+        for (Map<String, Object> foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE transactions ADD CONSTRAINT " + foreignKey.get("conname") + " "
+                    + foreignKey.get("definition"));
+        }
+        jdbcTemplate.execute("ALTER TABLE transactions ATTACH PARTITION transactions_legacy " +
+                "FOR VALUES FROM (MINVALUE) TO ('" + legacyEnd + "')");
+        logger.info("Converted transactions to a table partitioned by month; older rows are in transactions_legacy");
+    }
+
+    /**
+     * Returns the highest upper bound of the existing partitions, or null if there are none.
+     */
+    private LocalDateTime partitionsEnd() {
+        List<String> bounds = jdbcTemplate.queryForList("SELECT pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'transactions'::regclass", String.class);
+        LocalDateTime end = null;
+        for (String bound : bounds) {
+            Matcher matcher = UPPER_BOUND.matcher(bound);
+            if (matcher.find()) {
+                LocalDateTime upper = LocalDateTime.parse(matcher.group(1).replace(' ', 'T'));
+                if (end == null || upper.isAfter(end)) {
+                    end = upper;
+                }
+            }
+        }
+        return end;
+    }
+}
@@ -0,0 +1,154 @@
+package banking.App.banking.app.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps sequence numbers onto 12-digit account numbers without collisions.
+ * <p>
+ * The first 11 digits are a keyed format-preserving permutation of the sequence
+ * number over {@code [0, 10^11)}: an alternating-modulus Feistel network splits the
+ * value into a 5-digit and a 6-digit half, so every distinct sequence number maps
+ * to a distinct, non-sequential payload. The 12th digit is a Luhn check digit.
+ * The permutation key must stay the same for the lifetime of the database,
+ * otherwise previously issued numbers may be issued again.
+ * </p>
+ */
+@Component
+public class AccountNumberPermutation {
+
+    public static final int ACCOUNT_NUMBER_LENGTH = 12;
+    public static final long DOMAIN_SIZE = 100_000_000_000L;
+
+    private static final long LEFT_MODULUS = 100_000L;
+    private static final long RIGHT_MODULUS = 1_000_000L;
+    private static final int ROUNDS = 8;
+
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public AccountNumberPermutation(@Value("${account-number.permutation-key}") long permutationKey) {
+        long state = permutationKey;
+        for (int i = 0; i < ROUNDS; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = mix(state);
+        }
+    }
+
+    /**
+     * Formats the given sequence number as a 12-digit account number.
+     *
+     * @param sequence the sequence number, in {@code [0, DOMAIN_SIZE)}
+     * @return the permuted 11-digit payload followed by its Luhn check digit
+     * @throws IllegalArgumentException if the sequence number is outside the domain
+     */
+    public String format(long sequence) {
+        if (sequence < 0 || sequence >= DOMAIN_SIZE) {
+            throw new IllegalArgumentException("Account number sequence out of range: " + sequence);
+        }
+        long payload = permute(sequence);
+
+        char[] digits = new char[ACCOUNT_NUMBER_LENGTH];
+        for (int i = ACCOUNT_NUMBER_LENGTH - 2; i >= 0; i--) {
+            digits[i] = (char) ('0' + payload % 10);
+            payload /= 10;
+        }
+        digits[ACCOUNT_NUMBER_LENGTH - 1] = (char) ('0' + luhnCheckDigit(digits, ACCOUNT_NUMBER_LENGTH - 1));
+        return new String(digits);
+    }
+
+    /**
+     * Applies the keyed permutation to a value in {@code [0, DOMAIN_SIZE)}.
+     *
+     * @param value the value to permute
+     * @return the permuted value, also in {@code [0, DOMAIN_SIZE)}
+     */
+    long permute(long value) {
+        long left = value / RIGHT_MODULUS;
+        long right = value % RIGHT_MODULUS;
+        long leftModulus = LEFT_MODULUS;
+        long rightModulus = RIGHT_MODULUS;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long newRight = Math.floorMod(left + Math.floorMod(mix(right ^ roundKeys[round]), leftModulus), leftModulus);
+            left = right;
+            right = newRight;
+
+            long swap = leftModulus;
+            leftModulus = rightModulus;
+            rightModulus = swap;
+        }
+        return left * RIGHT_MODULUS + right;
+    }
+
+    /**
+     * Inverts {@link #permute(long)}.
+     *
+     * @param value a permuted value in {@code [0, DOMAIN_SIZE)}
+     * @return the value that permutes to it
+     */
+    long unpermute(long value) {
+        long left = value / RIGHT_MODULUS;
+        long right = value % RIGHT_MODULUS;
+        long leftModulus = LEFT_MODULUS;
+        long rightModulus = RIGHT_MODULUS;
+
+        for (int round = ROUNDS - 1; round >= 0; round--) {
+            long swap = leftModulus;
+            leftModulus = rightModulus;
+            rightModulus = swap;
+
+            long oldRight = left;
+            left = Math.floorMod(right - Math.floorMod(mix(oldRight ^ roundKeys[round]), leftModulus), leftModulus);
+            right = oldRight;
+        }
+        return left * RIGHT_MODULUS + right;
+    }
+
+    /**
+     * Checks whether the given account number carries a valid Luhn check digit.
+     *
+     * @param accountNumber the account number to check
+     * @return true if the last digit is the Luhn check digit of the preceding digits
+     */
+    public static boolean isValid(String accountNumber) {
+        if (accountNumber == null || accountNumber.length() < 2) {
+            return false;
+        }
+        char[] digits = accountNumber.toCharArray();
+        for (char digit : digits) {
+            if (digit < '0' || digit > '9') {
+                return false;
+            }
+        }
+        return digits[digits.length - 1] - '0' == luhnCheckDigit(digits, digits.length - 1);
+    }
+
+    /**
+     * Computes the Luhn check digit for the first {@code length} digits.
+     */
+    private static int luhnCheckDigit(char[] digits, int length) {
+        int sum = 0;
+        boolean doubleDigit = true;
+        for (int i = length - 1; i >= 0; i--) {
+            int digit = digits[i] - '0';
+            if (doubleDigit) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubleDigit = !doubleDigit;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * SplitMix64 finalizer, used as the Feistel round function.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
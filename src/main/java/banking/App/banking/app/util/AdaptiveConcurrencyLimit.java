@@ -0,0 +1,119 @@
+package banking.App.banking.app.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A limit on concurrent work that adapts to the latency the work observes.
+ * <p>
+ * Callers take a permit with {@link #tryAcquire()}, which never waits, and return it
+ * with {@link #release(long, long)} together with the work's start and end times.
+ * </p>
+ * <p>
+ * Two moving averages of latency are kept: a short one over roughly the last ten
+ * completions and a long one over roughly the last thousand, which serves as the
+ * baseline. The limit follows additive-increase, multiplicative-decrease: while the
+ * short average stays within {@code tolerance} times the baseline and at least half the
+ * permits are in use, the limit grows by one for every {@code limit} completions; once
+ * the short average exceeds it, the limit shrinks by {@code backoffRatio}. Only work
+ * started after the previous decrease can cause another one, so a single slow spell
+ * shrinks the limit once rather than once per request. All state is held in atomics.
+ * Times are {@link System#nanoTime()} values.
+ * </p>
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final int SHORT_AVERAGE_SHIFT = 3;
+    private static final int LONG_AVERAGE_SHIFT = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger completionsSinceIncrease = new AtomicInteger();
+    private final AtomicLong shortAverageNanos = new AtomicLong();
+    private final AtomicLong longAverageNanos = new AtomicLong();
+    private final AtomicLong lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance,
+                                    double backoffRatio, long nowNanos) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= min <= initial <= max");
+        }
+        if (tolerance < 1 || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("tolerance must be at least 1 and backoff ratio between 0 and 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.limit = new AtomicInteger(initialLimit);
+        this.lastDecreaseNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a permit if fewer than {@link #getLimit()} are in use.
+     *
+     * @return false if the limit is reached
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a permit and adjusts the limit to the latency of the work it covered.
+     *
+     * @param startNanos when the work started
+     * @param endNanos   when the work ended
+     */
+    public void release(long startNanos, long endNanos) {
+        int used = inFlight.getAndDecrement();
+        long latency = Math.max(endNanos - startNanos, 1);
+        long recent = shortAverageNanos.updateAndGet(average -> movingAverage(average, latency, SHORT_AVERAGE_SHIFT));
+        long baseline = longAverageNanos.updateAndGet(average -> movingAverage(average, latency, LONG_AVERAGE_SHIFT));
+
+        if (recent > baseline * tolerance) {
+            long last = lastDecreaseNanos.get();
+            if (startNanos - last > 0 && lastDecreaseNanos.compareAndSet(last, endNanos)) {
+                limit.updateAndGet(current -> Math.max(minLimit, (int) (current * backoffRatio)));
+                completionsSinceIncrease.set(0);
+            }
+            return;
+        }
+        int current = limit.get();
+        if (used * 2 >= current && completionsSinceIncrease.incrementAndGet() >= current) {
+            completionsSinceIncrease.set(0);
+            limit.compareAndSet(current, Math.min(maxLimit, current + 1));
+        }
+    }
+
+    /**
+     * Returns a permit without a latency sample, for work that failed before it ran or
+     * that ran too long to say anything about latency.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private static long movingAverage(long average, long sample, int shift) {
+        return average == 0 ? sample : average + ((sample - average) >> shift);
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,84 @@
+package banking.App.banking.app.util;
+
+import banking.App.banking.app.exception.EncryptionException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+/**
+ * A utility class for computing deterministic blind indexes of sensitive values.
+ * <p>
+ * A blind index is a keyed HMAC-SHA256 digest of the plaintext. It can be stored
+ * next to the encrypted column and indexed, so equality lookups and uniqueness
+ * checks no longer depend on the encryption itself being deterministic. The HMAC
+ * key is separate from the encryption key and is read from the application properties.
+ * </p>
+ */
+@Component
+public class BlindIndexUtil {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${encryption.blind-index-key}")
+    private String blindIndexKey;
+
+    @Value("${encryption.pool-size:0}")
+    private int poolSize;
+
+    private BoundedPool<Mac> macs;
+    private SecretKeySpec keySpec;
+
+    /**
+     * Initializes the BlindIndexUtil by validating the key.
+     *
+     * @throws Exception if the key is shorter than 16 bytes or the MAC algorithm is unavailable
+     */
+    @PostConstruct
+    public void init() throws Exception {
+        byte[] key = blindIndexKey.getBytes(StandardCharsets.UTF_8);
+        if (key.length < 16) {
+            throw new IllegalArgumentException("Blind index key must be at least 16 bytes");
+        }
+        this.keySpec = new SecretKeySpec(key, ALGORITHM);
+        this.macs = new BoundedPool<>(poolSize > 0 ? poolSize : BoundedPool.defaultCapacity());
+        macs.offer(createMac());
+    }
+
+    /**
+     * Computes the blind index of the given value.
+     *
+     * @param value the plaintext value
+     * @return the hex-encoded HMAC-SHA256 digest of the value
+     */
+    public String compute(String value) {
+        Mac mac = macs.poll();
+        if (mac == null) {
+            mac = createMac();
+        }
+        try {
+            return HexFormat.of().formatHex(mac.doFinal(value.getBytes(StandardCharsets.UTF_8)));
+        } finally {
+            macs.offer(mac);
+        }
+    }
+
+    /**
+     * Creates a MAC initialized with the blind index key. MACs are pooled rather than
+     * kept per thread so that reuse also works when requests run on virtual threads; at
+     * most {@code encryption.pool-size} idle MACs are kept.
+     */
+    private Mac createMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(keySpec);
+            return mac;
+        } catch (Exception e) {
+            throw new EncryptionException("Error initializing blind index MAC: " + e.getMessage(), e);
+        }
+    }
+}
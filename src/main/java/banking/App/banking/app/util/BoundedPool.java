@@ -0,0 +1,74 @@
+package banking.App.banking.app.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free pool of reusable objects that keeps at most a fixed number of idle objects.
+ * <p>
+ * Callers borrow with {@link #poll()}, creating an object themselves when the pool is
+ * empty, and hand it back with {@link #offer(Object)}. Objects offered while the pool is
+ * full are dropped, so a burst of concurrent callers does not leave the pool holding more
+ * objects than the steady state needs.
+ * </p>
+ */
+public class BoundedPool<T> {
+
+    private final Queue<T> items = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+
+    public BoundedPool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Pool capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the pool size used when none is configured: two objects per processor.
+     */
+    public static int defaultCapacity() {
+        return 2 * Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Takes an idle object from the pool.
+     *
+     * @return an idle object, or null if the pool is empty
+     */
+    public T poll() {
+        T item = items.poll();
+        if (item != null) {
+            size.decrementAndGet();
+        }
+        return item;
+    }
+
+    /**
+     * Returns an object to the pool, or drops it if the pool is full.
+     *
+     * @param item the object to return
+     */
+    public void offer(T item) {
+        if (size.incrementAndGet() <= capacity) {
+            items.offer(item);
+        } else {
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * Drops every idle object.
+     */
+    public void clear() {
+        while (poll() != null) {
+            // drained one object
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+}
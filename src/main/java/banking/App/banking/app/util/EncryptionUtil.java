@@ -1,32 +1,73 @@
 package banking.App.banking.app.util;
 
+import banking.App.banking.app.exception.EncryptionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A utility class for encrypting and decrypting strings using AES encryption.
  * <p>
- * This class is a Spring component that initializes a secret key and a cipher
- * for encryption and decryption of data. It requires a 16-byte secret key,
+ * This class is a Spring component that initializes a secret key used for
+ * encryption and decryption of data. It requires a 16-byte secret key,
  * which should be provided in the application properties.
  * </p>
+ * <p>
+ * A {@link Cipher} is not thread-safe, so each call borrows a pair of ciphers
+ * (one per mode, initialized once) together with reusable scratch buffers from
+ * a lock-free {@link BoundedPool} and returns them afterwards. The pool keeps at
+ * most {@code encryption.pool-size} idle pairs (by default two per processor);
+ * callers beyond that create a pair that is dropped afterwards. Unlike
+ * thread-local state the pool stays effective when every request runs on a
+ * fresh virtual thread.
+ * </p>
+ * <p>
+ * Every call is timed as {@code banking.crypto} with an {@code operation} tag. Outside
+ * a Spring context the timers belong to the global registry, which discards them
+ * unless a registry has been added to it.
+ * </p>
  */
 @Component
 public class EncryptionUtil {
 
+    private static final String TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
     @Value("${encryption.key}")
     private String secretKey;
 
+    @Value("${encryption.pool-size:0}")
+    private int poolSize;
+
+    private BoundedPool<CipherState> cipherStates;
     private SecretKeySpec secretKeySpec;
-    private Cipher cipher;
+    private Timer encryptTimer = cryptoTimer(Metrics.globalRegistry, "encrypt");
+    private Timer decryptTimer = cryptoTimer(Metrics.globalRegistry, "decrypt");
+
+    /**
+     * Registers the encryption and decryption timers with the application's meter registry.
+     *
+     * @param meterRegistry the meter registry
+     */
+    @Autowired
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.encryptTimer = cryptoTimer(meterRegistry, "encrypt");
+        this.decryptTimer = cryptoTimer(meterRegistry, "decrypt");
+    }
 
     /**
-     * Initializes the EncryptionUtil by setting up the secret key and cipher.
+     * Initializes the EncryptionUtil by setting up the secret key.
      *
      * @throws Exception if the secret key is not 16 bytes or if there is an error
      *                   initializing the cipher
@@ -38,7 +79,8 @@ public class EncryptionUtil {
             throw new IllegalArgumentException("Secret key must be 16 bytes");
         }
         this.secretKeySpec = new SecretKeySpec(key, "AES");
-        this.cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        this.cipherStates = new BoundedPool<>(poolSize > 0 ? poolSize : BoundedPool.defaultCapacity());
+        cipherStates.offer(new CipherState(secretKeySpec));
     }
 
     /**
@@ -49,9 +91,18 @@ public class EncryptionUtil {
      * @throws Exception if there is an error during encryption
      */
     public String encrypt(String strToEncrypt) throws Exception {
-        cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec);
-        byte[] encrypted = cipher.doFinal(strToEncrypt.getBytes("UTF-8"));
-        return Base64.getEncoder().encodeToString(encrypted);
+        long start = System.nanoTime();
+        CipherState state = acquire();
+        try {
+            byte[] plain = strToEncrypt.getBytes(StandardCharsets.UTF_8);
+            byte[] out = state.cipherBuffer(state.encryptCipher.getOutputSize(plain.length));
+            int length = state.encryptCipher.doFinal(plain, 0, plain.length, out, 0);
+            ByteBuffer encoded = Base64.getEncoder().encode(ByteBuffer.wrap(out, 0, length));
+            return new String(encoded.array(), 0, encoded.limit(), StandardCharsets.ISO_8859_1);
+        } finally {
+            cipherStates.offer(state);
+            encryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
     /**
@@ -62,9 +113,74 @@ public class EncryptionUtil {
      * @throws Exception if there is an error during decryption
      */
     public String decrypt(String strToDecrypt) throws Exception {
-        cipher.init(Cipher.DECRYPT_MODE, secretKeySpec);
-        byte[] decoded = Base64.getDecoder().decode(strToDecrypt);
-        byte[] decrypted = cipher.doFinal(decoded);
-        return new String(decrypted, "UTF-8");
+        long start = System.nanoTime();
+        CipherState state = acquire();
+        try {
+            byte[] encoded = strToDecrypt.getBytes(StandardCharsets.ISO_8859_1);
+            byte[] decoded = state.cipherBuffer(encoded.length);
+            int decodedLength = Base64.getDecoder().decode(encoded, decoded);
+            byte[] plain = state.plainBuffer(state.decryptCipher.getOutputSize(decodedLength));
+            int length = state.decryptCipher.doFinal(decoded, 0, decodedLength, plain, 0);
+            return new String(plain, 0, length, StandardCharsets.UTF_8);
+        } finally {
+            cipherStates.offer(state);
+            decryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Borrows cipher state from the pool, creating a new one if the pool is empty.
+     * A cipher that failed mid-operation is reset by its next doFinal call, so
+     * state is always returned to the pool.
+     *
+     * @return cipher state owned exclusively by the caller until it is returned
+     */
+    private CipherState acquire() {
+        CipherState state = cipherStates.poll();
+        return state != null ? state : new CipherState(secretKeySpec);
+    }
+
+    private static Timer cryptoTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("banking.crypto")
+                .description("Time spent encrypting or decrypting one value")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Pooled encryption state: one initialized cipher per mode and two
+     * growable scratch buffers that are reused across calls.
+     */
+    private static final class CipherState {
+
+        private final Cipher encryptCipher;
+        private final Cipher decryptCipher;
+        private byte[] cipherBuffer = new byte[INITIAL_BUFFER_SIZE];
+        private byte[] plainBuffer = new byte[INITIAL_BUFFER_SIZE];
+
+        private CipherState(SecretKeySpec secretKeySpec) {
+            try {
+                this.encryptCipher = Cipher.getInstance(TRANSFORMATION);
+                this.encryptCipher.init(Cipher.ENCRYPT_MODE, secretKeySpec);
+                this.decryptCipher = Cipher.getInstance(TRANSFORMATION);
+                this.decryptCipher.init(Cipher.DECRYPT_MODE, secretKeySpec);
+            } catch (Exception e) {
+                throw new EncryptionException("Error initializing cipher: " + e.getMessage(), e);
+            }
+        }
+
+        private byte[] cipherBuffer(int size) {
+            if (cipherBuffer.length < size) {
+                cipherBuffer = new byte[Math.max(size, cipherBuffer.length * 2)];
+            }
+            return cipherBuffer;
+        }
+
+        private byte[] plainBuffer(int size) {
+            if (plainBuffer.length < size) {
+                plainBuffer = new byte[Math.max(size, plainBuffer.length * 2)];
+            }
+            return plainBuffer;
+        }
     }
 }
@@ -0,0 +1,250 @@
+package banking.App.banking.app.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only file of fixed-width balance movement records.
+ * <p>
+ * Every record is {@value #RECORD_SIZE} bytes: account ID, amount in minor units,
+ * timestamp in epoch microseconds, a type code and a checksum. Appends are buffered
+ * and written with a single {@link FileChannel#write} per {@link #flush}. A flush can
+ * also be split in two: {@link #detach()} moves the buffered records aside, and
+ * {@link #writeDetached(boolean)} writes them while new records are appended to the
+ * emptied buffer, so a caller can hold its append lock only for the detach and not for
+ * the write and fsync. Records that fail to be written stay detached and are written
+ * first by the next attempt. Replay maps
+ * the file read-only in windows of at most {@value #MAPPING_WINDOW} bytes and reads
+ * the records sequentially, so it does no per-record system call or allocation.
+ * </p>
+ * <p>
+ * A crash can leave a partially written record, or records that never reached the
+ * device, at the end of the file. Opening the file truncates such a damaged tail, so
+ * later appends follow the last complete record. A damaged record followed by an
+ * intact one cannot come from an interrupted append, so it is reported as corruption
+ * instead of being truncated together with the records after it. This class is not
+ * thread-safe; callers serialize appends and detaches with one lock, and detaches and
+ * writes with another.
+ * </p>
+ */
+public class LedgerFile implements Closeable {
+
+    public static final int RECORD_SIZE = 32;
+
+    public static final byte OPENING_BALANCE = 0;
+    public static final byte DEPOSIT = 1;
+    public static final byte WITHDRAW = 2;
+    public static final byte TRANSFER_IN = 3;
+    public static final byte TRANSFER_OUT = 4;
+
+    private static final int MAPPING_WINDOW = RECORD_SIZE * (1 << 25);
+    private static final int INITIAL_BUFFER_RECORDS = 64;
+
+    private final Path path;
+    private final FileChannel channel;
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(RECORD_SIZE * INITIAL_BUFFER_RECORDS);
+    private ByteBuffer detachedBuffer = ByteBuffer.allocateDirect(RECORD_SIZE * INITIAL_BUFFER_RECORDS);
+    private long writtenBytes;
+
+    private LedgerFile(Path path, FileChannel channel, long recordCount) {
+        this.path = path;
+        this.channel = channel;
+        this.writtenBytes = recordCount * RECORD_SIZE;
+    }
+
+    /**
+     * Opens or creates the ledger file, replays every complete record into the visitor
+     * and positions the file for appending after the last complete record.
+     *
+     * @param path    the path of the ledger file
+     * @param visitor the visitor that receives each record in file order
+     * @return the open ledger file
+     * @throws IOException if the file cannot be opened, read or truncated, or if a damaged
+     *                     record is followed by an intact one
+     */
+    public static LedgerFile open(Path path, RecordVisitor visitor) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long validRecords = replay(channel, visitor);
+            long validEnd = validRecords * RECORD_SIZE;
+            if (channel.size() > validEnd) {
+                channel.truncate(validEnd);
+            }
+            channel.position(validEnd);
+            return new LedgerFile(path, channel, validRecords);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Buffers one record. The record reaches the file on the next {@link #flush}.
+     *
+     * @param accountId       the ID of the account
+     * @param type            the record type code
+     * @param amountMinor     the non-negative amount in minor units
+     * @param timestampMicros the time of the movement in epoch microseconds
+     */
+    public void append(long accountId, byte type, long amountMinor, long timestampMicros) {
+        writeBuffer = ensureRemaining(writeBuffer, RECORD_SIZE);
+        writeBuffer.putLong(accountId)
+                .putLong(amountMinor)
+                .putLong(timestampMicros)
+                .put(type)
+                .put((byte) 0)
+                .putShort((short) 0)
+                .putInt(checksum(accountId, amountMinor, timestampMicros, type));
+    }
+
+    /**
+     * Writes all buffered records to the file.
+     *
+     * @param sync whether to force the written records to the storage device
+     * @throws IOException if the records cannot be written
+     */
+    public void flush(boolean sync) throws IOException {
+        detach();
+        writeDetached(sync);
+    }
+
+    /**
+     * Moves the buffered records behind any records detached earlier, leaving the append
+     * buffer empty.
+     */
+    public void detach() {
+        if (writeBuffer.position() == 0) {
+            return;
+        }
+        if (detachedBuffer.position() == 0) {
+            ByteBuffer emptied = detachedBuffer;
+            detachedBuffer = writeBuffer;
+            writeBuffer = emptied;
+            return;
+        }
+        writeBuffer.flip();
+        detachedBuffer = ensureRemaining(detachedBuffer, writeBuffer.remaining());
+        detachedBuffer.put(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    /**
+     * Writes the detached records to the file. If the write fails, the records that were
+     * not written stay detached.
+     *
+     * @param sync whether to force the written records to the storage device
+     * @throws IOException if the records cannot be written
+     */
+    public void writeDetached(boolean sync) throws IOException {
+        if (detachedBuffer.position() == 0) {
+            return;
+        }
+        detachedBuffer.flip();
+        try {
+            while (detachedBuffer.hasRemaining()) {
+                writtenBytes += channel.write(detachedBuffer);
+            }
+        } finally {
+            detachedBuffer.compact();
+        }
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Returns the number of records written to the file.
+     *
+     * @return the number of records
+     */
+    public long getRecordCount() {
+        return writtenBytes / RECORD_SIZE;
+    }
+
+    /**
+     * Returns the path of the ledger file.
+     *
+     * @return the path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer ensureRemaining(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    /**
+     * Reads complete, intact records from the start of the channel. Once a damaged record
+     * is found, the rest of the file is only checked for intact records.
+     *
+     * @return the number of intact records before the damaged tail
+     * @throws IOException if an intact record follows a damaged one
+     */
+    private static long replay(FileChannel channel, RecordVisitor visitor) throws IOException {
+        long size = channel.size() - channel.size() % RECORD_SIZE;
+        long records = 0;
+        boolean damaged = false;
+        for (long offset = 0; offset < size; offset += MAPPING_WINDOW) {
+            long length = Math.min(MAPPING_WINDOW, size - offset);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            for (int position = 0; position < length; position += RECORD_SIZE) {
+                long accountId = window.getLong(position);
+                long amountMinor = window.getLong(position + 8);
+                long timestampMicros = window.getLong(position + 16);
+                byte type = window.get(position + 24);
+                boolean intact = window.getInt(position + 28)
+                        == checksum(accountId, amountMinor, timestampMicros, type);
+                if (!intact) {
+                    damaged = true;
+                } else if (damaged) {
+                    throw new IOException("Ledger record " + records + " is damaged but record "
+                            + (offset + position) / RECORD_SIZE + " after it is intact");
+                } else {
+                    visitor.visit(accountId, type, amountMinor, timestampMicros);
+                    records++;
+                }
+            }
+        }
+        return records;
+    }
+
+    private static int checksum(long accountId, long amountMinor, long timestampMicros, byte type) {
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        h = (h ^ amountMinor) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ timestampMicros) * 0x94D049BB133111EBL;
+        h = (h ^ type) * 0x9E3779B97F4A7C15L;
+        int result = (int) (h ^ (h >>> 32));
+        // An all-zero region (e.g. preallocated but unwritten) must never validate.
+        return result == 0 ? 1 : result;
+    }
+
+    /**
+     * Receives the records of a ledger file during replay.
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(long accountId, byte type, long amountMinor, long timestampMicros);
+    }
+}
@@ -0,0 +1,202 @@
+package banking.App.banking.app.util;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from non-zero {@code long} keys to {@code long} values.
+ * <p>
+ * Keys and values live in two primitive arrays, so lookups and updates neither box
+ * nor allocate. Zero is reserved as the empty-slot marker, which suits positive
+ * database IDs. This class is not thread-safe.
+ * </p>
+ */
+public class LongLongMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int resizeThreshold;
+
+    public LongLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the value for the key, or the default value if the key is absent.
+     *
+     * @param key          the non-zero key
+     * @param defaultValue the value returned for an absent key
+     * @return the mapped value or the default value
+     */
+    public long get(long key, long defaultValue) {
+        int slot = find(key);
+        return keys[slot] == key ? values[slot] : defaultValue;
+    }
+
+    /**
+     * Returns whether the map contains the key.
+     *
+     * @param key the non-zero key
+     * @return true if the key is present
+     */
+    public boolean containsKey(long key) {
+        return keys[find(key)] == key;
+    }
+
+    /**
+     * Maps the key to the value.
+     *
+     * @param key   the non-zero key
+     * @param value the value
+     */
+    public void put(long key, long value) {
+        int slot = insertionSlot(key);
+        values[slot] = value;
+    }
+
+    /**
+     * Adds the delta to the value of the key, treating an absent key as zero.
+     *
+     * @param key   the non-zero key
+     * @param delta the amount to add
+     * @return the new value
+     * @throws ArithmeticException if the value overflows
+     */
+    public long addTo(long key, long delta) {
+        int slot = insertionSlot(key);
+        values[slot] = Math.addExact(values[slot], delta);
+        return values[slot];
+    }
+
+    /**
+     * Removes the key from the map.
+     *
+     * @param key the non-zero key
+     * @return true if the key was present
+     */
+    public boolean remove(long key) {
+        int mask = keys.length - 1;
+        int slot = find(key);
+        if (keys[slot] != key) {
+            return false;
+        }
+        // Backward-shift deletion: move later entries of the probe run into the gap so
+        // that lookups never stop early at an empty slot.
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != 0) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Calls the consumer for every entry, in no particular order.
+     *
+     * @param consumer the consumer of each key and value
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns an independent copy of this map.
+     *
+     * @return a copy of this map
+     */
+    public LongLongMap copy() {
+        LongLongMap copy = new LongLongMap(0);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.size = size;
+        copy.resizeThreshold = resizeThreshold;
+        return copy;
+    }
+
+    private int insertionSlot(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key must be non-zero");
+        }
+        int slot = find(key);
+        if (keys[slot] != key) {
+            if (size >= resizeThreshold) {
+                resize();
+                slot = find(key);
+            }
+            keys[slot] = key;
+            values[slot] = 0;
+            size++;
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the slot holding the key, or the empty slot where it would be inserted.
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != 0) {
+                int target = find(oldKeys[slot]);
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, 0);
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Receives the entries of a {@link LongLongMap}.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+}
@@ -0,0 +1,120 @@
+package banking.App.banking.app.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An immutable monetary amount held as a {@code long} number of minor units (cents).
+ * <p>
+ * Arithmetic and comparisons work on the primitive value, so the service and
+ * persistence layers never allocate {@link BigDecimal}s or rescale them. Conversion
+ * to and from {@link BigDecimal} happens only where amounts enter or leave the
+ * application: request and response DTOs and the JDBC column values. All arithmetic
+ * is overflow-checked.
+ * </p>
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    /**
+     * Returns the amount with the given number of minor units.
+     *
+     * @param minorUnits the amount in minor units
+     * @return the amount
+     */
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Converts a decimal amount, rounding half up to whole minor units.
+     *
+     * @param amount the decimal amount
+     * @return the amount
+     * @throws IllegalArgumentException if the amount does not fit in a long number of minor units
+     */
+    public static Money of(BigDecimal amount) {
+        try {
+            return ofMinor(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount is out of range");
+        }
+    }
+
+    /**
+     * Returns the sum of this amount and the other amount.
+     *
+     * @param other the amount to add
+     * @return the sum
+     * @throws ArithmeticException if the result overflows
+     */
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    /**
+     * Returns the difference of this amount and the other amount.
+     *
+     * @param other the amount to subtract
+     * @return the difference
+     * @throws ArithmeticException if the result overflows
+     */
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    /**
+     * Returns whether this amount is greater than zero.
+     *
+     * @return true if the amount is positive
+     */
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    /**
+     * Returns the amount in minor units.
+     *
+     * @return the amount in minor units
+     */
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    /**
+     * Converts this amount to a decimal with a scale of {@value #SCALE}.
+     *
+     * @return the decimal amount
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money money && money.minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,52 @@
+package banking.App.banking.app.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket that refills at a fixed rate up to a burst size.
+ * <p>
+ * The whole state is one {@code long}: the time at which the bucket would be full again
+ * (the generic cell rate algorithm). Taking a token moves that time forward by one
+ * refill interval with a compare-and-set, so concurrent callers never block and the
+ * bucket needs no refill timer. Times are {@link System#nanoTime()} values.
+ * </p>
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * @param permitsPerSecond the refill rate
+     * @param burst            the number of tokens the bucket holds when full
+     * @param nowNanos         the current time; the bucket starts full
+     */
+    public TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate and burst must be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * burst;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes one token if the bucket has one.
+     *
+     * @param nowNanos the current time
+     * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current - nowNanos, 0) + intervalNanos;
+            if (next > toleranceNanos) {
+                return next - toleranceNanos;
+            }
+            if (fullAt.compareAndSet(current, nowNanos + next)) {
+                return 0;
+            }
+        }
+    }
+}
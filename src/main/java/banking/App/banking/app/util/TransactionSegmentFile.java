@@ -0,0 +1,403 @@
+package banking.App.banking.app.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An immutable, compressed file of archived transactions.
+ * <p>
+ * Records are {@value #RECORD_SIZE} bytes before compression: account ID, transaction ID,
+ * timestamp in epoch microseconds, amount in minor units and a type code. They must be
+ * written sorted by account ID, timestamp and transaction ID, and are grouped into blocks
+ * of up to {@value #BLOCK_RECORDS} records that are deflate-compressed independently. An
+ * index at the end of the file holds each block's first and last account ID, position and
+ * checksum, so reading one account's transactions decompresses only the blocks that can
+ * contain it.
+ * </p>
+ * <p>
+ * A file is written to a temporary path and moved into place by {@link Writer#finish()},
+ * so a segment either exists completely or not at all, and is never modified afterwards.
+ * An open segment can be read by several threads at once.
+ * </p>
+ */
+public class TransactionSegmentFile implements Closeable {
+
+    public static final int RECORD_SIZE = 33;
+
+    public static final byte DEPOSIT = 1;
+    public static final byte WITHDRAW = 2;
+    public static final byte TRANSFER_IN = 3;
+    public static final byte TRANSFER_OUT = 4;
+
+    static final int BLOCK_RECORDS = 4096;
+
+    private static final int MAGIC = 0x54585347;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int INDEX_ENTRY_SIZE = 36;
+    private static final int TRAILER_SIZE = 24;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long recordCount;
+    private final long[] firstAccountIds;
+    private final long[] lastAccountIds;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] blockRecords;
+    private final int[] checksums;
+
+    private TransactionSegmentFile(Path path, FileChannel channel, long recordCount, int blockCount) {
+        this.path = path;
+        this.channel = channel;
+        this.recordCount = recordCount;
+        this.firstAccountIds = new long[blockCount];
+        this.lastAccountIds = new long[blockCount];
+        this.offsets = new long[blockCount];
+        this.compressedLengths = new int[blockCount];
+        this.blockRecords = new int[blockCount];
+        this.checksums = new int[blockCount];
+    }
+
+    /**
+     * Starts writing a new segment file.
+     *
+     * @param path the path the finished segment will have
+     * @return a writer for the segment
+     * @throws IOException if the temporary file cannot be created
+     */
+    public static Writer create(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        return new Writer(path);
+    }
+
+    /**
+     * Opens a finished segment file and reads its index.
+     *
+     * @param path the path of the segment
+     * @return the open segment
+     * @throws IOException if the file cannot be read or is not a complete segment
+     */
+    public static TransactionSegmentFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) {
+                throw new IOException("Segment " + path + " is truncated");
+            }
+            ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            long indexOffset = trailer.getLong();
+            int blockCount = trailer.getInt();
+            long recordCount = trailer.getLong();
+            if (trailer.getInt() != MAGIC || indexOffset + (long) blockCount * INDEX_ENTRY_SIZE != size - TRAILER_SIZE) {
+                throw new IOException("Segment " + path + " has no valid trailer");
+            }
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Segment " + path + " has an unsupported format");
+            }
+
+            TransactionSegmentFile segment = new TransactionSegmentFile(path, channel, recordCount, blockCount);
+            ByteBuffer index = readFully(channel, indexOffset, blockCount * INDEX_ENTRY_SIZE);
+            for (int block = 0; block < blockCount; block++) {
+                segment.firstAccountIds[block] = index.getLong();
+                segment.lastAccountIds[block] = index.getLong();
+                segment.offsets[block] = index.getLong();
+                segment.compressedLengths[block] = index.getInt();
+                segment.blockRecords[block] = index.getInt();
+                segment.checksums[block] = index.getInt();
+            }
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Visits the records of one account in timestamp and ID order, until the visitor
+     * returns false.
+     *
+     * @param accountId the ID of the account
+     * @param visitor   the visitor that receives each record
+     * @throws IOException if a block cannot be read or fails its checksum
+     */
+    public void read(long accountId, RecordVisitor visitor) throws IOException {
+        for (int block = firstBlock(accountId); block < offsets.length && firstAccountIds[block] <= accountId; block++) {
+            ByteBuffer records = readBlock(block);
+            while (records.hasRemaining()) {
+                long recordAccountId = records.getLong();
+                long id = records.getLong();
+                long timestampMicros = records.getLong();
+                long amountMinor = records.getLong();
+                byte type = records.get();
+                if (recordAccountId == accountId) {
+                    if (!visitor.visit(recordAccountId, id, timestampMicros, amountMinor, type)) {
+                        return;
+                    }
+                } else if (recordAccountId > accountId) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of records in the segment.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the path of the segment.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Returns the stored type code of a transaction type.
+     *
+     * @throws IllegalArgumentException if the type is unknown
+     */
+    public static byte typeCode(String transactionType) {
+        return switch (transactionType) {
+            case "DEPOSIT" -> DEPOSIT;
+            case "WITHDRAW" -> WITHDRAW;
+            case "TRANSFER_IN" -> TRANSFER_IN;
+            case "TRANSFER_OUT" -> TRANSFER_OUT;
+            default -> throw new IllegalArgumentException("Unknown transaction type " + transactionType);
+        };
+    }
+
+    /**
+     * Returns the transaction type of a stored type code.
+     *
+     * @throws IllegalArgumentException if the code is unknown
+     */
+    public static String typeName(byte type) {
+        return switch (type) {
+            case DEPOSIT -> "DEPOSIT";
+            case WITHDRAW -> "WITHDRAW";
+            case TRANSFER_IN -> "TRANSFER_IN";
+            case TRANSFER_OUT -> "TRANSFER_OUT";
+            default -> throw new IllegalArgumentException("Unknown transaction type code " + type);
+        };
+    }
+
+    /**
+     * Returns the first block whose last account ID is not below the account ID.
+     */
+    private int firstBlock(long accountId) {
+        int low = 0;
+        int high = lastAccountIds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lastAccountIds[middle] < accountId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private ByteBuffer readBlock(int block) throws IOException {
+        ByteBuffer compressed = readFully(channel, offsets[block], compressedLengths[block]);
+        CRC32 crc = new CRC32();
+        crc.update(compressed.duplicate());
+        if ((int) crc.getValue() != checksums[block]) {
+            throw new IOException("Block " + block + " of segment " + path + " is corrupt");
+        }
+        byte[] records = new byte[blockRecords[block] * RECORD_SIZE];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = inflater.inflate(records);
+            if (length != records.length || !inflater.finished()) {
+                throw new IOException("Block " + block + " of segment " + path + " has the wrong length");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Block " + block + " of segment " + path + " cannot be decompressed", e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(records);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Receives the records of a segment; returns false to stop reading.
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        boolean visit(long accountId, long id, long timestampMicros, long amountMinor, byte type);
+    }
+
+    /**
+     * Writes the records of a new segment in sort order. Not thread-safe.
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path path;
+        private final Path temporaryPath;
+        private final FileChannel channel;
+        private final ByteBuffer block = ByteBuffer.allocate(BLOCK_RECORDS * RECORD_SIZE);
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private byte[] compressed = new byte[BLOCK_RECORDS * RECORD_SIZE];
+        private long position = HEADER_SIZE;
+        private long recordCount;
+        private int blockCount;
+        private long blockFirstAccountId;
+        private long lastAccountId = Long.MIN_VALUE;
+        private long lastTimestampMicros = Long.MIN_VALUE;
+        private long lastId = Long.MIN_VALUE;
+        private boolean finished;
+
+        private Writer(Path path) throws IOException {
+            this.path = path;
+            this.temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            writeFully(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(), 0);
+        }
+
+        /**
+         * Appends one record.
+         *
+         * @throws IllegalArgumentException if the record does not sort after the previous one
+         * @throws IOException              if a full block cannot be written
+         */
+        public void append(long accountId, long id, long timestampMicros, long amountMinor, byte type)
+                throws IOException {
+            if (accountId < lastAccountId
+                    || accountId == lastAccountId && (timestampMicros < lastTimestampMicros
+                    || timestampMicros == lastTimestampMicros && id <= lastId)) {
+                throw new IllegalArgumentException("Segment records must be sorted by account, timestamp and ID");
+            }
+            if (block.position() == 0) {
+                blockFirstAccountId = accountId;
+            }
+            block.putLong(accountId).putLong(id).putLong(timestampMicros).putLong(amountMinor).put(type);
+            lastAccountId = accountId;
+            lastTimestampMicros = timestampMicros;
+            lastId = id;
+            recordCount++;
+            if (!block.hasRemaining()) {
+                writeBlock();
+            }
+        }
+
+        /**
+         * Returns the number of records appended so far.
+         */
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * Writes the index, forces the file to the storage device and moves it into place.
+         *
+         * @return the number of records in the segment
+         * @throws IOException if the segment cannot be written or moved
+         */
+        public long finish() throws IOException {
+            if (block.position() > 0) {
+                writeBlock();
+            }
+            long indexOffset = position;
+            writeFully(ByteBuffer.wrap(index.toByteArray()), position);
+            position += index.size();
+            writeFully(ByteBuffer.allocate(TRAILER_SIZE)
+                    .putLong(indexOffset)
+                    .putInt(blockCount)
+                    .putLong(recordCount)
+                    .putInt(MAGIC)
+                    .flip(), position);
+            channel.force(true);
+            channel.close();
+            deflater.end();
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            finished = true;
+            return recordCount;
+        }
+
+        /**
+         * Discards the segment unless it has been finished.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                channel.close();
+                deflater.end();
+                Files.deleteIfExists(temporaryPath);
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            int records = block.position() / RECORD_SIZE;
+            deflater.reset();
+            deflater.setInput(block.array(), 0, block.position());
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(compressed, 0, length);
+            writeFully(ByteBuffer.wrap(compressed, 0, length), position);
+
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE)
+                    .putLong(blockFirstAccountId)
+                    .putLong(lastAccountId)
+                    .putLong(position)
+                    .putInt(length)
+                    .putInt(records)
+                    .putInt((int) crc.getValue());
+            index.write(entry.array(), 0, INDEX_ENTRY_SIZE);
+            position += length;
+            blockCount++;
+            block.clear();
+        }
+
+        private void writeFully(ByteBuffer buffer, long offset) throws IOException {
+            long at = offset;
+            while (buffer.hasRemaining()) {
+                at += channel.write(buffer, at);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package banking.App.banking.app.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * HTTP load driver for comparing request execution modes of a running instance,
+ * e.g. with {@code spring.threads.virtual.enabled} off and on.
+ * <p>
+ * Keeps a fixed number of deposit and read requests in flight against one account
+ * and logs throughput, p50/p99/max latency and the error count. Concurrency is
+ * measured on the server: while the load runs, a sampler polls the actuator metrics
+ * for requests being served ({@code http.server.requests.active}), requests admitted
+ * by admission control ({@code banking.admission.in.flight}) and Hikari connections in
+ * use and waited for, and logs the highest value of each.
+ * </p>
+ * Usage: {@code AccountApiLoadDriver [baseUrl] [concurrency] [requests] [actuatorUrl]}
+ */
+public class AccountApiLoadDriver {
+
+	private static final Logger logger = LoggerFactory.getLogger(AccountApiLoadDriver.class);
+
+	private static final Pattern ID_PATTERN = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+	private static final Duration SAMPLE_INTERVAL = Duration.ofMillis(20);
+
+	/** Actuator metric name to the statistic sampled from it. */
+	private static final Map<String, String> SERVER_METRICS = new LinkedHashMap<>();
+
+	static {
+		SERVER_METRICS.put("http.server.requests.active", "ACTIVE_TASKS");
+		SERVER_METRICS.put("banking.admission.in.flight", "VALUE");
+		SERVER_METRICS.put("hikaricp.connections.active", "VALUE");
+		SERVER_METRICS.put("hikaricp.connections.pending", "VALUE");
+	}
+
+	public static void main(String[] args) throws Exception {
+		String baseUrl = args.length > 0 ? args[0] : "http://localhost:8087/api/account";
+		int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		int requests = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+		String actuatorUrl = args.length > 3 ? args[3] : URI.create(baseUrl).resolve("/actuator/metrics/").toString();
+
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+		String created = client.send(json(baseUrl, "POST", "{\"accountHolderName\":\"Load Driver\"}"),
+				HttpResponse.BodyHandlers.ofString()).body();
+		Matcher matcher = ID_PATTERN.matcher(created);
+		if (!matcher.find()) {
+			throw new IllegalStateException("Could not create account: " + created);
+		}
+		String accountUrl = baseUrl + "/" + matcher.group(1);
+
+		long[] latencies = new long[requests];
+		Semaphore permits = new Semaphore(concurrency);
+		AtomicInteger errors = new AtomicInteger();
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[requests];
+		ServerSampler sampler = new ServerSampler(actuatorUrl);
+		Thread samplerThread = new Thread(sampler, "server-metrics-sampler");
+		samplerThread.setDaemon(true);
+		samplerThread.start();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			permits.acquire();
+			HttpRequest request = i % 2 == 0
+					? json(accountUrl + "/deposit", "PUT", "{\"amount\":1}")
+					: HttpRequest.newBuilder(URI.create(accountUrl)).GET().build();
+			int index = i;
+			long sent = System.nanoTime();
+			futures[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+					.whenComplete((response, failure) -> {
+						latencies[index] = System.nanoTime() - sent;
+						if (failure != null || response.statusCode() >= 400) {
+							errors.incrementAndGet();
+						}
+						permits.release();
+					});
+		}
+		CompletableFuture.allOf(futures).exceptionally(failure -> null).join();
+		double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+		samplerThread.interrupt();
+		samplerThread.join();
+
+		Arrays.sort(latencies);
+		logger.info("requests={} concurrency={} throughput={} req/s p50={}ms p99={}ms max={}ms errors={}",
+				requests, concurrency, Math.round(requests / seconds),
+				millis(latencies[(int) (requests * 0.50)]), millis(latencies[(int) (requests * 0.99)]),
+				millis(latencies[requests - 1]), errors.get());
+		logger.info("server maxima over {} samples: {}", sampler.samples, sampler.maxima);
+	}
+
+	private static HttpRequest json(String url, String method, String body) {
+		return HttpRequest.newBuilder(URI.create(url))
+				.header("Content-Type", "application/json")
+				.method(method, HttpRequest.BodyPublishers.ofString(body))
+				.build();
+	}
+
+	private static String millis(long nanos) {
+		return String.format("%.1f", nanos / 1e6);
+	}
+
+	/**
+	 * Polls the actuator metrics endpoint and keeps the highest value seen per metric.
+	 * Metrics the instance does not publish are skipped.
+	 */
+	private static final class ServerSampler implements Runnable {
+
+		private final HttpClient client = HttpClient.newHttpClient();
+		private final String actuatorUrl;
+		private final Map<String, Double> maxima = new LinkedHashMap<>();
+		private int samples;
+
+		ServerSampler(String actuatorUrl) {
+			this.actuatorUrl = actuatorUrl;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					for (Map.Entry<String, String> metric : SERVER_METRICS.entrySet()) {
+						Double value = sample(metric.getKey(), metric.getValue());
+						if (value != null) {
+							maxima.merge(metric.getKey(), value, Math::max);
+						}
+					}
+					samples++;
+					Thread.sleep(SAMPLE_INTERVAL.toMillis());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private Double sample(String name, String statistic) throws InterruptedException {
+			try {
+				HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(actuatorUrl + name))
+						.timeout(Duration.ofSeconds(10)).GET().build(), HttpResponse.BodyHandlers.ofString());
+				if (response.statusCode() != 200) {
+					return null;
+				}
+				Matcher matcher = Pattern.compile("\"statistic\"\\s*:\\s*\"" + statistic
+						+ "\"\\s*,\\s*\"value\"\\s*:\\s*([0-9.Ee+-]+)").matcher(response.body());
+				return matcher.find() ? Double.valueOf(matcher.group(1)) : null;
+			} catch (IOException e) {
+				return null;
+			}
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package banking.App.banking.app.benchmark;
+
+import banking.App.banking.app.dto.AccountDetails;
+import banking.App.banking.app.dto.mapper.AccountMapper;
+import banking.App.banking.app.entity.Account;
+import banking.App.banking.app.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountMapperBenchmark {
+
+	private Account account;
+	private AccountDetails accountDetails;
+
+	@Setup
+	public void setUp() {
+		account = new Account();
+		account.setId(42L);
+		account.setAccountHolderName("Jane Account Holder");
+		account.setBalance(Money.ofMinor(123456));
+		account.setAccountNumber("483920174625");
+		accountDetails = new AccountDetails(42L, "Jane Account Holder", new BigDecimal("1234.56"), "483920174625");
+	}
+
+	@Benchmark
+	public AccountDetails mapToAccountDetails() {
+		return AccountMapper.mapToAccountDetails(account);
+	}
+
+	@Benchmark
+	public AccountDetails maskAccountNumber() {
+		accountDetails.setAccountNumber("483920174625");
+		return AccountMapper.maskAccountDetails(accountDetails);
+	}
+}
@@ -0,0 +1,32 @@
+package banking.App.banking.app.benchmark;
+
+import banking.App.banking.app.util.AccountNumberPermutation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountNumberBenchmark {
+
+	private final AccountNumberPermutation permutation = new AccountNumberPermutation(7368122093041729L);
+	private long sequence;
+
+	@Benchmark
+	public String formatAccountNumber() {
+		sequence = (sequence + 1) % AccountNumberPermutation.DOMAIN_SIZE;
+		return permutation.format(sequence);
+	}
+}
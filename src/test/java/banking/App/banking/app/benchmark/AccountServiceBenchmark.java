@@ -0,0 +1,75 @@
+package banking.App.banking.app.benchmark;
+
+import banking.App.banking.app.BankingAppApplication;
+import banking.App.banking.app.dto.AccountDetails;
+import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.services.AccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end service benchmarks against the embedded H2 database of the test profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountServiceBenchmark {
+
+	private ConfigurableApplicationContext context;
+	private AccountService accountService;
+	private Long accountId;
+
+	@Setup
+	public void setUp() {
+		SpringApplication application = new SpringApplication(BankingAppApplication.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		application.setAdditionalProfiles("test");
+		context = application.run("--logging.level.root=WARN");
+		accountService = context.getBean(AccountService.class);
+		accountId = accountService.createAccount(new CreateAccountRequest("Benchmark Account")).getId();
+		accountService.deposit(accountId, new BigDecimal("1000000000000"));
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public AccountDetails deposit() {
+		return accountService.deposit(accountId, BigDecimal.ONE);
+	}
+
+	@Benchmark
+	public AccountDetails withdraw() {
+		return accountService.withdraw(accountId, BigDecimal.ONE);
+	}
+
+	@Benchmark
+	public AccountDetails getAccountById() {
+		return accountService.getAccountById(accountId);
+	}
+
+	@Benchmark
+	public AccountDetails createAccount() {
+		return accountService.createAccount(new CreateAccountRequest("Benchmark Account"));
+	}
+}
@@ -0,0 +1,57 @@
+package banking.App.banking.app.benchmark;
+
+import banking.App.banking.app.converter.AttributeEncryptor;
+import banking.App.banking.app.converter.DecryptedValueCache;
+import banking.App.banking.app.util.EncryptionUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributeEncryptorBenchmark {
+
+	@Param({"false", "true"})
+	public boolean cacheEnabled;
+
+	private AttributeEncryptor attributeEncryptor;
+	private String plaintext;
+	private String ciphertext;
+
+	@Setup
+	public void setUp() throws Exception {
+		EncryptionUtil encryptionUtil = new EncryptionUtil();
+		ReflectionTestUtils.setField(encryptionUtil, "secretKey", "1234567890123456");
+		encryptionUtil.init();
+		attributeEncryptor = new AttributeEncryptor(encryptionUtil,
+				new DecryptedValueCache(cacheEnabled, 10_000, Duration.ofMinutes(10)));
+		plaintext = "Jane Account Holder";
+		ciphertext = attributeEncryptor.convertToDatabaseColumn(plaintext);
+	}
+
+	@Benchmark
+	public String roundTrip() {
+		return attributeEncryptor.convertToEntityAttribute(attributeEncryptor.convertToDatabaseColumn(plaintext));
+	}
+
+	@Benchmark
+	public String hydrate() {
+		return attributeEncryptor.convertToEntityAttribute(ciphertext);
+	}
+}
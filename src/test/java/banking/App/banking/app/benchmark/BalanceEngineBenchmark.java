@@ -0,0 +1,107 @@
+package banking.App.banking.app.benchmark;
+
+import banking.App.banking.app.BankingAppApplication;
+import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.services.AccountService;
+import banking.App.banking.app.services.BalanceEngine;
+import banking.App.banking.app.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-threaded throughput of the in-memory balance engine ({@code balance-engine.enabled=true})
+ * against the embedded H2 database of the test profile, which only receives checkpoints.
+ * Runs with one thread per available processor; with {@code awaitFlush=true} every
+ * operation waits for the group fsync of the log. The log directory is discarded after each
+ * trial, together with the in-memory database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+@Fork(1)
+public class BalanceEngineBenchmark {
+
+	private static final Path LOG_DIRECTORY = Path.of("target", "balance-engine-benchmark");
+
+	@Param({"false", "true"})
+	public boolean awaitFlush;
+
+	@Param({"1000"})
+	public int accounts;
+
+	private ConfigurableApplicationContext context;
+	private AccountService accountService;
+	private BalanceEngine balanceEngine;
+	private long[] accountIds;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		FileSystemUtils.deleteRecursively(LOG_DIRECTORY);
+		SpringApplication application = new SpringApplication(BankingAppApplication.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		application.setAdditionalProfiles("test");
+		context = application.run("--logging.level.root=WARN",
+				"--balance-engine.enabled=true",
+				"--balance-engine.log-directory=" + LOG_DIRECTORY,
+				"--balance-engine.await-flush=" + awaitFlush);
+		accountService = context.getBean(AccountService.class);
+		balanceEngine = context.getBean(BalanceEngine.class);
+		accountIds = new long[accounts];
+		for (int i = 0; i < accounts; i++) {
+			accountIds[i] = accountService.createAccount(new CreateAccountRequest("Benchmark Account " + i)).getId();
+			balanceEngine.deposit(accountIds[i], Money.of(new BigDecimal("1000000000")));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		context.close();
+		FileSystemUtils.deleteRecursively(LOG_DIRECTORY);
+	}
+
+	@Benchmark
+	public Money engineDeposit() {
+		return balanceEngine.deposit(randomAccount(), Money.ofMinor(1));
+	}
+
+	@Benchmark
+	public Money engineTransfer() {
+		long from = randomAccount();
+		long to = randomAccount();
+		return from == to ? Money.ZERO : balanceEngine.transfer(from, to, Money.ofMinor(1));
+	}
+
+	@Benchmark
+	public Object serviceDeposit() {
+		return accountService.deposit(randomAccount(), BigDecimal.ONE);
+	}
+
+	private long randomAccount() {
+		return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+	}
+}
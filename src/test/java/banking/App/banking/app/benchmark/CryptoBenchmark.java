@@ -0,0 +1,48 @@
+package banking.App.banking.app.benchmark;
+
+import banking.App.banking.app.util.EncryptionUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoBenchmark {
+
+	private EncryptionUtil encryptionUtil;
+	private String plaintext;
+	private String ciphertext;
+
+	@Setup
+	public void setUp() throws Exception {
+		encryptionUtil = new EncryptionUtil();
+		ReflectionTestUtils.setField(encryptionUtil, "secretKey", "1234567890123456");
+		encryptionUtil.init();
+		plaintext = "483920174625";
+		ciphertext = encryptionUtil.encrypt(plaintext);
+	}
+
+	@Benchmark
+	public String encrypt() throws Exception {
+		return encryptionUtil.encrypt(plaintext);
+	}
+
+	@Benchmark
+	public String decrypt() throws Exception {
+		return encryptionUtil.decrypt(ciphertext);
+	}
+}
@@ -0,0 +1,81 @@
+package banking.App.banking.app.benchmark;
+
+import banking.App.banking.app.util.LedgerFile;
+import banking.App.banking.app.util.LongLongMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the startup replay of a ledger file into per-account balances.
+ * Use {@code -p records=100000000} for a production-sized ledger.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LedgerReplayBenchmark {
+
+	private static final int FLUSH_EVERY = 100_000;
+
+	@Param({"1000000"})
+	private long records;
+
+	@Param({"100000"})
+	private int accounts;
+
+	private Path file;
+
+	@Setup(Level.Trial)
+	public void writeLedger() throws IOException {
+		file = Files.createTempFile("ledger-replay", ".bin");
+		try (LedgerFile ledger = LedgerFile.open(file, (accountId, type, amountMinor, timestampMicros) -> {
+		})) {
+			long timestamp = System.currentTimeMillis() * 1000;
+			for (long i = 0; i < records; i++) {
+				byte type = i < accounts ? LedgerFile.OPENING_BALANCE : (i % 3 == 0 ? LedgerFile.WITHDRAW : LedgerFile.DEPOSIT);
+				ledger.append(i % accounts + 1, type, 100 + i % 10_000, timestamp + i);
+				if (i % FLUSH_EVERY == FLUSH_EVERY - 1) {
+					ledger.flush(false);
+				}
+			}
+			ledger.flush(true);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteLedger() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public LongLongMap replay() throws IOException {
+		LongLongMap balances = new LongLongMap(accounts);
+		LedgerFile ledger = LedgerFile.open(file, (accountId, type, amountMinor, timestampMicros) -> {
+			if (type == LedgerFile.OPENING_BALANCE) {
+				balances.put(accountId, amountMinor);
+			} else {
+				balances.addTo(accountId, type == LedgerFile.WITHDRAW ? -amountMinor : amountMinor);
+			}
+		});
+		ledger.close();
+		return balances;
+	}
+}
@@ -0,0 +1,65 @@
+package banking.App.banking.app.benchmark;
+
+import banking.App.banking.app.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares applying a deposit and a withdrawal to a running balance with {@link BigDecimal}
+ * arithmetic, as the service did before, against {@link Money} minor units. Run with
+ * {@code -prof gc} to compare allocation rates as well as throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+	private final BigDecimal requestAmount = new BigDecimal("12.34");
+	private final Money amount = Money.of(requestAmount);
+	private BigDecimal decimalBalance = new BigDecimal("1000000.00");
+	private long balance = Money.of(decimalBalance).getMinorUnits();
+
+	@Benchmark
+	public BigDecimal bigDecimalBalance() {
+		if (requestAmount.compareTo(BigDecimal.ZERO) <= 0) {
+			throw new IllegalArgumentException();
+		}
+		BigDecimal scaled = requestAmount.setScale(2, RoundingMode.HALF_UP);
+		decimalBalance = decimalBalance.add(scaled);
+		if (decimalBalance.compareTo(scaled) >= 0) {
+			decimalBalance = decimalBalance.subtract(scaled);
+		}
+		return decimalBalance;
+	}
+
+	@Benchmark
+	public long moneyBalance() {
+		if (!amount.isPositive()) {
+			throw new IllegalArgumentException();
+		}
+		balance = Math.addExact(balance, amount.getMinorUnits());
+		if (balance >= amount.getMinorUnits()) {
+			balance -= amount.getMinorUnits();
+		}
+		return balance;
+	}
+
+	@Benchmark
+	public Money moneyFromRequest() {
+		return Money.of(requestAmount);
+	}
+}
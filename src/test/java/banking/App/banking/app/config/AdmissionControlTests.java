@@ -0,0 +1,132 @@
+package banking.App.banking.app.config;
+
+import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.services.AccountService;
+import banking.App.banking.app.util.AdaptiveConcurrencyLimit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"admission-control.enabled=true",
+		"admission-control.account-rate=0.001",
+		"admission-control.account-burst=2"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AdmissionControlTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private AccountService accountService;
+
+	@SpyBean
+	private AdaptiveConcurrencyLimit concurrencyLimit;
+
+	@Test
+	void accountOutOfTokensIsRejectedWithRetryAfter() throws Exception {
+		Long id = createAccount("Limited Account");
+
+		mockMvc.perform(get("/api/account/{id}", id)).andExpect(status().isOk());
+		mockMvc.perform(get("/api/account/{id}", id)).andExpect(status().isOk());
+		mockMvc.perform(get("/api/account/{id}", id))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().exists("Retry-After"))
+				.andExpect(jsonPath("$.errorCode").value("TOO_MANY_REQUESTS"));
+
+		assertThat(Long.parseLong(mockMvc.perform(get("/api/account/{id}", id)).andReturn().getResponse()
+				.getHeader("Retry-After"))).isPositive();
+		assertThat(concurrencyLimit.getInFlight()).isZero();
+	}
+
+	@Test
+	void transferChargesItsTargetAccount() throws Exception {
+		Long target = createAccount("Transfer Target");
+		for (int i = 0; i < 2; i++) {
+			Long source = createAccount("Transfer Source " + i);
+			mockMvc.perform(put("/api/account/{id}/transfer", source).contentType(MediaType.APPLICATION_JSON)
+							.content("{\"toAccountId\": " + target + ", \"amount\": 1}"))
+					.andExpect(status().isBadRequest());
+		}
+
+		Long source = createAccount("Rejected Transfer Source");
+		mockMvc.perform(put("/api/account/{id}/transfer", source).contentType(MediaType.APPLICATION_JSON)
+						.content("{\"toAccountId\": " + target + ", \"amount\": 1}"))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().exists("Retry-After"));
+		mockMvc.perform(get("/api/account/{id}", target)).andExpect(status().isTooManyRequests());
+	}
+
+	@Test
+	void batchChargesEveryAccountItNames() throws Exception {
+		Long limited = createAccount("Batch Account");
+		Long other = createAccount("Other Batch Account");
+		String batch = "{\"operations\": [" +
+				"{\"accountId\": " + limited + ", \"transactionType\": \"DEPOSIT\", \"amount\": 1}," +
+				"{\"accountId\": " + limited + ", \"transactionType\": \"DEPOSIT\", \"amount\": 1}," +
+				"{\"accountId\": " + other + ", \"transactionType\": \"DEPOSIT\", \"amount\": 1}]}";
+
+		for (int i = 0; i < 2; i++) {
+			mockMvc.perform(post("/api/account/transactions/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+					.andExpect(status().isOk());
+		}
+		mockMvc.perform(post("/api/account/transactions/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+				.andExpect(status().isTooManyRequests());
+		mockMvc.perform(get("/api/account/{id}", limited)).andExpect(status().isTooManyRequests());
+		assertThat(accountService.getAccountById(limited).getBalance()).isEqualByComparingTo("4");
+	}
+
+	@Test
+	void streamReleasesItsPermitAfterTheAsyncDispatchWithoutALatencySample() throws Exception {
+		createAccount("Streamed Account");
+		clearInvocations(concurrencyLimit);
+
+		MvcResult result = mockMvc.perform(get("/api/account/stream"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		assertThat(concurrencyLimit.getInFlight()).isEqualTo(1);
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+		assertThat(concurrencyLimit.getInFlight()).isZero();
+		verify(concurrencyLimit).release();
+		verify(concurrencyLimit, never()).release(anyLong(), anyLong());
+	}
+
+	@Test
+	void importReleasesItsPermitWithoutALatencySample() throws Exception {
+		clearInvocations(concurrencyLimit);
+
+		mockMvc.perform(post("/api/account/import").contentType("text/csv").content("accountHolderName\nImported Holder\n"))
+				.andExpect(status().isOk());
+
+		assertThat(concurrencyLimit.getInFlight()).isZero();
+		verify(concurrencyLimit).release();
+		verify(concurrencyLimit, never()).release(anyLong(), anyLong());
+	}
+
+	private Long createAccount(String holderName) {
+		return accountService.createAccount(new CreateAccountRequest(holderName)).getId();
+	}
+}
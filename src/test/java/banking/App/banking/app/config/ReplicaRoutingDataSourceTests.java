@@ -0,0 +1,124 @@
+package banking.App.banking.app.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTests {
+
+	private JdbcTemplate replica;
+	private ReplicaRoutingDataSource routingDataSource;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate readWrite;
+	private TransactionTemplate readOnly;
+
+	@BeforeEach
+	void setUp() {
+		DataSource primaryDataSource = h2("routing-primary", "primary");
+		DataSource replicaDataSource = h2("routing-replica", "replica");
+		replica = new JdbcTemplate(replicaDataSource);
+		replica.execute("CREATE TABLE replica_lag (seconds DOUBLE)");
+		replica.update("INSERT INTO replica_lag VALUES (0)");
+
+		routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, Map.of("replica-1", replicaDataSource),
+				"SELECT seconds FROM replica_lag", Duration.ofSeconds(5));
+		routingDataSource.afterPropertiesSet();
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+		readWrite = new TransactionTemplate(transactionManager);
+		readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		ReplicaRoutingDataSource.setPrimaryRequired(false);
+		jdbcTemplate.execute("DROP ALL OBJECTS");
+		replica.execute("DROP ALL OBJECTS");
+	}
+
+	@Test
+	void readOnlyTransactionsGoToTheReplicaAndWritesToThePrimary() {
+		assertThat(readOnlyNode()).isEqualTo("replica");
+		assertThat(readWriteNode()).isEqualTo("primary");
+		assertThat(node()).isEqualTo("primary");
+	}
+
+	@Test
+	void laggingReplicaIsSkippedUntilItCatchesUp() {
+		replica.update("UPDATE replica_lag SET seconds = 30");
+		routingDataSource.checkReplicaLag();
+		assertThat(readOnlyNode()).isEqualTo("primary");
+
+		replica.update("UPDATE replica_lag SET seconds = 1");
+		routingDataSource.checkReplicaLag();
+		assertThat(readOnlyNode()).isEqualTo("replica");
+	}
+
+	@Test
+	void primaryRequiredReadsItsOwnWrites() {
+		ReplicaRoutingDataSource.setPrimaryRequired(true);
+		assertThat(readOnlyNode()).isEqualTo("primary");
+
+		ReplicaRoutingDataSource.setPrimaryRequired(false);
+		assertThat(readOnlyNode()).isEqualTo("replica");
+	}
+
+	@Test
+	void readAfterAWriteThatIsStillBeingCompletedGoesToThePrimary() throws Exception {
+		ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(Duration.ofSeconds(5), 100);
+		MockHttpServletRequest write = new MockHttpServletRequest("POST", "/api/account/1/deposit");
+		write.addHeader(ReadYourWritesInterceptor.CLIENT_ID_HEADER, "client-1");
+		// The write is handled on another thread and has not reached afterCompletion yet.
+		Thread writer = new Thread(() -> interceptor.preHandle(write, new MockHttpServletResponse(), null));
+		writer.start();
+		writer.join();
+
+		MockHttpServletRequest read = new MockHttpServletRequest("GET", "/api/account/1");
+		read.addHeader(ReadYourWritesInterceptor.CLIENT_ID_HEADER, "client-1");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		interceptor.preHandle(read, response, null);
+		assertThat(readOnlyNode()).isEqualTo("primary");
+		interceptor.afterCompletion(read, response, null, null);
+
+		MockHttpServletRequest otherClient = new MockHttpServletRequest("GET", "/api/account/1");
+		otherClient.addHeader(ReadYourWritesInterceptor.CLIENT_ID_HEADER, "client-2");
+		interceptor.preHandle(otherClient, new MockHttpServletResponse(), null);
+		assertThat(readOnlyNode()).isEqualTo("replica");
+	}
+
+	private String readOnlyNode() {
+		return readOnly.execute(status -> node());
+	}
+
+	private String readWriteNode() {
+		return readWrite.execute(status -> node());
+	}
+
+	private String node() {
+		return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+	}
+
+	private static DataSource h2(String database, String name) {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(16))");
+		jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+		return dataSource;
+	}
+}
@@ -0,0 +1,99 @@
+package banking.App.banking.app.config;
+
+import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.repository.AccountRepository;
+import banking.App.banking.app.services.AccountService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:routing-jpa-primary;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+		"replica-routing.enabled=true",
+		"replica-routing.urls=" + ReplicaRoutingJpaTests.REPLICA_URL,
+		"replica-routing.lag-query=SELECT seconds FROM replica_lag"
+})
+@ActiveProfiles("test")
+class ReplicaRoutingJpaTests {
+
+	static final String REPLICA_URL =
+			"jdbc:h2:mem:routing-jpa-replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private AccountRepository accountRepository;
+
+	@Autowired
+	private ReplicaRoutingDataSource routingDataSource;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void accountCacheNeverHoldsAReplicaRead() throws Exception {
+		assertThat(transactionManager).isInstanceOf(JpaTransactionManager.class);
+		Long id = accountService.createAccount(new CreateAccountRequest("Replica Account")).getId();
+		copyPrimaryToReplica();
+		accountService.deposit(id, BigDecimal.TEN);
+
+		TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+		readOnly.executeWithoutResult(status -> {
+			assertThat(accountRepository.findById(id).orElseThrow().getBalance().toBigDecimal())
+					.isEqualByComparingTo(BigDecimal.ZERO);
+			assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+		});
+
+		assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo(BigDecimal.TEN);
+		assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo(BigDecimal.TEN);
+	}
+
+	@Test
+	void cacheMissOutsideATransactionReadsThePrimary() throws Exception {
+		Long id = accountService.createAccount(new CreateAccountRequest("Primary Account")).getId();
+		copyPrimaryToReplica();
+		accountService.deposit(id, BigDecimal.TEN);
+
+		TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+		assertThat(readOnly.execute(status -> accountRepository.findById(id)).orElseThrow().getBalance().toBigDecimal())
+				.isEqualByComparingTo(BigDecimal.ZERO);
+		assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo(BigDecimal.TEN);
+	}
+
+	/**
+	 * Gives the replica a snapshot of the primary and makes it available for reads; later
+	 * writes to the primary leave the replica behind.
+	 */
+	private void copyPrimaryToReplica() throws Exception {
+		Path script = Files.createTempFile("replica", ".sql");
+		try {
+			jdbcTemplate.execute("SCRIPT DROP TO '" + script + "'");
+			JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+			replica.execute("DROP TABLE IF EXISTS replica_lag");
+			replica.execute("RUNSCRIPT FROM '" + script + "'");
+			replica.execute("CREATE TABLE replica_lag (seconds DOUBLE)");
+			replica.update("INSERT INTO replica_lag VALUES (0)");
+		} finally {
+			Files.deleteIfExists(script);
+		}
+		routingDataSource.checkReplicaLag();
+	}
+}
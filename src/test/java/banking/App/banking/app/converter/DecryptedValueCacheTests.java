@@ -0,0 +1,61 @@
+package banking.App.banking.app.converter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DecryptedValueCacheTests {
+
+	@Test
+	void decryptsOnMissAndReusesThePlaintextOnHit() {
+		DecryptedValueCache cache = new DecryptedValueCache(true, 100, Duration.ofMinutes(10));
+		AtomicInteger decryptions = new AtomicInteger();
+		Function<String, String> loader = ciphertext -> {
+			decryptions.incrementAndGet();
+			return "plain:" + ciphertext;
+		};
+
+		assertThat(cache.get("c1", loader)).isEqualTo("plain:c1");
+		assertThat(cache.get("c1", loader)).isEqualTo("plain:c1");
+		assertThat(decryptions).hasValue(1);
+		assertThat(cache.stats().hitCount()).isEqualTo(1);
+		assertThat(cache.stats().missCount()).isEqualTo(1);
+
+		cache.invalidateAll();
+		assertThat(cache.get("c1", loader)).isEqualTo("plain:c1");
+		assertThat(decryptions).hasValue(2);
+	}
+
+	@Test
+	void returnsACachedValueOnlyForTheSameCiphertext() {
+		DecryptedValueCache cache = new DecryptedValueCache(true, 100, Duration.ofMinutes(10));
+		assertThat(cache.get("c1", ciphertext -> "first")).isEqualTo("first");
+		assertThat(cache.get("c2", ciphertext -> "second")).isEqualTo("second");
+		assertThat(cache.get("C1", ciphertext -> "third")).isEqualTo("third");
+		assertThat(cache.get("c1", ciphertext -> "changed")).isEqualTo("first");
+	}
+
+	@Test
+	void keepsAtMostTheMaximumSize() {
+		DecryptedValueCache cache = new DecryptedValueCache(true, 10, Duration.ofMinutes(10));
+		for (int i = 0; i < 100; i++) {
+			cache.get("c" + i, ciphertext -> "plain:" + ciphertext);
+		}
+		assertThat(cache.estimatedSize()).isLessThanOrEqualTo(10);
+		assertThat(cache.stats().evictionCount()).isGreaterThanOrEqualTo(90);
+	}
+
+	@Test
+	void passesThroughWhenDisabled() {
+		DecryptedValueCache cache = new DecryptedValueCache(false, 100, Duration.ofMinutes(10));
+		AtomicInteger decryptions = new AtomicInteger();
+		cache.get("c1", ciphertext -> "plain:" + decryptions.incrementAndGet());
+		assertThat(cache.get("c1", ciphertext -> "plain:" + decryptions.incrementAndGet())).isEqualTo("plain:2");
+		assertThat(cache.estimatedSize()).isZero();
+		assertThat(cache.stats().requestCount()).isZero();
+	}
+}
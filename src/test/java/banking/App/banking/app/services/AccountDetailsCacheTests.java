@@ -0,0 +1,66 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.AccountDetails;
+import banking.App.banking.app.util.Money;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountDetailsCacheTests {
+
+	@Test
+	void loadsOnMissAndServesHitsFromTheCache() {
+		AccountDetailsCache cache = new AccountDetailsCache(true, 100);
+		AtomicInteger loads = new AtomicInteger();
+		Function<Long, AccountDetails> loader = id -> {
+			loads.incrementAndGet();
+			return details(id, 10);
+		};
+
+		assertThat(cache.get(1L, loader).getBalance()).isEqualByComparingTo("0.10");
+		assertThat(cache.get(1L, loader).getBalance()).isEqualByComparingTo("0.10");
+		assertThat(loads).hasValue(1);
+
+		cache.evictOnCompletion(1L);
+		cache.get(1L, loader);
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void discardsASnapshotLoadedWhileTheAccountWasEvicted() {
+		AccountDetailsCache cache = new AccountDetailsCache(true, 100);
+
+		AccountDetails stale = cache.get(1L, id -> {
+			cache.evictOnCompletion(id);
+			return details(id, 10);
+		});
+		assertThat(stale.getBalance()).isEqualByComparingTo("0.10");
+
+		assertThat(cache.get(1L, id -> details(id, 20)).getBalance()).isEqualByComparingTo("0.20");
+		assertThat(cache.get(1L, id -> details(id, 30)).getBalance()).isEqualByComparingTo("0.20");
+	}
+
+	@Test
+	void evictionDoesNotWaitForALoadInProgress() throws Exception {
+		AccountDetailsCache cache = new AccountDetailsCache(true, 100);
+		Thread evictor = new Thread(() -> cache.evictOnCompletion(1L));
+
+		cache.get(1L, id -> {
+			evictor.start();
+			try {
+				evictor.join(5_000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			assertThat(evictor.isAlive()).isFalse();
+			return details(id, 10);
+		});
+	}
+
+	private static AccountDetails details(Long id, long balanceMinor) {
+		return new AccountDetails(id, "Holder", Money.ofMinor(balanceMinor), "********0000");
+	}
+}
@@ -0,0 +1,79 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.AccountDetails;
+import banking.App.banking.app.dto.AccountImportError;
+import banking.App.banking.app.dto.AccountImportResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AccountImportServiceTests {
+
+	private static final int ROWS = 2_500;
+
+	@Autowired
+	private AccountImportService accountImportService;
+
+	@Autowired
+	private AccountService accountService;
+
+	@Test
+	void csvImportCreatesAccountsAndReportsRowErrors() throws Exception {
+		StringBuilder csv = new StringBuilder("accountHolderName,country\n");
+		for (int i = 0; i < ROWS; i++) {
+			csv.append("Imported CSV ").append(i).append(",ZA\n");
+		}
+		csv.append("\"Imported CSV \"\"Quoted\"\", Jr.\",ZA\n");
+		csv.append(",ZA\n");
+		csv.append("\"Unterminated\n");
+
+		AccountImportResult result = accountImportService.importAccounts(
+				new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), AccountImportService.Format.CSV);
+
+		assertThat(result.getTotalRows()).isEqualTo(ROWS + 3);
+		assertThat(result.getImportedRows()).isEqualTo(ROWS + 1);
+		assertThat(result.getFailedRows()).isEqualTo(2);
+		assertThat(result.getErrors()).extracting(AccountImportError::getLine).containsExactly(ROWS + 3L, ROWS + 4L);
+
+		List<AccountDetails> imported = new ArrayList<>();
+		accountService.streamAccounts(account -> {
+			if (account.getAccountHolderName().startsWith("Imported CSV")) {
+				imported.add(account);
+			}
+		});
+		assertThat(imported).hasSize(ROWS + 1);
+		assertThat(imported).extracting(AccountDetails::getAccountHolderName).contains("Imported CSV \"Quoted\", Jr.");
+		assertThat(imported).allSatisfy(account -> {
+			assertThat(account.getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+			assertThat(account.getAccountNumber()).matches("\\*{8}\\d{4}");
+		});
+	}
+
+	@Test
+	void ndjsonImportSkipsMalformedLines() throws Exception {
+		String ndjson = """
+				{"accountHolderName": "Imported JSON 1"}
+				{"accountHolderName": 42}
+				not json
+				{"accountHolderName": "Imported JSON 2"}
+				""";
+
+		AccountImportResult result = accountImportService.importAccounts(
+				new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), AccountImportService.Format.NDJSON);
+
+		assertThat(result.getImportedRows()).isEqualTo(2);
+		assertThat(result.getErrors()).extracting(AccountImportError::getMessage)
+				.containsExactly("Account holder name is required", "Malformed JSON");
+	}
+}
@@ -0,0 +1,56 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.exception.AccountNotFoundException;
+import banking.App.banking.app.util.BlindIndexUtil;
+import banking.App.banking.app.util.EncryptionUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:backfill;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class AccountNumberIndexBackfillTests {
+
+	@Autowired
+	private AccountNumberIndexBackfill backfill;
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private BlindIndexUtil blindIndexUtil;
+
+	@Autowired
+	private EncryptionUtil encryptionUtil;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void backfillIndexesLegacyRowsSoTheyCanBeLookedUp() throws Exception {
+		for (int i = 0; i < 1200; i++) {
+			insertLegacyAccount("90000000" + String.format("%04d", i));
+		}
+		assertThatThrownBy(() -> accountService.getAccountByNumber("900000000007"))
+				.isInstanceOf(AccountNotFoundException.class);
+
+		backfill.run(null);
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM accounts WHERE account_number_hash IS NULL",
+				Long.class)).isZero();
+		Long id = jdbcTemplate.queryForObject("SELECT id FROM accounts WHERE account_number_hash = ?", Long.class,
+				blindIndexUtil.compute("900000000007"));
+		assertThat(accountService.getAccountByNumber("900000000007").getId()).isEqualTo(id);
+		assertThat(accountService.getAccountByNumber("900000000007").getAccountHolderName()).isEqualTo("Legacy Holder");
+	}
+
+	private void insertLegacyAccount(String accountNumber) throws Exception {
+		jdbcTemplate.update("INSERT INTO accounts (account_holder_name, balance, account_number) VALUES (?, 0, ?)",
+				encryptionUtil.encrypt("Legacy Holder"), encryptionUtil.encrypt(accountNumber));
+	}
+}
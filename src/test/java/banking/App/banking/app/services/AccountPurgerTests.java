@@ -0,0 +1,91 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.dto.TransactionDetails;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:purge;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+		"transaction-archive.enabled=true",
+		"transaction-archive.retention-months=1",
+		"transaction-archive.grace=0s",
+		"transaction-archive.cron=-",
+		"transaction-archive.refresh-interval=PT1H"
+})
+@ActiveProfiles("test")
+class AccountPurgerTests {
+
+	@TempDir
+	static Path directory;
+
+	@DynamicPropertySource
+	static void archiveDirectory(DynamicPropertyRegistry registry) {
+		registry.add("transaction-archive.directory", () -> directory.toString());
+	}
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private AccountPurger accountPurger;
+
+	@Autowired
+	private TransactionArchive transactionArchive;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void purgedAccountsAreNoLongerReadFromSegments() {
+		Long id = accountService.createAccount(new CreateAccountRequest("Purged Archive Account")).getId();
+		accountService.deposit(id, BigDecimal.TEN);
+		jdbcTemplate.update("UPDATE transactions SET timestamp = ? WHERE account_id = ?",
+				LocalDateTime.now().minusMonths(3), id);
+		transactionArchive.archive();
+		assertThat(transactionArchive.snapshot().read(id, null, 0, 10)).hasSize(1);
+
+		accountService.deleteAccount(id);
+		assertThat(accountPurger.purge()).isEqualTo(1);
+		transactionArchive.refresh();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM purged_accounts WHERE account_id = ?",
+				Long.class, id)).isEqualTo(1);
+		assertThat(transactionArchive.snapshot().read(id, null, 0, 10)).isEmpty();
+		List<TransactionDetails> streamed = new ArrayList<>();
+		transactionArchive.snapshot().forEach(id, null, streamed::add);
+		assertThat(streamed).isEmpty();
+	}
+
+	@Test
+	void purgeWaitsForTheLeaseOfAnotherInstance() {
+		Long id = accountService.createAccount(new CreateAccountRequest("Leased Purge Account")).getId();
+		accountService.deleteAccount(id);
+		jdbcTemplate.update("UPDATE account_purge_lease SET holder = ?, expires_at = ?", "other-instance",
+				LocalDateTime.now().plusHours(1));
+
+		assertThat(accountPurger.purge()).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM accounts WHERE id = ?", Long.class, id))
+				.isEqualTo(1);
+
+		jdbcTemplate.update("UPDATE account_purge_lease SET expires_at = ?", LocalDateTime.now().minusSeconds(1));
+		assertThat(accountPurger.purge()).isEqualTo(1);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM accounts WHERE id = ?", Long.class, id))
+				.isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT holder FROM account_purge_lease", String.class)).isNull();
+	}
+}
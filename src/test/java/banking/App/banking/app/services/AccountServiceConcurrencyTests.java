@@ -0,0 +1,223 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.AccountDetails;
+import banking.App.banking.app.dto.BatchTransactionItem;
+import banking.App.banking.app.dto.BatchTransactionResult;
+import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.exception.AccountNotFoundException;
+import banking.App.banking.app.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AccountServiceConcurrencyTests {
+
+	private static final int THREADS = 8;
+	private static final int OPERATIONS_PER_THREAD = 250;
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private TransactionRepository transactionRepository;
+
+	@Test
+	void concurrentDepositsOnHotAccountLoseNoUpdates() throws Exception {
+		Long id = accountService.createAccount(new CreateAccountRequest("Hot Account")).getId();
+
+		int succeeded = runConcurrently(() -> {
+			accountService.deposit(id, BigDecimal.ONE);
+			return true;
+		});
+
+		AccountDetails account = accountService.getAccountById(id);
+		assertThat(succeeded).isEqualTo(THREADS * OPERATIONS_PER_THREAD);
+		assertThat(account.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(THREADS * OPERATIONS_PER_THREAD));
+		assertThat(transactionRepository.findByAccountId(id)).hasSize(THREADS * OPERATIONS_PER_THREAD);
+	}
+
+	@Test
+	void concurrentRetriesWithOneIdempotencyKeyApplyOnce() throws Exception {
+		Long id = accountService.createAccount(new CreateAccountRequest("Idempotent Hot Account")).getId();
+		String key = "concurrent-deposit-" + id;
+
+		runConcurrently(() -> {
+			assertThat(accountService.deposit(id, BigDecimal.ONE, key).getBalance()).isEqualByComparingTo(BigDecimal.ONE);
+			return true;
+		});
+
+		assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo(BigDecimal.ONE);
+		assertThat(transactionRepository.findByAccountId(id)).hasSize(1);
+	}
+
+	@Test
+	void concurrentWithdrawalsNeverOverdraw() throws Exception {
+		Long id = accountService.createAccount(new CreateAccountRequest("Drained Account")).getId();
+		accountService.deposit(id, BigDecimal.valueOf(100));
+
+		int succeeded = runConcurrently(() -> {
+			try {
+				accountService.withdraw(id, BigDecimal.ONE);
+				return true;
+			} catch (IllegalArgumentException e) {
+				return false;
+			}
+		});
+
+		assertThat(succeeded).isEqualTo(100);
+		assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+	}
+
+	@Test
+	void concurrentTransfersConserveTotalBalance() throws Exception {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			Long id = accountService.createAccount(new CreateAccountRequest("Transfer Account " + i)).getId();
+			accountService.deposit(id, BigDecimal.valueOf(1000));
+			ids.add(id);
+		}
+		AtomicInteger counter = new AtomicInteger();
+		AtomicLongArray expected = new AtomicLongArray(ids.size());
+		for (int i = 0; i < ids.size(); i++) {
+			expected.set(i, 1000);
+		}
+
+		runConcurrently(() -> {
+			int n = counter.getAndIncrement();
+			int from = n % ids.size();
+			int to = (n / ids.size() + n + 1) % ids.size();
+			if (from == to) {
+				return false;
+			}
+			try {
+				accountService.transfer(ids.get(from), ids.get(to), BigDecimal.valueOf(7));
+			} catch (IllegalArgumentException e) {
+				return false;
+			}
+			expected.addAndGet(from, -7);
+			expected.addAndGet(to, 7);
+			return true;
+		});
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (int i = 0; i < ids.size(); i++) {
+			BigDecimal balance = accountService.getAccountById(ids.get(i)).getBalance();
+			assertThat(balance).isNotNegative().isEqualByComparingTo(BigDecimal.valueOf(expected.get(i)));
+			total = total.add(balance);
+		}
+		assertThat(total).isEqualByComparingTo(BigDecimal.valueOf(4000));
+	}
+
+	@Test
+	void batchIngestionAppliesOperationsInOrderPerAccount() {
+		Long first = accountService.createAccount(new CreateAccountRequest("Batch Account 1")).getId();
+		Long second = accountService.createAccount(new CreateAccountRequest("Batch Account 2")).getId();
+
+		List<BatchTransactionItem> operations = new ArrayList<>();
+		operations.add(new BatchTransactionItem(first, "WITHDRAW", BigDecimal.TEN));
+		operations.add(new BatchTransactionItem(first, "DEPOSIT", BigDecimal.TEN));
+		operations.add(new BatchTransactionItem(second, "DEPOSIT", BigDecimal.ONE));
+		operations.add(new BatchTransactionItem(-1L, "DEPOSIT", BigDecimal.ONE));
+		for (int i = 0; i < 1200; i++) {
+			operations.add(new BatchTransactionItem(i % 2 == 0 ? first : second, "DEPOSIT", BigDecimal.ONE));
+		}
+
+		List<BatchTransactionResult> results = accountService.processBatch(operations);
+
+		assertThat(results).hasSize(operations.size());
+		assertThat(results.get(0).getStatus()).isEqualTo(BatchTransactionResult.REJECTED);
+		assertThat(results.get(1).getStatus()).isEqualTo(BatchTransactionResult.APPLIED);
+		assertThat(results.get(3).getStatus()).isEqualTo(BatchTransactionResult.REJECTED);
+		assertThat(accountService.getAccountById(first).getBalance()).isEqualByComparingTo(BigDecimal.valueOf(610));
+		assertThat(accountService.getAccountById(second).getBalance()).isEqualByComparingTo(BigDecimal.valueOf(601));
+		assertThat(transactionRepository.findByAccountId(first)).hasSize(601);
+	}
+
+	@Test
+	void groupCommitAppliesConcurrentDepositsInBatches() throws Exception {
+		Long id = accountService.createAccount(new CreateAccountRequest("Group Commit Account")).getId();
+		GroupCommitService groupCommitService = new GroupCommitService(accountService, true, 64, Duration.ofMillis(10), 1000);
+		groupCommitService.start();
+		try {
+			runConcurrently(() -> {
+				groupCommitService.deposit(id, BigDecimal.ONE);
+				return true;
+			});
+		} finally {
+			groupCommitService.stop();
+		}
+
+		assertThat(accountService.getAccountById(id).getBalance())
+				.isEqualByComparingTo(BigDecimal.valueOf(THREADS * OPERATIONS_PER_THREAD));
+		assertThat(groupCommitService.getOperationCount()).isEqualTo(THREADS * OPERATIONS_PER_THREAD);
+		// Every caller waits for its batch, so with THREADS callers a batch should gather
+		// several of them within the maximum wait.
+		assertThat(groupCommitService.getBatchCount()).isLessThanOrEqualTo(THREADS * OPERATIONS_PER_THREAD / 4);
+	}
+
+	@Test
+	void groupCommitRejectsLikeTheDirectPath() throws Exception {
+		Long id = accountService.createAccount(new CreateAccountRequest("Group Commit Rejections")).getId();
+		GroupCommitService groupCommitService = new GroupCommitService(accountService, true, 64, Duration.ofMillis(1), 1000);
+		groupCommitService.start();
+		try {
+			assertThatThrownBy(() -> groupCommitService.withdraw(id, BigDecimal.TEN))
+					.isInstanceOf(IllegalArgumentException.class)
+					.hasMessage("Insufficient balance");
+			assertThatThrownBy(() -> groupCommitService.deposit(-1L, BigDecimal.ONE))
+					.isInstanceOf(AccountNotFoundException.class);
+			assertThatThrownBy(() -> groupCommitService.deposit(id, new BigDecimal("0.001")))
+					.isInstanceOf(IllegalArgumentException.class);
+		} finally {
+			groupCommitService.stop();
+		}
+
+		assertThatThrownBy(() -> groupCommitService.deposit(id, BigDecimal.ONE))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("Group commit is not running");
+		assertThat(groupCommitService.getQueueDepth()).isZero();
+	}
+
+	private int runConcurrently(Callable<Boolean> operation) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				results.add(executor.submit(() -> {
+					int succeeded = 0;
+					for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+						if (operation.call()) {
+							succeeded++;
+						}
+					}
+					return succeeded;
+				}));
+			}
+			int succeeded = 0;
+			for (Future<Integer> result : results) {
+				succeeded += result.get(120, TimeUnit.SECONDS);
+			}
+			return succeeded;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,274 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.AccountDetails;
+import banking.App.banking.app.dto.AccountPage;
+import banking.App.banking.app.dto.AccountStatement;
+import banking.App.banking.app.dto.BatchTransactionItem;
+import banking.App.banking.app.dto.BatchTransactionResult;
+import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.dto.TransactionDetails;
+import banking.App.banking.app.dto.TransactionPage;
+import banking.App.banking.app.exception.AccountNotFoundException;
+import banking.App.banking.app.repository.AccountRepository;
+import banking.App.banking.app.repository.IdempotencyRecordRepository;
+import banking.App.banking.app.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AccountServiceTests {
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private TransactionRepository transactionRepository;
+
+	@Autowired
+	private AccountRepository accountRepository;
+
+	@Autowired
+	private AccountDetailsCache accountDetailsCache;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private AccountPurger accountPurger;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private IdempotencyRecordRepository idempotencyRecordRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ShardRouter shardRouter;
+
+	@Test
+	void transactionHistoryPagesWithKeysetCursor() {
+		Long id = accountService.createAccount(new CreateAccountRequest("History Account")).getId();
+		for (int i = 1; i <= 7; i++) {
+			accountService.deposit(id, BigDecimal.valueOf(i));
+		}
+
+		List<TransactionDetails> collected = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			TransactionPage page = accountService.getTransactionHistory(id, cursor, 3);
+			collected.addAll(page.getTransactions());
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		assertThat(pages).isEqualTo(3);
+		assertThat(collected).extracting(TransactionDetails::getAmount)
+				.usingElementComparator(BigDecimal::compareTo)
+				.containsExactly(BigDecimal.valueOf(1), BigDecimal.valueOf(2), BigDecimal.valueOf(3), BigDecimal.valueOf(4),
+						BigDecimal.valueOf(5), BigDecimal.valueOf(6), BigDecimal.valueOf(7));
+
+		List<TransactionDetails> streamed = new ArrayList<>();
+		accountService.streamTransactionHistory(id, streamed::add);
+		assertThat(streamed).extracting(TransactionDetails::getId)
+				.containsExactlyElementsOf(collected.stream().map(TransactionDetails::getId).toList());
+
+		assertThatThrownBy(() -> accountService.getTransactionHistory(id, "not-a-cursor", 3))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void statementAggregatesBalancesAndTotalsForDateRange() {
+		Long id = accountService.createAccount(new CreateAccountRequest("Statement Account")).getId();
+		Long other = accountService.createAccount(new CreateAccountRequest("Statement Counterparty")).getId();
+		accountService.deposit(id, BigDecimal.valueOf(100));
+		accountService.withdraw(id, BigDecimal.valueOf(30));
+		accountService.transfer(id, other, BigDecimal.valueOf(20));
+		List<Long> transactionIds = jdbcTemplate.queryForList(
+				"SELECT id FROM transactions WHERE account_id = ? ORDER BY id", Long.class, id);
+		jdbcTemplate.update("UPDATE transactions SET timestamp = ? WHERE id = ?",
+				LocalDateTime.of(2024, 3, 10, 9, 0), transactionIds.get(0));
+		jdbcTemplate.update("UPDATE transactions SET timestamp = ? WHERE id = ?",
+				LocalDateTime.of(2024, 3, 11, 23, 59, 59), transactionIds.get(1));
+		jdbcTemplate.update("UPDATE transactions SET timestamp = ? WHERE id = ?",
+				LocalDateTime.of(2024, 3, 12, 0, 0), transactionIds.get(2));
+
+		AccountStatement statement = accountService.getStatement(id, LocalDate.of(2024, 3, 10), LocalDate.of(2024, 3, 12));
+		assertThat(statement.getOpeningBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+		assertThat(statement.getClosingBalance()).isEqualByComparingTo(BigDecimal.valueOf(50));
+		assertThat(statement.getDepositTotal()).isEqualByComparingTo(BigDecimal.valueOf(100));
+		assertThat(statement.getDepositCount()).isEqualTo(1);
+		assertThat(statement.getWithdrawalTotal()).isEqualByComparingTo(BigDecimal.valueOf(50));
+		assertThat(statement.getWithdrawalCount()).isEqualTo(2);
+
+		AccountStatement middle = accountService.getStatement(id, LocalDate.of(2024, 3, 11), LocalDate.of(2024, 3, 11));
+		assertThat(middle.getOpeningBalance()).isEqualByComparingTo(BigDecimal.valueOf(100));
+		assertThat(middle.getClosingBalance()).isEqualByComparingTo(BigDecimal.valueOf(70));
+		assertThat(middle.getDepositCount()).isZero();
+		assertThat(middle.getWithdrawalTotal()).isEqualByComparingTo(BigDecimal.valueOf(30));
+		assertThat(middle.getWithdrawalCount()).isEqualTo(1);
+
+		AccountStatement before = accountService.getStatement(id, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 9));
+		assertThat(before.getClosingBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+		assertThat(before.getDepositCount()).isZero();
+
+		AccountStatement after = accountService.getStatement(id, LocalDate.of(2024, 3, 13), LocalDate.of(2024, 3, 13));
+		assertThat(after.getOpeningBalance()).isEqualByComparingTo(BigDecimal.valueOf(50));
+		assertThat(after.getClosingBalance()).isEqualByComparingTo(BigDecimal.valueOf(50));
+
+		LocalDate day = LocalDate.of(2024, 3, 10);
+		assertThatThrownBy(() -> accountService.getStatement(-1L, day, day))
+				.isInstanceOf(AccountNotFoundException.class);
+		assertThatThrownBy(() -> accountService.getStatement(id, day, day.minusDays(1)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void accountListingPagesAndStreamsMaskedAccounts() {
+		for (int i = 0; i < 5; i++) {
+			accountService.createAccount(new CreateAccountRequest("Listed Account " + i));
+		}
+
+		List<AccountDetails> paged = new ArrayList<>();
+		String cursor = null;
+		do {
+			AccountPage page = accountService.getAccounts(cursor, 2);
+			assertThat(page.getAccounts()).hasSizeLessThanOrEqualTo(2);
+			paged.addAll(page.getAccounts());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		List<AccountDetails> streamed = new ArrayList<>();
+		accountService.streamAccounts(streamed::add);
+
+		assertThat(paged).hasSizeGreaterThanOrEqualTo(5);
+		assertThat(paged).extracting(AccountDetails::getId).isSorted()
+				.containsExactlyElementsOf(streamed.stream().map(AccountDetails::getId).toList());
+		assertThat(streamed).allSatisfy(account -> assertThat(account.getAccountNumber()).matches("\\*{8}\\d{4}"));
+	}
+
+	@Test
+	void cachedAccountDetailsReflectCommittedWrites() {
+		Long id = accountService.createAccount(new CreateAccountRequest("Cached Account")).getId();
+		long hits = accountDetailsCache.stats().hitCount();
+
+		assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+		assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+		assertThat(accountDetailsCache.stats().hitCount()).isEqualTo(hits + 1);
+
+		accountService.deposit(id, BigDecimal.TEN);
+		assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo(BigDecimal.TEN);
+
+		accountService.deleteAccount(id);
+		assertThatThrownBy(() -> accountService.getAccountById(id)).isInstanceOf(AccountNotFoundException.class);
+	}
+
+	@Test
+	void accountIsFoundByItsAccountNumber() {
+		AccountDetails created = accountService.createAccount(new CreateAccountRequest("Numbered Account"));
+		String accountNumber = accountRepository.findById(created.getId()).orElseThrow().getAccountNumber();
+
+		AccountDetails found = accountService.getAccountByNumber(accountNumber);
+		assertThat(found.getId()).isEqualTo(created.getId());
+		assertThat(found.getAccountNumber()).isEqualTo(created.getAccountNumber()).doesNotContain(accountNumber);
+
+		accountService.deleteAccount(created.getId());
+		assertThatThrownBy(() -> accountService.getAccountByNumber(accountNumber))
+				.isInstanceOf(AccountNotFoundException.class);
+	}
+
+	@Test
+	void deletedAccountIsClosedAtOnceAndPurgedInTheBackground() {
+		Long id = accountService.createAccount(new CreateAccountRequest("Closed Account")).getId();
+		Long other = accountService.createAccount(new CreateAccountRequest("Counterparty Account")).getId();
+		accountService.processBatch(Collections.nCopies(40, new BatchTransactionItem(id, "DEPOSIT", BigDecimal.ONE)));
+		double purgedBefore = meterRegistry.get("banking.account.purge.transactions").functionCounter().count();
+
+		accountService.deleteAccount(id);
+
+		assertThatThrownBy(() -> accountService.getAccountById(id)).isInstanceOf(AccountNotFoundException.class);
+		assertThatThrownBy(() -> accountService.deposit(id, BigDecimal.ONE)).isInstanceOf(AccountNotFoundException.class);
+		accountService.deposit(other, BigDecimal.TEN);
+		assertThatThrownBy(() -> accountService.transfer(other, id, BigDecimal.ONE)).isInstanceOf(AccountNotFoundException.class);
+		assertThat(accountService.getAccountById(other).getBalance()).isEqualByComparingTo(BigDecimal.TEN);
+		assertThatThrownBy(() -> accountService.deleteAccount(id)).isInstanceOf(AccountNotFoundException.class);
+		assertThat(accountService.processBatch(List.of(new BatchTransactionItem(id, "DEPOSIT", BigDecimal.ONE))))
+				.extracting(BatchTransactionResult::getStatus).containsExactly(BatchTransactionResult.REJECTED);
+		assertThat(accountService.getAccounts(null, 500).getAccounts()).extracting(AccountDetails::getId).doesNotContain(id);
+
+		accountPurger.purge();
+
+		assertThat(transactionRepository.findByAccountId(id)).isEmpty();
+		assertThat(meterRegistry.get("banking.account.purge.transactions").functionCounter().count())
+				.isGreaterThanOrEqualTo(purgedBefore + 40);
+		assertThat(meterRegistry.get("banking.account.purge.pending").gauge().value()).isZero();
+	}
+
+	@Test
+	void serviceCryptoAndRejectionMetricsAreRecorded() {
+		Long id = accountService.createAccount(new CreateAccountRequest("Metered Account")).getId();
+		double rejections = meterRegistry.counter("banking.balance.insufficient", "path", "single").count();
+
+		assertThatThrownBy(() -> accountService.withdraw(id, BigDecimal.ONE))
+				.isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(meterRegistry.counter("banking.balance.insufficient", "path", "single").count())
+				.isEqualTo(rejections + 1);
+		assertThat(meterRegistry.get("banking.account.service").tag("method", "withdraw")
+				.tag("exception", "IllegalArgumentException").timer().count()).isPositive();
+		assertThat(meterRegistry.get("banking.crypto").tag("operation", "encrypt").timer().count()).isPositive();
+		assertThat(meterRegistry.get("banking.account_number.allocation").timer().count()).isPositive();
+		assertThat(meterRegistry.get("spring.data.repository.invocations").timers()).isNotEmpty();
+	}
+
+	@Test
+	void retriedDepositWithSameIdempotencyKeyIsAppliedOnce() {
+		Long id = accountService.createAccount(new CreateAccountRequest("Idempotent Account")).getId();
+		String key = "deposit-" + id;
+
+		AccountDetails first = accountService.deposit(id, BigDecimal.TEN, key);
+		AccountDetails retry = accountService.deposit(id, BigDecimal.TEN, key);
+
+		assertThat(retry.getBalance()).isEqualByComparingTo(first.getBalance());
+		assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo(BigDecimal.TEN);
+		assertThat(transactionRepository.findByAccountId(id)).hasSize(1);
+		assertThatThrownBy(() -> accountService.withdraw(id, BigDecimal.ONE, key))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void retryMissingTheInMemoryIndexIsReplayedFromTheDatabase() {
+		Long id = accountService.createAccount(new CreateAccountRequest("Restarted Idempotent Account")).getId();
+		String key = "restarted-deposit-" + id;
+		accountService.deposit(id, BigDecimal.TEN, key);
+		IdempotencyService restarted = new IdempotencyService(idempotencyRecordRepository, transactionManager,
+				shardRouter, Duration.ofHours(1), 100);
+
+		AccountDetails retry = restarted.execute(key, "DEPOSIT", id, BigDecimal.TEN,
+				() -> accountService.deposit(id, BigDecimal.TEN));
+
+		assertThat(retry.getBalance()).isEqualByComparingTo(BigDecimal.TEN);
+		assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo(BigDecimal.TEN);
+		assertThat(transactionRepository.findByAccountId(id)).hasSize(1);
+	}
+}
@@ -0,0 +1,133 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.BatchTransactionItem;
+import banking.App.banking.app.dto.BatchTransactionResult;
+import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.exception.AccountNotFoundException;
+import banking.App.banking.app.repository.AccountRepository;
+import banking.App.banking.app.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:balance-engine;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+		"balance-engine.enabled=true",
+		"balance-engine.log-directory=target/balance-engine-tests/${random.uuid}",
+		"balance-engine.checkpoint-interval=1h"
+})
+@ActiveProfiles("test")
+class BalanceEngineTests {
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private BalanceEngine balanceEngine;
+
+	@Autowired
+	private AccountRepository accountRepository;
+
+	@Autowired
+	private TransactionRepository transactionRepository;
+
+	@Autowired
+	private AccountPurger accountPurger;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void mutationsAreServedFromMemoryAndCheckpointedToTheDatabase() throws Exception {
+		Long first = accountService.createAccount(new CreateAccountRequest("Engine Account 1")).getId();
+		Long second = accountService.createAccount(new CreateAccountRequest("Engine Account 2")).getId();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			futures.add(executor.submit(() -> accountService.deposit(first, BigDecimal.ONE)));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		accountService.withdraw(first, BigDecimal.valueOf(50));
+		accountService.transfer(first, second, BigDecimal.valueOf(100));
+		assertThatThrownBy(() -> accountService.withdraw(second, BigDecimal.valueOf(101)))
+				.isInstanceOf(IllegalArgumentException.class);
+		List<BatchTransactionResult> results = accountService.processBatch(List.of(
+				new BatchTransactionItem(second, "DEPOSIT", BigDecimal.TEN),
+				new BatchTransactionItem(-1L, "DEPOSIT", BigDecimal.TEN)));
+
+		assertThat(results).extracting(BatchTransactionResult::getStatus)
+				.containsExactly(BatchTransactionResult.APPLIED, BatchTransactionResult.REJECTED);
+		assertThat(accountService.getAccountById(first).getBalance()).isEqualByComparingTo("250");
+		assertThat(accountService.getAccountById(second).getBalance()).isEqualByComparingTo("110");
+		assertThat(accountRepository.findById(first).orElseThrow().getBalance().toBigDecimal()).isEqualByComparingTo("0");
+
+		balanceEngine.checkpoint();
+
+		assertThat(accountRepository.findById(first).orElseThrow().getBalance().toBigDecimal()).isEqualByComparingTo("250");
+		assertThat(accountRepository.findById(second).orElseThrow().getBalance().toBigDecimal()).isEqualByComparingTo("110");
+		assertThat(transactionRepository.findByAccountId(first)).hasSize(402);
+		assertThat(transactionRepository.findByAccountId(second)).hasSize(2);
+	}
+
+	@Test
+	void rolledBackDepositIsLeftOutOfTheHistory() {
+		Long id = accountService.createAccount(new CreateAccountRequest("Engine Rolled Back Account")).getId();
+
+		transactionTemplate.executeWithoutResult(status -> {
+			accountService.deposit(id, BigDecimal.TEN);
+			// Seals the segment holding the deposit; it is held back until the transaction completes.
+			balanceEngine.checkpoint();
+			status.setRollbackOnly();
+		});
+		balanceEngine.checkpoint();
+
+		assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo("0");
+		assertThat(accountRepository.findById(id).orElseThrow().getBalance().toBigDecimal()).isEqualByComparingTo("0");
+		assertThat(transactionRepository.findByAccountId(id)).isEmpty();
+	}
+
+	@Test
+	void deletedAccountIsCheckpointedAndRejectsLaterMutations() {
+		Long id = accountService.createAccount(new CreateAccountRequest("Engine Deleted Account")).getId();
+		accountService.deposit(id, BigDecimal.TEN);
+
+		accountService.deleteAccount(id);
+		accountPurger.purge();
+
+		assertThat(accountRepository.existsById(id)).isFalse();
+		assertThatThrownBy(() -> accountService.deposit(id, BigDecimal.ONE))
+				.isInstanceOf(AccountNotFoundException.class);
+	}
+
+	@Test
+	void rolledBackDeletionLeavesTheAccountInTheEngine() {
+		Long id = accountService.createAccount(new CreateAccountRequest("Engine Kept Account")).getId();
+		accountService.deposit(id, BigDecimal.TEN);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			accountService.deleteAccount(id);
+			status.setRollbackOnly();
+		});
+		assertThatThrownBy(() -> accountService.deleteAccount(-1L))
+				.isInstanceOf(AccountNotFoundException.class);
+
+		assertThat(accountService.deposit(id, BigDecimal.ONE).getBalance()).isEqualByComparingTo("11");
+	}
+}
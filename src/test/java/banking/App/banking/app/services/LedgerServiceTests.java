@@ -0,0 +1,129 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.util.LedgerFile;
+import banking.App.banking.app.util.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:ledger;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class LedgerServiceTests {
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void rebuildsBalancesFromTheLedgerAfterARestart() throws Exception {
+		Long id = accountService.createAccount(new CreateAccountRequest("Ledger Rebuild")).getId();
+		setBalance(id, "100.00");
+		Path path = directory.resolve("ledger.bin");
+
+		LedgerService ledger = new LedgerService(jdbcTemplate, true, path, false);
+		ledger.init();
+		ledger.record(id, "DEPOSIT", Money.of(new BigDecimal("25.50")));
+		ledger.record(id, "WITHDRAW", Money.of(new BigDecimal("10.00")));
+		transactionTemplate.executeWithoutResult(status -> ledger.record(id, "TRANSFER_IN", Money.of(BigDecimal.ONE)));
+		transactionTemplate.executeWithoutResult(status -> {
+			ledger.record(id, "DEPOSIT", Money.of(new BigDecimal("1000.00")));
+			status.setRollbackOnly();
+		});
+		ledger.close();
+		setBalance(id, "116.50");
+
+		long seededRecords = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM accounts", Long.class);
+		LedgerService restarted = new LedgerService(jdbcTemplate, true, path, false);
+		restarted.init();
+		try {
+			assertThat(restarted.reconcile()).isZero();
+		} finally {
+			restarted.close();
+		}
+		try (LedgerFile file = LedgerFile.open(path, (accountId, type, amountMinor, timestampMicros) -> {
+		})) {
+			assertThat(file.getRecordCount()).isEqualTo(seededRecords + 3);
+		}
+	}
+
+	@Test
+	void reconcileCountsAccountsWhoseBalanceDiffersFromTheLedger() throws Exception {
+		Long first = accountService.createAccount(new CreateAccountRequest("Ledger Mismatch 1")).getId();
+		Long second = accountService.createAccount(new CreateAccountRequest("Ledger Mismatch 2")).getId();
+		setBalance(first, "50.00");
+		setBalance(second, "50.00");
+
+		LedgerService ledger = new LedgerService(jdbcTemplate, true, directory.resolve("ledger.bin"), false);
+		ledger.init();
+		try {
+			assertThat(ledger.reconcile()).isZero();
+
+			ledger.record(first, "DEPOSIT", Money.of(BigDecimal.TEN));
+			setBalance(second, "49.00");
+
+			assertThat(ledger.reconcile()).isEqualTo(2);
+
+			setBalance(first, "60.00");
+			setBalance(second, "50.00");
+			assertThat(ledger.reconcile()).isZero();
+		} finally {
+			ledger.close();
+		}
+	}
+
+	@Test
+	void concurrentRecordsAreAllWrittenToTheLedger() throws Exception {
+		Long id = accountService.createAccount(new CreateAccountRequest("Ledger Concurrent")).getId();
+		setBalance(id, "0.00");
+		Path path = directory.resolve("ledger.bin");
+
+		LedgerService ledger = new LedgerService(jdbcTemplate, true, path, true);
+		ledger.init();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			futures.add(executor.submit(() -> ledger.record(id, "DEPOSIT", Money.of(BigDecimal.ONE))));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		ledger.close();
+		setBalance(id, "200.00");
+
+		LedgerService restarted = new LedgerService(jdbcTemplate, true, path, false);
+		restarted.init();
+		try {
+			assertThat(restarted.reconcile()).isZero();
+		} finally {
+			restarted.close();
+		}
+	}
+
+	private void setBalance(Long id, String balance) {
+		jdbcTemplate.update("UPDATE accounts SET balance = ? WHERE id = ?", new BigDecimal(balance), id);
+	}
+}
@@ -0,0 +1,231 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.AccountDetails;
+import banking.App.banking.app.dto.AccountPage;
+import banking.App.banking.app.dto.BatchTransactionItem;
+import banking.App.banking.app.dto.BatchTransactionResult;
+import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.exception.AccountNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:shard-0;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+		"shard-routing.enabled=true",
+		"shard-routing.urls=jdbc:h2:mem:shard-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1,"
+				+ "jdbc:h2:mem:shard-2;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+		"shard-routing.buckets=8",
+		"shard-routing.refresh-interval=PT1H",
+		"shard-routing.move-grace=0s",
+		"cross-shard-transfer.recovery-interval=PT1H",
+		"cross-shard-transfer.recovery-delay=0s"
+})
+@ActiveProfiles("test")
+class ShardRoutingTests {
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private AccountServiceImplementation accountServiceImplementation;
+
+	@Autowired
+	private ShardRouter shardRouter;
+
+	@Autowired
+	private ShardRebalancer shardRebalancer;
+
+	@Test
+	void accountsAreSpreadOverShardsAndServedFromTheirShard() {
+		List<Long> ids = createAccounts(12);
+		Set<Integer> shards = new HashSet<>();
+		for (Long id : ids) {
+			shards.add(shardRouter.shardOf(id));
+			assertThat(countOnShard(shardRouter.shardOf(id), "accounts", "id", id)).isEqualTo(1);
+			accountService.deposit(id, BigDecimal.valueOf(100));
+		}
+		assertThat(shards).containsExactlyInAnyOrder(0, 1, 2);
+
+		Long from = ids.get(0);
+		Long sameShard = ids.stream().filter(id -> !id.equals(from) && shardRouter.shardOf(id) == shardRouter.shardOf(from))
+				.findFirst().orElseThrow();
+		Long otherShard = ids.stream().filter(id -> shardRouter.shardOf(id) != shardRouter.shardOf(from))
+				.findFirst().orElseThrow();
+		accountService.transfer(from, sameShard, BigDecimal.valueOf(10));
+		accountService.transfer(from, otherShard, BigDecimal.valueOf(20));
+		assertThatThrownBy(() -> accountService.transfer(from, otherShard, BigDecimal.valueOf(1000)))
+				.isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(accountService.getAccountById(from).getBalance()).isEqualByComparingTo("70");
+		assertThat(accountService.getAccountById(sameShard).getBalance()).isEqualByComparingTo("110");
+		assertThat(accountService.getAccountById(otherShard).getBalance()).isEqualByComparingTo("120");
+		assertThat(accountService.getTransactionHistory(otherShard, null, 10).getTransactions()).hasSize(2);
+
+		List<BatchTransactionResult> results = accountService.processBatch(List.of(
+				new BatchTransactionItem(from, "WITHDRAW", BigDecimal.TEN),
+				new BatchTransactionItem(otherShard, "DEPOSIT", BigDecimal.ONE),
+				new BatchTransactionItem(ids.get(2), "WITHDRAW", BigDecimal.valueOf(1000))));
+		assertThat(results).extracting(BatchTransactionResult::getIndex).containsExactly(0, 1, 2);
+		assertThat(results).extracting(BatchTransactionResult::getStatus).containsExactly(
+				BatchTransactionResult.APPLIED, BatchTransactionResult.APPLIED, BatchTransactionResult.REJECTED);
+		assertThat(accountService.getAccountById(otherShard).getBalance()).isEqualByComparingTo("121");
+	}
+
+	@Test
+	void transferToAMissingAccountOnAnotherShardDebitsNothing() {
+		Long from = createAccounts(1).get(0);
+		accountService.deposit(from, BigDecimal.TEN);
+		long missing = from + 1;
+		while (shardRouter.shardOf(missing) == shardRouter.shardOf(from)) {
+			missing++;
+		}
+		long to = missing;
+
+		assertThatThrownBy(() -> accountService.transfer(from, to, BigDecimal.ONE))
+				.isInstanceOf(AccountNotFoundException.class);
+		assertThat(accountService.getAccountById(from).getBalance()).isEqualByComparingTo("10");
+	}
+
+	@Test
+	void pagesAndStreamsMergeAllShardsInIdOrder() {
+		List<Long> ids = createAccounts(7);
+
+		List<Long> paged = new ArrayList<>();
+		String cursor = null;
+		do {
+			AccountPage page = accountService.getAccounts(cursor, 3);
+			page.getAccounts().forEach(account -> paged.add(account.getId()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		List<Long> streamed = new ArrayList<>();
+		accountService.streamAccounts(account -> streamed.add(account.getId()));
+
+		assertThat(paged).isSorted().containsAll(ids).doesNotHaveDuplicates();
+		assertThat(streamed).isEqualTo(paged);
+	}
+
+	@Test
+	void movedBucketKeepsItsAccountsAndHistory() {
+		Long id = createAccounts(1).get(0);
+		accountService.deposit(id, BigDecimal.valueOf(42));
+		int bucket = shardRouter.bucketOf(id);
+		int source = shardRouter.shardOf(id);
+		int target = (source + 1) % shardRouter.getShardCount();
+
+		shardRebalancer.moveBucket(bucket, target);
+
+		assertThat(shardRouter.shardOf(id)).isEqualTo(target);
+		assertThat(countOnShard(source, "accounts", "id", id)).isZero();
+		assertThat(countOnShard(target, "transactions", "account_id", id)).isEqualTo(1);
+		AccountDetails account = accountService.getAccountById(id);
+		assertThat(account.getBalance()).isEqualByComparingTo("42");
+		assertThat(accountService.withdraw(id, BigDecimal.TEN).getBalance()).isEqualByComparingTo("32");
+		assertThat(accountService.getTransactionHistory(id, null, 10).getTransactions()).hasSize(2);
+		assertThat(shardRebalancer.plan()).hasSize(1);
+
+		shardRebalancer.moveBucket(bucket, source);
+		assertThat(shardRebalancer.plan()).isEmpty();
+		assertThat(accountService.getAccountById(id).getBalance()).isEqualByComparingTo("32");
+	}
+
+	@Test
+	void interruptedCrossShardTransferIsCreditedOnceByRecovery() {
+		Long from = createAccounts(1).get(0);
+		Long to = createAccountOnAnotherShard(from);
+		accountService.deposit(from, BigDecimal.valueOf(50));
+		debitWithIntent("interrupted-transfer", from, to, 20);
+
+		assertThat(accountServiceImplementation.recoverTransfers()).isEqualTo(1);
+		assertThat(accountService.getAccountById(to).getBalance()).isEqualByComparingTo("20");
+		assertThat(countOnShard(shardRouter.shardOf(from), "transfer_intents", "from_account_id", from)).isZero();
+
+		insertIntent("interrupted-transfer", from, to, 20);
+		assertThat(accountServiceImplementation.recoverTransfers()).isEqualTo(1);
+		assertThat(accountService.getAccountById(to).getBalance()).isEqualByComparingTo("20");
+		assertThat(accountService.getAccountById(from).getBalance()).isEqualByComparingTo("30");
+		assertThat(countOnShard(shardRouter.shardOf(from), "transfer_intents", "from_account_id", from)).isZero();
+		assertThat(accountServiceImplementation.recoverTransfers()).isZero();
+	}
+
+	@Test
+	void crossShardTransferToAClosedAccountIsReversedByRecovery() {
+		Long from = createAccounts(1).get(0);
+		Long to = createAccountOnAnotherShard(from);
+		accountService.deposit(from, BigDecimal.valueOf(50));
+		accountService.deleteAccount(to);
+		debitWithIntent("reversed-transfer", from, to, 20);
+
+		assertThat(accountServiceImplementation.recoverTransfers()).isEqualTo(1);
+		assertThat(accountService.getAccountById(from).getBalance()).isEqualByComparingTo("50");
+		assertThat(countOnShard(shardRouter.shardOf(from), "transfer_intents", "from_account_id", from)).isZero();
+		assertThat(accountService.getTransactionHistory(from, null, 10).getTransactions()).hasSize(2);
+	}
+
+	@Test
+	void bucketAlreadyBeingMovedIsNotClaimedAgain() {
+		Long id = createAccounts(1).get(0);
+		int bucket = shardRouter.bucketOf(id);
+		int target = (shardRouter.shardOf(id) + 1) % shardRouter.getShardCount();
+		JdbcTemplate catalog = new JdbcTemplate(shardRouter.getShardDataSource(0));
+		catalog.update("UPDATE shard_buckets SET moving = TRUE WHERE bucket = ?", bucket);
+		try {
+			assertThatThrownBy(() -> shardRebalancer.moveBucket(bucket, target))
+					.isInstanceOf(IllegalStateException.class);
+			assertThat(countOnShard(target, "accounts", "id", id)).isZero();
+		} finally {
+			catalog.update("UPDATE shard_buckets SET moving = FALSE WHERE bucket = ?", bucket);
+			shardRouter.refresh();
+		}
+	}
+
+	private Long createAccountOnAnotherShard(Long other) {
+		while (true) {
+			Long id = createAccounts(1).get(0);
+			if (shardRouter.shardOf(id) != shardRouter.shardOf(other)) {
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * Leaves the state of a cross-shard transfer whose instance stopped after the debit.
+	 */
+	private void debitWithIntent(String intentId, Long from, Long to, long amount) {
+		new JdbcTemplate(shardRouter.getShardDataSource(shardRouter.shardOf(from)))
+				.update("UPDATE accounts SET balance = balance - ? WHERE id = ?", amount, from);
+		insertIntent(intentId, from, to, amount);
+	}
+
+	private void insertIntent(String intentId, Long from, Long to, long amount) {
+		new JdbcTemplate(shardRouter.getShardDataSource(shardRouter.shardOf(from))).update(
+				"INSERT INTO transfer_intents (id, from_account_id, to_account_id, amount, created_at) VALUES (?, ?, ?, ?, ?)",
+				intentId, from, to, amount, LocalDateTime.now().minusMinutes(1));
+	}
+
+	private List<Long> createAccounts(int count) {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ids.add(accountService.createAccount(new CreateAccountRequest("Shard Account " + i)).getId());
+		}
+		return ids;
+	}
+
+	private long countOnShard(int shard, String table, String column, long id) {
+		Long count = new JdbcTemplate(shardRouter.getShardDataSource(shard))
+				.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE " + column + " = ?", Long.class, id);
+		return count == null ? 0 : count;
+	}
+}
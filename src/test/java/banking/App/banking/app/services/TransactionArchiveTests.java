@@ -0,0 +1,117 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.AccountStatement;
+import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.dto.TransactionDetails;
+import banking.App.banking.app.dto.TransactionPage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:archive;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+		"transaction-archive.enabled=true",
+		"transaction-archive.retention-months=1",
+		"transaction-archive.grace=0s",
+		"transaction-archive.cron=-",
+		"transaction-archive.refresh-interval=PT1H"
+})
+@ActiveProfiles("test")
+class TransactionArchiveTests {
+
+	@TempDir
+	static Path directory;
+
+	@DynamicPropertySource
+	static void archiveDirectory(DynamicPropertyRegistry registry) {
+		registry.add("transaction-archive.directory", () -> directory.toString());
+	}
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private TransactionArchive transactionArchive;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void archivedHistoryReadsTheSameAsBefore() {
+		Long id = accountService.createAccount(new CreateAccountRequest("Archive Account")).getId();
+		Long other = accountService.createAccount(new CreateAccountRequest("Other Account")).getId();
+		accountService.deposit(id, BigDecimal.valueOf(100));
+		accountService.withdraw(id, BigDecimal.valueOf(30));
+		accountService.transfer(id, other, BigDecimal.valueOf(5));
+		accountService.deposit(id, new BigDecimal("7.25"));
+		LocalDateTime now = LocalDateTime.now();
+		List<TransactionDetails> recorded = accountService.getTransactionHistory(id, null, 10).getTransactions();
+		backdate(recorded.get(0).getId(), now.minusMonths(5).withDayOfMonth(10));
+		backdate(recorded.get(1).getId(), now.minusMonths(4).withDayOfMonth(3));
+		backdate(recorded.get(2).getId(), now.minusMonths(4).withDayOfMonth(20));
+		jdbcTemplate.update("UPDATE transactions SET timestamp = ? WHERE account_id = ?",
+				now.minusMonths(4).withDayOfMonth(20), other);
+
+		List<TransactionDetails> history = accountService.getTransactionHistory(id, null, 10).getTransactions();
+		List<TransactionDetails> pages = readPages(id);
+		List<TransactionDetails> streamed = new ArrayList<>();
+		accountService.streamTransactionHistory(id, streamed::add);
+		LocalDate today = now.toLocalDate();
+		AccountStatement full = accountService.getStatement(id, today.minusMonths(6), today);
+		AccountStatement partial = accountService.getStatement(id, today.minusMonths(4).withDayOfMonth(10),
+				today.minusMonths(2));
+
+		transactionArchive.archive();
+
+		assertThat(transactionArchive.snapshot().getHotFrom())
+				.isEqualTo(YearMonth.from(now).minusMonths(1).atDay(1).atStartOfDay());
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions WHERE account_id IN (?, ?)",
+				Long.class, id, other)).isEqualTo(1);
+		assertThat(directory.toFile().list()).hasSize(2);
+
+		assertThat(accountService.getTransactionHistory(id, null, 10).getTransactions())
+				.usingRecursiveFieldByFieldElementComparator().isEqualTo(history);
+		assertThat(readPages(id)).usingRecursiveFieldByFieldElementComparator().isEqualTo(pages).isEqualTo(history);
+		List<TransactionDetails> streamedAfter = new ArrayList<>();
+		accountService.streamTransactionHistory(id, streamedAfter::add);
+		assertThat(streamedAfter).usingRecursiveFieldByFieldElementComparator().isEqualTo(streamed);
+		assertThat(accountService.getStatement(id, today.minusMonths(6), today)).usingRecursiveComparison().isEqualTo(full);
+		assertThat(accountService.getStatement(id, today.minusMonths(4).withDayOfMonth(10), today.minusMonths(2)))
+				.usingRecursiveComparison().isEqualTo(partial);
+		assertThat(accountService.getTransactionHistory(other, null, 10).getTransactions())
+				.extracting(TransactionDetails::getTransactionType).containsExactly("TRANSFER_IN");
+
+		transactionArchive.archive();
+		assertThat(accountService.getTransactionHistory(id, null, 10).getTransactions()).hasSize(4);
+	}
+
+	private List<TransactionDetails> readPages(Long id) {
+		List<TransactionDetails> transactions = new ArrayList<>();
+		String cursor = null;
+		do {
+			TransactionPage page = accountService.getTransactionHistory(id, cursor, 1);
+			transactions.addAll(page.getTransactions());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		return transactions;
+	}
+
+	private void backdate(Long transactionId, LocalDateTime timestamp) {
+		jdbcTemplate.update("UPDATE transactions SET timestamp = ? WHERE id = ?", timestamp, transactionId);
+	}
+}
@@ -0,0 +1,54 @@
+package banking.App.banking.app.services;
+
+import banking.App.banking.app.dto.CreateAccountRequest;
+import banking.App.banking.app.util.EncryptionUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionIdSequenceTests {
+
+	@Autowired
+	private TransactionIdSequence transactionIdSequence;
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private EncryptionUtil encryptionUtil;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void sequenceIsMovedPastExistingTransactionIds() throws Exception {
+		assertThat(transactionIdSequence.getAllocationSize()).isEqualTo(50);
+		Long id = accountService.createAccount(new CreateAccountRequest("Legacy Transactions")).getId();
+		long legacyId = nextval() + 10_000;
+		jdbcTemplate.update("INSERT INTO transactions (id, account_id, amount, transaction_type, timestamp) " +
+				"VALUES (?, ?, 1, ?, ?)", legacyId, id, encryptionUtil.encrypt("DEPOSIT"), LocalDateTime.now());
+
+		transactionIdSequence.migrate();
+
+		long next = nextval();
+		assertThat(next - transactionIdSequence.getAllocationSize()).isGreaterThanOrEqualTo(legacyId);
+		transactionIdSequence.migrate();
+		assertThat(nextval()).isEqualTo(next + 2L * transactionIdSequence.getAllocationSize());
+
+		accountService.deposit(id, BigDecimal.ONE);
+		assertThat(accountService.getTransactionHistory(id, null, 10).getTransactions()).hasSize(2);
+	}
+
+	private long nextval() {
+		return jdbcTemplate.queryForObject("SELECT nextval('transactions_seq')", Long.class);
+	}
+}
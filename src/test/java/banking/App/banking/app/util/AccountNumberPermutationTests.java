@@ -0,0 +1,56 @@
+package banking.App.banking.app.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccountNumberPermutationTests {
+
+	private final AccountNumberPermutation permutation = new AccountNumberPermutation(7368122093041729L);
+
+	@Test
+	void producesDistinctLuhnValidAccountNumbers() {
+		Set<String> seen = new HashSet<>();
+		for (long sequence = 0; sequence < 200_000; sequence++) {
+			String accountNumber = permutation.format(sequence);
+			assertThat(accountNumber).hasSize(AccountNumberPermutation.ACCOUNT_NUMBER_LENGTH).containsOnlyDigits();
+			assertThat(AccountNumberPermutation.isValid(accountNumber)).isTrue();
+			assertThat(seen.add(accountNumber)).isTrue();
+		}
+	}
+
+	@Test
+	void permutesTheWholeDomain() {
+		long[] edges = {0, 1, AccountNumberPermutation.DOMAIN_SIZE / 2, AccountNumberPermutation.DOMAIN_SIZE - 1};
+		for (long value : edges) {
+			assertThat(permutation.permute(value)).isBetween(0L, AccountNumberPermutation.DOMAIN_SIZE - 1);
+		}
+		assertThatThrownBy(() -> permutation.format(AccountNumberPermutation.DOMAIN_SIZE))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void rejectsCorruptedCheckDigit() {
+		String accountNumber = permutation.format(42);
+		char last = accountNumber.charAt(accountNumber.length() - 1);
+		char wrong = last == '9' ? '0' : (char) (last + 1);
+		assertThat(AccountNumberPermutation.isValid(accountNumber.substring(0, 11) + wrong)).isFalse();
+	}
+
+	@Test
+	void isABijectionOnTheDomain() {
+		SplittableRandom random = new SplittableRandom(42);
+		for (int i = 0; i < 200_000; i++) {
+			long value = random.nextLong(AccountNumberPermutation.DOMAIN_SIZE);
+			assertThat(permutation.unpermute(permutation.permute(value))).isEqualTo(value);
+			assertThat(permutation.permute(permutation.unpermute(value))).isEqualTo(value);
+		}
+		assertThat(permutation.unpermute(permutation.permute(AccountNumberPermutation.DOMAIN_SIZE - 1)))
+				.isEqualTo(AccountNumberPermutation.DOMAIN_SIZE - 1);
+	}
+}
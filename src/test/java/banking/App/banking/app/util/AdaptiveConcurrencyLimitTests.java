@@ -0,0 +1,56 @@
+package banking.App.banking.app.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTests {
+
+	private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Test
+	void rejectsBeyondTheLimitWithoutWaiting() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0, 0.5, 0);
+		assertThat(limit.tryAcquire()).isTrue();
+		assertThat(limit.tryAcquire()).isTrue();
+		assertThat(limit.tryAcquire()).isFalse();
+		limit.release();
+		assertThat(limit.tryAcquire()).isTrue();
+		assertThat(limit.getInFlight()).isEqualTo(2);
+	}
+
+	@Test
+	void growsWhileLatencyIsSteadyAndShrinksOncePerSlowSpell() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 2, 8, 2.0, 0.5, 0);
+		long now = 0;
+		for (int i = 0; i < 200; i++) {
+			now = runAtLimit(limit, now, MILLISECOND);
+		}
+		assertThat(limit.getLimit()).isEqualTo(8);
+
+		long slowSpellStart = now;
+		for (int i = 0; i < 20; i++) {
+			assertThat(limit.tryAcquire()).isTrue();
+			limit.release(slowSpellStart, now += 50 * MILLISECOND);
+		}
+		assertThat(limit.getLimit()).isEqualTo(4);
+
+		for (int i = 0; i < 5; i++) {
+			now = runAtLimit(limit, now, 50 * MILLISECOND);
+		}
+		assertThat(limit.getLimit()).isEqualTo(2);
+	}
+
+	private static long runAtLimit(AdaptiveConcurrencyLimit limit, long now, long latency) {
+		int admitted = 0;
+		while (limit.tryAcquire()) {
+			admitted++;
+		}
+		for (int i = 0; i < admitted; i++) {
+			limit.release(now, now + latency);
+		}
+		return now + latency;
+	}
+}
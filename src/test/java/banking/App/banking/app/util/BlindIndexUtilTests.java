@@ -0,0 +1,38 @@
+package banking.App.banking.app.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BlindIndexUtilTests {
+
+	@Test
+	void sameValueAndKeyAlwaysGiveTheSameIndex() throws Exception {
+		BlindIndexUtil first = blindIndexUtil("blind-index-key-0123456789abcdef");
+		BlindIndexUtil second = blindIndexUtil("blind-index-key-0123456789abcdef");
+
+		String index = first.compute("123456789012");
+		assertThat(index).hasSize(64).matches("[0-9a-f]+");
+		assertThat(first.compute("123456789012")).isEqualTo(index);
+		assertThat(second.compute("123456789012")).isEqualTo(index);
+		assertThat(first.compute("123456789013")).isNotEqualTo(index);
+	}
+
+	@Test
+	void indexDependsOnTheKey() throws Exception {
+		BlindIndexUtil first = blindIndexUtil("blind-index-key-0123456789abcdef");
+		BlindIndexUtil other = blindIndexUtil("another-blind-index-key-01234567");
+
+		assertThat(other.compute("123456789012")).isNotEqualTo(first.compute("123456789012"));
+		assertThatThrownBy(() -> blindIndexUtil("too-short")).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static BlindIndexUtil blindIndexUtil(String key) throws Exception {
+		BlindIndexUtil blindIndexUtil = new BlindIndexUtil();
+		ReflectionTestUtils.setField(blindIndexUtil, "blindIndexKey", key);
+		blindIndexUtil.init();
+		return blindIndexUtil;
+	}
+}
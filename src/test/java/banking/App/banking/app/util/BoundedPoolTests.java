@@ -0,0 +1,25 @@
+package banking.App.banking.app.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedPoolTests {
+
+	@Test
+	void keepsAtMostCapacityIdleObjects() {
+		BoundedPool<Object> pool = new BoundedPool<>(2);
+		Object first = new Object();
+		Object second = new Object();
+
+		pool.offer(first);
+		pool.offer(second);
+		pool.offer(new Object());
+
+		assertThat(pool.size()).isEqualTo(2);
+		assertThat(pool.poll()).isSameAs(first);
+		assertThat(pool.poll()).isSameAs(second);
+		assertThat(pool.poll()).isNull();
+		assertThat(pool.size()).isZero();
+	}
+}
@@ -0,0 +1,66 @@
+package banking.App.banking.app.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EncryptionUtilTests {
+
+	private static final int THREADS = 8;
+	private static final int OPERATIONS_PER_THREAD = 20_000;
+
+	private EncryptionUtil encryptionUtil;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		encryptionUtil = new EncryptionUtil();
+		ReflectionTestUtils.setField(encryptionUtil, "secretKey", "1234567890123456");
+		encryptionUtil.init();
+	}
+
+	@Test
+	void roundTripsMultiByteAndLongValues() throws Exception {
+		String value = "Zoë Ñúñez ".repeat(100);
+		assertThat(encryptionUtil.decrypt(encryptionUtil.encrypt(value))).isEqualTo(value);
+		assertThat(encryptionUtil.decrypt(encryptionUtil.encrypt(""))).isEmpty();
+	}
+
+	@Test
+	void concurrentCallsNeverCorruptCiphertext() throws Exception {
+		String expectedCiphertext = encryptionUtil.encrypt("holder-0");
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Long>> results = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				results.add(executor.submit(() -> {
+					for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+						String plain = "holder-" + ((thread * OPERATIONS_PER_THREAD + i) % 1000);
+						String ciphertext = encryptionUtil.encrypt(plain);
+						assertThat(encryptionUtil.decrypt(ciphertext)).isEqualTo(plain);
+						if (plain.equals("holder-0")) {
+							assertThat(ciphertext).isEqualTo(expectedCiphertext);
+						}
+					}
+					return (long) OPERATIONS_PER_THREAD;
+				}));
+			}
+			long operations = 0;
+			for (Future<Long> result : results) {
+				operations += result.get(60, TimeUnit.SECONDS);
+			}
+			assertThat(operations).isEqualTo((long) THREADS * OPERATIONS_PER_THREAD);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
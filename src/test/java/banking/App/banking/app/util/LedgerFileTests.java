@@ -0,0 +1,145 @@
+package banking.App.banking.app.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LedgerFileTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void replaysAppendedRecordsInOrder() throws IOException {
+		Path path = directory.resolve("ledger.bin");
+		try (LedgerFile ledger = LedgerFile.open(path, (accountId, type, amountMinor, timestampMicros) -> {
+		})) {
+			ledger.append(1, LedgerFile.OPENING_BALANCE, 10_000, 1);
+			ledger.append(1, LedgerFile.WITHDRAW, 2_550, 2);
+			ledger.flush(true);
+			ledger.append(2, LedgerFile.DEPOSIT, 75, 3);
+			ledger.flush(false);
+			assertThat(ledger.getRecordCount()).isEqualTo(3);
+		}
+
+		LongLongMap balances = new LongLongMap(4);
+		List<Long> timestamps = new ArrayList<>();
+		try (LedgerFile ledger = LedgerFile.open(path, (accountId, type, amountMinor, timestampMicros) -> {
+			balances.addTo(accountId, type == LedgerFile.WITHDRAW ? -amountMinor : amountMinor);
+			timestamps.add(timestampMicros);
+		})) {
+			assertThat(ledger.getRecordCount()).isEqualTo(3);
+		}
+		assertThat(balances.get(1, 0)).isEqualTo(7_450);
+		assertThat(balances.get(2, 0)).isEqualTo(75);
+		assertThat(timestamps).containsExactly(1L, 2L, 3L);
+	}
+
+	@Test
+	void truncatesTornTailAndAppendsAfterLastCompleteRecord() throws IOException {
+		Path path = directory.resolve("ledger.bin");
+		try (LedgerFile ledger = LedgerFile.open(path, (accountId, type, amountMinor, timestampMicros) -> {
+		})) {
+			ledger.append(1, LedgerFile.DEPOSIT, 500, 1);
+			ledger.flush(false);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.APPEND)) {
+			channel.write(ByteBuffer.wrap(new byte[LedgerFile.RECORD_SIZE + 5]));
+		}
+
+		try (LedgerFile ledger = LedgerFile.open(path, (accountId, type, amountMinor, timestampMicros) -> {
+		})) {
+			assertThat(ledger.getRecordCount()).isEqualTo(1);
+			ledger.append(1, LedgerFile.DEPOSIT, 250, 2);
+			ledger.flush(false);
+		}
+		assertThat(Files.size(path)).isEqualTo(2L * LedgerFile.RECORD_SIZE);
+
+		long[] total = new long[1];
+		try (LedgerFile ledger = LedgerFile.open(path, (accountId, type, amountMinor, timestampMicros) ->
+				total[0] += amountMinor)) {
+			assertThat(ledger.getRecordCount()).isEqualTo(2);
+			assertThat(total[0]).isEqualTo(750);
+		}
+	}
+
+	@Test
+	void truncatesSeveralDamagedRecordsAtTheTail() throws IOException {
+		Path path = directory.resolve("ledger.bin");
+		try (LedgerFile ledger = LedgerFile.open(path, (accountId, type, amountMinor, timestampMicros) -> {
+		})) {
+			ledger.append(1, LedgerFile.DEPOSIT, 500, 1);
+			ledger.append(1, LedgerFile.DEPOSIT, 250, 2);
+			ledger.append(1, LedgerFile.DEPOSIT, 125, 3);
+			ledger.flush(false);
+		}
+		corruptRecord(path, 1);
+		corruptRecord(path, 2);
+
+		try (LedgerFile ledger = LedgerFile.open(path, (accountId, type, amountMinor, timestampMicros) -> {
+		})) {
+			assertThat(ledger.getRecordCount()).isEqualTo(1);
+		}
+		assertThat(Files.size(path)).isEqualTo(LedgerFile.RECORD_SIZE);
+	}
+
+	@Test
+	void refusesToTruncateADamagedRecordFollowedByIntactOnes() throws IOException {
+		Path path = directory.resolve("ledger.bin");
+		try (LedgerFile ledger = LedgerFile.open(path, (accountId, type, amountMinor, timestampMicros) -> {
+		})) {
+			ledger.append(1, LedgerFile.DEPOSIT, 500, 1);
+			ledger.append(1, LedgerFile.DEPOSIT, 250, 2);
+			ledger.append(1, LedgerFile.DEPOSIT, 125, 3);
+			ledger.flush(false);
+		}
+		corruptRecord(path, 1);
+
+		assertThatThrownBy(() -> LedgerFile.open(path, (accountId, type, amountMinor, timestampMicros) -> {
+		})).isInstanceOf(IOException.class).hasMessageContaining("record 1 is damaged");
+		assertThat(Files.size(path)).isEqualTo(3L * LedgerFile.RECORD_SIZE);
+	}
+
+	@Test
+	void writesDetachedRecordsWhileLaterAppendsStayBuffered() throws IOException {
+		Path path = directory.resolve("ledger.bin");
+		try (LedgerFile ledger = LedgerFile.open(path, (accountId, type, amountMinor, timestampMicros) -> {
+		})) {
+			ledger.append(1, LedgerFile.DEPOSIT, 500, 1);
+			ledger.detach();
+			ledger.append(1, LedgerFile.DEPOSIT, 250, 2);
+			ledger.writeDetached(true);
+			assertThat(ledger.getRecordCount()).isEqualTo(1);
+			assertThat(Files.size(path)).isEqualTo(LedgerFile.RECORD_SIZE);
+
+			ledger.append(1, LedgerFile.DEPOSIT, 125, 3);
+			ledger.detach();
+			ledger.writeDetached(false);
+			assertThat(ledger.getRecordCount()).isEqualTo(3);
+		}
+
+		List<Long> timestamps = new ArrayList<>();
+		try (LedgerFile ledger = LedgerFile.open(path, (accountId, type, amountMinor, timestampMicros) ->
+				timestamps.add(timestampMicros))) {
+			assertThat(ledger.getRecordCount()).isEqualTo(3);
+		}
+		assertThat(timestamps).containsExactly(1L, 2L, 3L);
+	}
+
+	private static void corruptRecord(Path path, int record) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] {0x7F}), (long) record * LedgerFile.RECORD_SIZE + 8);
+		}
+	}
+}
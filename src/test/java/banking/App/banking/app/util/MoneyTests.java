@@ -0,0 +1,29 @@
+package banking.App.banking.app.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTests {
+
+	@Test
+	void roundsHalfUpToMinorUnits() {
+		assertThat(Money.of(new BigDecimal("12.345")).getMinorUnits()).isEqualTo(1235);
+		assertThat(Money.of(new BigDecimal("-0.005")).getMinorUnits()).isEqualTo(-1);
+		assertThat(Money.of(new BigDecimal("0.004")).isPositive()).isFalse();
+		assertThat(Money.ofMinor(1050).toBigDecimal()).isEqualTo(new BigDecimal("10.50"));
+	}
+
+	@Test
+	void rejectsOutOfRangeAmountsAndOverflow() {
+		assertThatThrownBy(() -> Money.of(new BigDecimal("100000000000000000")))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Money.ofMinor(Long.MAX_VALUE).plus(Money.ofMinor(1)))
+				.isInstanceOf(ArithmeticException.class);
+		assertThatThrownBy(() -> Money.ofMinor(Long.MIN_VALUE).minus(Money.ofMinor(1)))
+				.isInstanceOf(ArithmeticException.class);
+	}
+}
@@ -0,0 +1,60 @@
+package banking.App.banking.app.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	void allowsBurstThenRefillsAtRate() {
+		TokenBucket bucket = new TokenBucket(10, 3, 0);
+		assertThat(bucket.tryAcquire(0)).isZero();
+		assertThat(bucket.tryAcquire(0)).isZero();
+		assertThat(bucket.tryAcquire(0)).isZero();
+		assertThat(bucket.tryAcquire(0)).isEqualTo(SECOND / 10);
+
+		assertThat(bucket.tryAcquire(SECOND / 20)).isEqualTo(SECOND / 20);
+		assertThat(bucket.tryAcquire(SECOND / 10)).isZero();
+		assertThat(bucket.tryAcquire(SECOND / 10)).isPositive();
+
+		long idle = 10 * SECOND;
+		for (int i = 0; i < 3; i++) {
+			assertThat(bucket.tryAcquire(idle)).isZero();
+		}
+		assertThat(bucket.tryAcquire(idle)).isPositive();
+	}
+
+	@Test
+	void concurrentCallersNeverTakeMoreThanTheBurst() throws Exception {
+		TokenBucket bucket = new TokenBucket(1, 500, 0);
+		AtomicInteger taken = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			Future<?>[] futures = new Future<?>[8];
+			for (int t = 0; t < futures.length; t++) {
+				futures[t] = executor.submit(() -> {
+					for (int i = 0; i < 1000; i++) {
+						if (bucket.tryAcquire(0) == 0) {
+							taken.incrementAndGet();
+						}
+					}
+				});
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertThat(taken).hasValue(500);
+	}
+}
@@ -0,0 +1,91 @@
+package banking.App.banking.app.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionSegmentFileTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void readsOneAccountAcrossBlocks() throws IOException {
+		Path path = directory.resolve("segment.seg");
+		int perAccount = TransactionSegmentFile.BLOCK_RECORDS / 2 + 7;
+		try (TransactionSegmentFile.Writer writer = TransactionSegmentFile.create(path)) {
+			long id = 0;
+			for (long accountId = 1; accountId <= 5; accountId++) {
+				for (int i = 0; i < perAccount; i++) {
+					writer.append(accountId, ++id, i * 10L, accountId * 100 + i, TransactionSegmentFile.DEPOSIT);
+				}
+			}
+			assertThat(writer.finish()).isEqualTo(5L * perAccount);
+		}
+		assertThat(Files.exists(directory.resolve("segment.seg.tmp"))).isFalse();
+
+		try (TransactionSegmentFile segment = TransactionSegmentFile.open(path)) {
+			assertThat(segment.getRecordCount()).isEqualTo(5L * perAccount);
+			List<Long> amounts = new ArrayList<>();
+			segment.read(3, (accountId, id, timestampMicros, amountMinor, type) -> {
+				assertThat(accountId).isEqualTo(3);
+				amounts.add(amountMinor);
+				return true;
+			});
+			assertThat(amounts).hasSize(perAccount).startsWith(300L, 301L).endsWith(300L + perAccount - 1);
+
+			List<Long> firstTwo = new ArrayList<>();
+			segment.read(5, (accountId, id, timestampMicros, amountMinor, type) -> {
+				firstTwo.add(timestampMicros);
+				return firstTwo.size() < 2;
+			});
+			assertThat(firstTwo).containsExactly(0L, 10L);
+
+			List<Long> missing = new ArrayList<>();
+			segment.read(9, (accountId, id, timestampMicros, amountMinor, type) -> missing.add(id));
+			assertThat(missing).isEmpty();
+		}
+	}
+
+	@Test
+	void rejectsUnsortedRecordsAndDiscardsUnfinishedSegments() throws IOException {
+		Path path = directory.resolve("segment.seg");
+		try (TransactionSegmentFile.Writer writer = TransactionSegmentFile.create(path)) {
+			writer.append(2, 1, 5, 100, TransactionSegmentFile.WITHDRAW);
+			assertThatThrownBy(() -> writer.append(1, 2, 6, 100, TransactionSegmentFile.WITHDRAW))
+					.isInstanceOf(IllegalArgumentException.class);
+			assertThatThrownBy(() -> writer.append(2, 1, 5, 100, TransactionSegmentFile.WITHDRAW))
+					.isInstanceOf(IllegalArgumentException.class);
+		}
+		assertThat(directory.toFile().list()).isEmpty();
+	}
+
+	@Test
+	void detectsCorruptBlocks() throws IOException {
+		Path path = directory.resolve("segment.seg");
+		try (TransactionSegmentFile.Writer writer = TransactionSegmentFile.create(path)) {
+			writer.append(1, 1, 1, 250, TransactionSegmentFile.TRANSFER_IN);
+			writer.finish();
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{0x55}), 10);
+		}
+
+		try (TransactionSegmentFile segment = TransactionSegmentFile.open(path)) {
+			assertThatThrownBy(() -> segment.read(1, (accountId, id, timestampMicros, amountMinor, type) -> true))
+					.isInstanceOf(IOException.class)
+					.hasMessageContaining("corrupt");
+		}
+	}
+}